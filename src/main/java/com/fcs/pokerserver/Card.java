@@ -144,6 +144,33 @@ public enum Card {
 		return evaluation;
 	}
 
+	/**
+	 * Returns the single-bit mask of the card, bit {@code evaluation - 1} of a 52-bit long.
+	 *
+	 * @return long card mask
+	 */
+	public long getMask() {
+		return 1L << (evaluation - 1);
+	}
+
+	/**
+	 * Returns the card with the given 2+2 evaluation code (1..52).
+	 *
+	 * @param evaluation card code
+	 * @return Card card
+	 */
+	public static Card fromEvaluation(int evaluation) {
+		return BY_EVALUATION[evaluation];
+	}
+
+	private static final Card[] BY_EVALUATION = new Card[53];
+
+	static {
+		for (Card card : values()) {
+			BY_EVALUATION[card.evaluation] = card;
+		}
+	}
+
 	/**
 	 * Returns the name of the card.
 	 * 
@@ -19,17 +19,29 @@ THE SOFTWARE.
 */
 package com.fcs.pokerserver;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Standard deck of cards for poker. 52 Cards. 13 Clubs, Diamonds, Spades, and Hearts.
+ * The cards are kept in a reusable byte array of card ordinals with a 64-bit mask of the dealt cards.
+ * Shuffling is lazy: each dealt card is drawn at random from the cards left (an incremental Fisher-Yates),
+ * so only as many cards as are dealt get shuffled, and {@link #initDeck()} resets the deck in place.
+ * Random numbers come from a {@link ShuffleSource}, {@link SecureShuffleSource} by default.
  * @category com > fcs > pokerserver
  */
 public class Deck {
-	private List<Card> cards;
+	private static final Card[] CARDS = Card.values();
+
+	private final byte[] cards = new byte[CARDS.length];
+	private int size;
+	private int dealt;
+	/**
+	 * True while the cards left still have to be shuffled as they are dealt.
+	 */
+	private boolean shuffled;
+	private long dealtMask;
+	private ShuffleSource source;
 	
 
 	/**
@@ -44,6 +56,14 @@ public class Deck {
 	 * Call constructor with 2 options: shuffle(true) or not shuffle(flase)
 	 * */
 	public Deck(boolean shuffle){
+		this(SecureShuffleSource.getInstance(), shuffle);
+	}
+
+	/**
+	 * Call constructor with the source of the shuffle and the option to shuffle(true) or not shuffle(false)
+	 * */
+	public Deck(ShuffleSource source, boolean shuffle){
+		this.source = source;
 		initDeck();
 		if(shuffle){
 			shuffleDeck();
@@ -52,43 +72,122 @@ public class Deck {
 	
 
 	/**
-	 * Create the Deck with cards.
+	 * Create the Deck with cards, dealt in the given order.
 	 * */
 	public Deck(List<Card> cards){
-		this.cards = cards;
+		this.source = SecureShuffleSource.getInstance();
+		this.size = cards.size();
+		for (int i = 0; i < size; i++) {
+			this.cards[i] = (byte) cards.get(i).ordinal();
+		}
 	}
 	
 	/**
 	 * Create and Init for Deck.
-	 * Add 52 cards in the deck.
+	 * Put the 52 cards back in the deck in order, without allocating.
 	 * */
 	public void initDeck(){
-		cards = new LinkedList<Card>();
-		cards.addAll(Arrays.asList(Card.values()));
+		for (int i = 0; i < cards.length; i++) {
+			cards[i] = (byte) i;
+		}
+		size = cards.length;
+		dealt = 0;
+		dealtMask = 0;
+		shuffled = false;
 	}
 	
 	/**
 	 * Shuffle Deck used to randomize a deck of playing cards to provide an element of chance in card games.
+	 * The cards left are only shuffled as they are dealt.
 	 * */
 	public void shuffleDeck(){
-		Collections.shuffle(cards);
+		shuffled = true;
+	}
+
+	/**
+	 * Shuffle Deck with the random numbers of another source, kept for the next shuffles.
+	 * @param ShuffleSource source
+	 * */
+	public void shuffleDeck(ShuffleSource source){
+		this.source = source;
+		shuffled = true;
 	}
 	
 
 	/**
 	 * Deal the cards in the Deck 
 	 * @return the card 
-	 *  
+	 * @throws IndexOutOfBoundsException if the deck is empty
 	 * */
 	public Card dealCard(){
-		return cards.remove(0);
+		if (dealt >= size) throw new IndexOutOfBoundsException("No card left in the deck");
+		if (shuffled) draw(dealt);
+		Card card = CARDS[cards[dealt++]];
+		dealtMask |= card.getMask();
+		return card;
+	}
+
+	/**
+	 * Swap a random card left into {@code position}, one step of the Fisher-Yates shuffle.
+	 */
+	private void draw(int position) {
+		int r = position + source.nextInt(size - position);
+		byte card = cards[r];
+		cards[r] = cards[position];
+		cards[position] = card;
 	}
 	
 	/**
-	 * Return all of cards of Deck
-	 * @return cards
+	 * Return the source of the random numbers of the Deck.
+	 * @return ShuffleSource source
+	 * */
+	public ShuffleSource getSource(){
+		return source;
+	}
+
+	/**
+	 * Return the cards left in the Deck, in the order they will be dealt.
+	 * Pending shuffling is done first, so the order returned is final.
+	 * @return cards a new list
 	 * */
 	public List<Card> exportDeck(){
-		return cards;
+		List<Card> list = new ArrayList<Card>(size - dealt);
+		for (int i = dealt; i < size; i++) {
+			if (shuffled) draw(i);
+			list.add(CARDS[cards[i]]);
+		}
+		if (shuffled) {
+			// the cards left are now in their final order
+			shuffled = false;
+		}
+		return list;
+	}
+
+	/**
+	 * Return the cards dealt since the last {@link #initDeck()}, in dealing order.
+	 * @return cards a new list
+	 * */
+	public List<Card> getDealtCards(){
+		List<Card> list = new ArrayList<Card>(dealt);
+		for (int i = 0; i < dealt; i++) {
+			list.add(CARDS[cards[i]]);
+		}
+		return list;
+	}
+
+	/**
+	 * Return the number of cards left in the Deck.
+	 * @return int
+	 * */
+	public int remaining(){
+		return size - dealt;
+	}
+
+	/**
+	 * Return the mask of the cards dealt since the last {@link #initDeck()}, bit {@code Card.getEvaluation() - 1}.
+	 * @return long dealtMask
+	 * */
+	public long getDealtMask(){
+		return dealtMask;
 	}
-}
\ No newline at end of file
+}
@@ -23,25 +23,26 @@ THE SOFTWARE.
 */
 package com.fcs.pokerserver;
 
-import java.lang.management.ManagementFactory;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.fcs.pokerserver.events.*;
 import com.fcs.pokerserver.holder.Board;
 import com.fcs.pokerserver.holder.Hand;
+import com.fcs.pokerserver.holder.HandEvaluator;
+import com.fcs.pokerserver.holder.HandEvaluatorFactory;
 import com.fcs.pokerserver.holder.HandRank;
-import com.fcs.pokerserver.holder.TwoPlusTwoHandEvaluator;
+import com.fcs.pokerserver.holder.ShowdownRanker;
+import com.fcs.pokerserver.holder.ShowdownResult;
 import org.junit.Assert;
 
-import javax.management.MBeanServer;
-import javax.management.ObjectName;
 
 
 /**
@@ -52,12 +53,19 @@ import javax.management.ObjectName;
 
 public class Game implements AbstractPlayerListener, GameMBean {
 
-    private List<Player> listPlayer = new ArrayList<Player>();
+    private Seats seats;
     private Board board = new Board();
     private Deck deck = null;
+    private static final AtomicLong LAST_ID = new AtomicLong();
     private long id;
-    private long potBalance = 0;
+    private PotLedger pot;
+    private long[] payouts;
     private long currentRoundBet = 0;
+    /**
+     * Seats which still have to act in the betting round: a seat is pending until it acted and matched the
+     * current round bet. Only the bits of seats which can act count, so folds, all-ins and leaves need no update.
+     */
+    private int pendingActs = -1;
     private short round = 0;
     private Room room;
     private GameStatus status;
@@ -104,7 +112,9 @@ public class Game implements AbstractPlayerListener, GameMBean {
         data.append("\",\"flopCard\":" + flopcard);
         data.append(",\"turncard\":" + turncard);
         data.append(",\"rivercard\":" + rivercard);
-        data.append(",\"players\":" + listPlayer + "}");
+        data.append(",\"playersToAct\":" + this.getPlayersToAct());
+        data.append(",\"pots\":" + pot);
+        data.append(",\"players\":" + seats.asList() + "}");
         return data.toString();
     }
 
@@ -115,12 +125,15 @@ public class Game implements AbstractPlayerListener, GameMBean {
      */
     public Game(Room room) {
         this.room = room;
-        this.setId(System.currentTimeMillis());
-        this.deck = new Deck();
+        this.setId(nextId());
+        this.seats = new Seats(room != null ? room.getTableSize() : Room.DEFAULT_TABLE_SIZE);
+        this.pot = new PotLedger(seats.size());
+        // the deck of the room is reused, only its order is reset for the new hand
+        this.deck = room != null ? room.getDeck() : new Deck(false);
         this.deck.initDeck();
-        this.deck.shuffleDeck();
+        // each hand is shuffled from a seed of its own, which the audit log keeps to replay the hand
+        this.deck.shuffleDeck(new SeededShuffleSource(SecureShuffleSource.getInstance().nextSeed()));
         this.setStatus(GameStatus.NOT_STARTED);
-        registerMBean();
 
     }
 
@@ -130,7 +143,7 @@ public class Game implements AbstractPlayerListener, GameMBean {
      * @throws AssertionError if the total of Players < 2.
      */
     public void startGame() {
-        assert this.listPlayer.size() >= 2;
+        assert this.seats.count() >= 2;
 
         // setting postion of player
         this.setStatus(GameStatus.SEATING);
@@ -146,7 +159,7 @@ public class Game implements AbstractPlayerListener, GameMBean {
      * @throws AssertionError if the total of Players < 2.
      */
     public void preflop() {
-        assert this.listPlayer.size() >= 2;
+        assert this.seats.count() >= 2;
         //reset command flag.
         this.resetCommandFlag();
         this.setStatus(GameStatus.PREFLOP);
@@ -162,12 +175,19 @@ public class Game implements AbstractPlayerListener, GameMBean {
         //this.deck.dealCard();
         // deal 2 card for each player // unordered // begin from master // need to fix to begin from dealer
         for (int i = 0; i < 2; i++) {
-            for (Player player : listPlayer) {
+            for (int m = seats.getOccupied(); m != 0; m &= m - 1) {
                 Card card = this.deck.dealCard();
-                player.getPlayerHand().addCard(card);
+                seats.get(Integer.numberOfTrailingZeros(m)).getPlayerHand().addCard(card);
             }
 
         }
+        // the seed of the deck is audited as soon as the hand is dealt, even if it never ends
+        ShuffleAuditLog.getInstance().record(this);
+        // hand strength is only tracked once the evaluator is loaded, a game never waits for it here
+        HandEvaluator evaluator = HandEvaluatorFactory.isReady() ? HandEvaluatorFactory.getInstance() : null;
+        for (int m = seats.getOccupied(); m != 0; m &= m - 1) {
+            seats.get(Integer.numberOfTrailingZeros(m)).resetHandState(evaluator);
+        }
         RoundGameEvent gameEvent = new RoundGameEvent(this, GameAction.PREFLOP);
         this.fireEvent(gameEvent);
 
@@ -187,15 +207,14 @@ public class Game implements AbstractPlayerListener, GameMBean {
 
         assert this.isNextRoundReady();
         this.resetCommandFlag();
-        for (Player player : listPlayer) {
-
-            player.nextRound();
-
+        for (int m = seats.getOccupied(); m != 0; m &= m - 1) {
+            seats.get(Integer.numberOfTrailingZeros(m)).nextRound();
         }
 //		Card ignoreCard = this.deck.dealCard(); // ignore top card
         for (int i = 0; i < 3; i++) {
             Card card = this.deck.dealCard();
             getBoard().addCard(card);
+            advanceHandStates(card);
         }
         RoundGameEvent gameEvent = new RoundGameEvent(this, GameAction.FLOP);
         this.fireEvent(gameEvent);
@@ -223,6 +242,7 @@ public class Game implements AbstractPlayerListener, GameMBean {
 //		}
         Card card = this.deck.dealCard();
         this.getBoard().addCard(card);
+        advanceHandStates(card);
         RoundGameEvent gameEvent = new RoundGameEvent(this, GameAction.TURN);
         this.fireEvent(gameEvent);
         this.setStatus(GameStatus.TURN);
@@ -244,12 +264,26 @@ public class Game implements AbstractPlayerListener, GameMBean {
 
         Card card = this.deck.dealCard();
         this.getBoard().addCard(card);
+        advanceHandStates(card);
         RoundGameEvent gameEvent = new RoundGameEvent(this, GameAction.RIVER);
         this.fireEvent(gameEvent);
         this.setStatus(GameStatus.RIVER);
         //this.setRound((short) 4);
     }
 
+    /**
+     * Add a board card to the tracked hand of every player still in the hand.
+     *
+     * @param Card card
+     */
+    private void advanceHandStates(Card card) {
+        if (!HandEvaluatorFactory.isReady()) return;
+        HandEvaluator evaluator = HandEvaluatorFactory.getInstance();
+        for (int m = seats.getActive(); m != 0; m &= m - 1) {
+            seats.get(Integer.numberOfTrailingZeros(m)).advanceHandState(evaluator, card);
+        }
+    }
+
     /**
      * Finish the game. Show the winner Player.
      */
@@ -261,50 +295,38 @@ public class Game implements AbstractPlayerListener, GameMBean {
         this.setStatus(GameStatus.END_HAND);
         EndGameEvent gameEvent = new EndGameEvent(this);
 
+        List<Player> livePlayers = new ArrayList<Player>();
         List<Hand> list = new ArrayList<Hand>();
-        for (int i = 0; i < this.getListPlayer().size(); i++) {
-            Player p = this.getListPlayer().get(i);
-            if (p.isSittingOut()) continue;
+        int[] liveSeats = new int[seats.count()];
+        for (int m = seats.getActive(); m != 0; m &= m - 1) {
+            int seat = Integer.numberOfTrailingZeros(m);
+            Player p = seats.get(seat);
+            liveSeats[livePlayers.size()] = seat;
+            livePlayers.add(p);
             list.add(p.getPlayerHand());
         }
         Board b1 = this.getBoard();
         Board b = new Board(b1.getFlopCards().get(0), b1.getFlopCards().get(1), b1.getFlopCards().get(2), b1.getTurnCard(), b1.getRiverCard());
         this.setBoard(b);
 
-        list.sort(new Comparator<Hand>() {
-            public int compare(Hand o1, Hand o2) {
-                return TwoPlusTwoHandEvaluator.compare(o1, o2, b);
-
-            }
-        });
-        TwoPlusTwoHandEvaluator evaluator = TwoPlusTwoHandEvaluator.getInstance();
-        Hand highestHand = list.get(list.size() - 1);
-        HandRank highestRank = evaluator.evaluate(b, highestHand);
-        //Add best hand into list.
-        bestHands.add(highestHand);
-        //Add Win Player into list Player.
-        for (int i = 0; i < this.getListPlayer().size(); i++) {
-            if (this.getListPlayer().get(i).getPlayerHand() == highestHand) {
-                winners.add(this.getListPlayer().get(i));
-                break;
+        // the river already left every tracked hand with its final rank
+        int[] ranks = new int[list.size()];
+        HandEvaluator evaluator = null;
+        for (int i = 0; i < ranks.length; i++) {
+            Player p = livePlayers.get(i);
+            if (p.isHandStateOf(b)) {
+                ranks[i] = p.getCurrentHandRank();
+            } else {
+                if (evaluator == null) evaluator = HandEvaluatorFactory.getInstance();
+                ranks[i] = evaluator.rank(b, list.get(i));
             }
         }
-        /**
-         * Check whether multiple winners case occured*/
-        if (list.size() > 1) {
-            for (int i = list.size() - 2; i >= 0; i--) {
-                Hand temp = list.get(i);
-                HandRank tempRank = evaluator.evaluate(b, temp);
-                if (tempRank.getValue() < highestRank.getValue()) break;
-                bestHands.add(temp);
-                for (int y = 0; y < this.getListPlayer().size(); y++) {
-                    Player p = this.listPlayer.get(y);
-                    if (p.isSittingOut()) continue;
-                    if (this.getListPlayer().get(y).getPlayerHand() == temp) {
-                        winners.add(this.getListPlayer().get(y));
-                    }
-                }
-            }
+        ShowdownResult showdown = ShowdownRanker.rank(ranks);
+        HandRank highestRank = new HandRank(showdown.getBestRank());
+        //Add best hands and win players into list.
+        for (int i : showdown.getWinners()) {
+            bestHands.add(list.get(i));
+            winners.add(livePlayers.get(i));
         }
         //rank of winner player
         rank = highestRank.toString();
@@ -313,18 +335,13 @@ public class Game implements AbstractPlayerListener, GameMBean {
         gameEvent.setRank(String.valueOf(highestRank.getValue()));
         gameEvent.setPlayerwins(winners);
 
-/**
- * Temporary add winning money to winner balance (Need enhancement later)
- * */
-        //Find out the money to be claim for each player.
-        long moneyTobeClaim = this.potBalance / (winners.size());
-        for (Player p : winners) {
-            p.setBalance(p.getBalance() + moneyTobeClaim);
+        // every pot goes to the best hands eligible for it, side pots included
+        int[] seatRanks = new int[seats.size()];
+        Arrays.fill(seatRanks, Integer.MIN_VALUE);
+        for (int i = 0; i < ranks.length; i++) {
+            seatRanks[liveSeats[i]] = ranks[i];
         }
-        /**
-         * TODO Here need an event for adding winning money.
-         * */
-//        winner.setBalance(winner.getBalance() + this.potBalance);
+        payOut(seatRanks);
         this.fireEvent(gameEvent);
 
 
@@ -342,12 +359,31 @@ public class Game implements AbstractPlayerListener, GameMBean {
         gameEvent.setPlayerwins(winners);
         gameEvent.setBestHands(bestHands);
         gameEvent.setRank(rank);
-        p.setBalance(p.getBalance() + this.potBalance);
+        int[] seatRanks = new int[seats.size()];
+        Arrays.fill(seatRanks, Integer.MIN_VALUE);
+        int seat = seats.seatOf(p);
+        if (seat >= 0) seatRanks[seat] = 0;
+        payOut(seatRanks);
         this.fireEvent(gameEvent);
 
     }
 
 
+    /**
+     * Share the pots between the players according to the rank of their hand and add the chips to their balance.
+     *
+     * @param int[] seatRanks rank of the hand on each seat, Integer.MIN_VALUE if not shown
+     */
+    private void payOut(int[] seatRanks) {
+        this.payouts = pot.distribute(seatRanks, dealer_index);
+        for (int m = seats.getOccupied(); m != 0; m &= m - 1) {
+            int seat = Integer.numberOfTrailingZeros(m);
+            if (payouts[seat] == 0) continue;
+            Player p = seats.get(seat);
+            p.setBalance(p.getBalance() + payouts[seat]);
+        }
+    }
+
     public void autoNextRound() {
         switch (this.status) {
 //            case NOT_STARTED:
@@ -392,7 +428,25 @@ public class Game implements AbstractPlayerListener, GameMBean {
      * @return long Pot
      */
     public long getPotBalance() {
-        return potBalance;
+        return pot.getTotal();
+    }
+
+    /**
+     * Return the main pot and the side pots, with the seats which can win each of them.
+     *
+     * @return PotLedger pot
+     */
+    public PotLedger getPot() {
+        return pot;
+    }
+
+    /**
+     * Return the chips won by each seat at the end of the game.
+     *
+     * @return long[] chips by seat, null before the end of the game
+     */
+    public long[] getPayouts() {
+        return payouts == null ? null : payouts.clone();
     }
 
     /**
@@ -429,11 +483,10 @@ public class Game implements AbstractPlayerListener, GameMBean {
      * @param Player p
      */
     public void addPlayer(Player p) {
-        if (listPlayer.contains(p)) return;
+        if (seats.seatOf(p) >= 0) return;
         // check if timeout join after 15 second then Reject
         if (this.startTime == null || Duration.between(this.startTime, LocalDateTime.now()).getSeconds() <= 15) {
-            if (listPlayer.size() < 8) {
-                this.listPlayer.add(p);
+            if (seats.sit(p) >= 0) {
                 p.attachListener(this);
                 p.setCurrentGame(this);
             } else {
@@ -450,16 +503,75 @@ public class Game implements AbstractPlayerListener, GameMBean {
      * Reset CommmandThisTurn flag of all playing player
      **/
     public void resetCommandFlag() {
-        this.listPlayer.stream().filter(p -> !p.isSittingOut()).forEach(p -> p.setCommandThisTurn(false));
+        for (int m = seats.getActive(); m != 0; m &= m - 1) {
+            seats.get(Integer.numberOfTrailingZeros(m)).setCommandThisTurn(false);
+        }
+        this.pendingActs = seats.getCanAct();
+    }
+
+    /**
+     * Rebuild the pending seats from the command flags and round bets of the players, for changes made from outside
+     * the betting actions.
+     */
+    private void recountPendingActs() {
+        int pending = 0;
+        for (int m = seats.getCanAct(); m != 0; m &= m - 1) {
+            int seat = Integer.numberOfTrailingZeros(m);
+            Player p = seats.get(seat);
+            if (!p.didCommandThisTurn() || p.getRoundBet() != this.currentRoundBet) pending |= 1 << seat;
+        }
+        this.pendingActs = pending;
+    }
+
+    /**
+     * Mark a seat as done for the betting round if its bet matches the current round bet or it is all-in.
+     *
+     * @param Player p, int seat
+     */
+    private void acted(Player p, int seat) {
+        p.setCommandThisTurn(true);
+        if (p.getRoundBet() == this.currentRoundBet || p.getBalance() == 0) this.pendingActs &= ~(1 << seat);
+    }
+
+    /**
+     * Seat a player on a given seat, used to keep the seats of the players from one game to the next.
+     *
+     * @param Player p, int seat
+     * @return boolean false if the seat is taken or does not exist
+     */
+    public boolean seatPlayer(Player p, int seat) {
+        if (!seats.sit(p, seat)) return false;
+        p.attachListener(this);
+        p.setCurrentGame(this);
+        return true;
+    }
+
+    /**
+     * Keep the folded mask of the seats in line with the sitting out flag of a player.
+     *
+     * @param Player p
+     */
+    void sittingOutChanged(Player p) {
+        int seat = seats.seatOf(p);
+        if (seat >= 0) seats.setFolded(seat, p.isSittingOut());
     }
 
     /**
-     * Return List of Player in Game
+     * Return List of Player in Game, in seat order. The list is backed by the seats of the game.
      *
      * @return List<Player> list
      */
     public List<Player> getListPlayer() {
-        return listPlayer;
+        return seats.asList();
+    }
+
+    /**
+     * Return the seats of the game.
+     *
+     * @return Seats seats
+     */
+    public Seats getSeats() {
+        return seats;
     }
 
 //	private void setListPlayer(List<Player> listPlayer) {
@@ -484,6 +596,20 @@ public class Game implements AbstractPlayerListener, GameMBean {
         this.id = id;
     }
 
+    /**
+     * Return a new game id, unique in the process: the creation time in milliseconds, or the last id plus one when
+     * another game was created in the same millisecond. The ids keep the order the games were created in.
+     *
+     * @return long id
+     */
+    private static long nextId() {
+        while (true) {
+            long last = LAST_ID.get();
+            long next = Math.max(System.currentTimeMillis(), last + 1);
+            if (LAST_ID.compareAndSet(last, next)) return next;
+        }
+    }
+
     /**
      * Return Status of Game
      *
@@ -507,7 +633,10 @@ public class Game implements AbstractPlayerListener, GameMBean {
     }
 
     public void setListPlayer(List<Player> listPlayer) {
-        this.listPlayer = listPlayer;
+        this.seats.clear();
+        for (Player p : listPlayer) {
+            this.seats.sit(p);
+        }
     }
 //	private int getIndexPlayerList(Player player) {
 //		int index = 0;
@@ -527,22 +656,11 @@ public class Game implements AbstractPlayerListener, GameMBean {
      * @throws AssertionError the list of Players is not contain the Player.
      */
     public Player getNextPlayer(Player p) {
-//        System.out.println(listPlayer.toString());
-        assert listPlayer.contains(p);
-        Player temp = null;
-        for (int i = 0; i < this.getListPlayer().size(); i++) {
-            //Find the player we are starting at
-            if (this.getListPlayer().get(i).equals(p)) {
-                //The next player is either the next in the list, or the first in the list if startPlayer is at the end
-                temp = (i == this.getListPlayer().size() - 1) ? this.getListPlayer().get(0) : this.getListPlayer().get(i + 1);
-                break;
-            }
-        }
-        if (temp.isSittingOut()) {
-            return getNextPlayer(temp);
-//            return temp;
-        } else
-            return temp;
+        int seat = seats.seatOf(p);
+        assert seat >= 0;
+        // the next seat still in the hand which can act, folded and all-in seats are skipped
+        int next = Seats.next(seat, seats.getCanAct());
+        return next < 0 ? null : seats.get(next);
     }
 
     /**
@@ -552,13 +670,18 @@ public class Game implements AbstractPlayerListener, GameMBean {
      * @throws AssertionError the list of Players is not contain the Player.
      */
     public void setDealer(Player dealer) {
-        assert this.listPlayer.contains(dealer);
+        assert seats.seatOf(dealer) >= 0;
         this.dealer = dealer;
+        this.dealer_index = seats.seatOf(dealer);
         this.smallBlind = this.getNextPlayer(this.dealer);
         this.bigBlind = this.getNextPlayer(this.smallBlind);
-        this.dealer_index = this.listPlayer.indexOf(dealer);
     }
 
+    /**
+     * Return the seat of the dealer button.
+     *
+     * @return int seat
+     */
     public int getDealer_index() {
         return dealer_index;
     }
@@ -623,6 +746,15 @@ public class Game implements AbstractPlayerListener, GameMBean {
         this.listeners.add(gl);
     }
 
+    /**
+     * Add Listener for the game at a place in the order the listeners hear the events
+     *
+     * @param int index, GameListener gl
+     */
+    void addGameListener(int index, GameListener gl) {
+        this.listeners.add(index, gl);
+    }
+
     private void fireEvent(AbstractGameEvent ge) {
         for (Iterator iterator = this.listeners.iterator(); iterator.hasNext(); ) {
             GameListener listener = (GameListener) iterator.next();
@@ -636,15 +768,26 @@ public class Game implements AbstractPlayerListener, GameMBean {
      * @return boolean is next round ready
      */
     public boolean isNextRoundReady() {
-        //TODO need more test and code review
-        boolean hasPlayerNotAct = this.listPlayer.stream()
-                .filter(p -> !p.isSittingOut())
-                .anyMatch(p -> !p.didCommandThisTurn());
-        boolean doAllPlayersBetEqual = !this.listPlayer.stream()
-                .filter(x -> !x.isSittingOut())
-                .filter(x -> x.getRoundBet() != this.getCurrentRoundBet())
-                .findAny().isPresent();
-        return doAllPlayersBetEqual && !hasPlayerNotAct;
+        // all-in seats cannot act nor match the bet any more
+        return (this.pendingActs & seats.getCanAct()) == 0;
+    }
+
+    /**
+     * Return the number of players who still have to act before the betting round is over.
+     *
+     * @return int players to act
+     */
+    public int getPlayersToAct() {
+        return Integer.bitCount(this.pendingActs & seats.getCanAct());
+    }
+
+    /**
+     * Return the mask of seats which still have to act before the betting round is over.
+     *
+     * @return int mask of seats
+     */
+    public int getPendingActs() {
+        return this.pendingActs & seats.getCanAct();
     }
 
 
@@ -710,19 +853,24 @@ public class Game implements AbstractPlayerListener, GameMBean {
             return;
         }
 //        assert p == this.getCurrentPlayer();
-        if (listPlayer.contains(p)) {
+        int seat = seats.seatOf(p);
+        if (seat >= 0) {
             if (e instanceof PlayerBetEvent) {
                 PlayerBetEvent pbe = (PlayerBetEvent) e;
-                assert p.getRoundBet() >= this.currentRoundBet;
-
-                this.potBalance += pbe.getAmount();
-                this.currentRoundBet = p.getRoundBet(); // set current bet equal to this bet amount
+                // only an all-in may stay short of the current round bet
+                assert p.getRoundBet() >= this.currentRoundBet || p.getBalance() == 0;
+
+                if (p.getBalance() == 0) seats.setAllIn(seat, true);
+                this.pot.contribute(seat, pbe.getAmount(), p.getBalance() == 0);
+                // a raise above the current round bet reopens the action for every other seat, a short all-in does not
+                if (p.getRoundBet() > this.currentRoundBet) this.pendingActs = seats.getCanAct() & ~(1 << seat);
+                this.currentRoundBet = Math.max(this.currentRoundBet, p.getRoundBet());
+//              This player has action now.
+                acted(p, seat);
                 PlayerActionGameEvent ge = new PlayerActionGameEvent(this);
                 ge.setE(pbe);
                 this.fireEvent(ge);
 
-//              This player has action now.
-                p.setCommandThisTurn(true);
                 //TODO Temporary set check next round for game
                 // if next round ready then next Player will be left person of dealer
                 if (isNextRoundReady()) {
@@ -739,25 +887,19 @@ public class Game implements AbstractPlayerListener, GameMBean {
             if (e instanceof PlayerFoldEvent) {
                 PlayerFoldEvent pfe = (PlayerFoldEvent) e;
                 p.setSittingOut(true);
+                seats.setFolded(seat, true);
+                pot.fold(seat);
+//              This player has action now.
+                p.setCommandThisTurn(true);
                 PlayerActionGameEvent ge = new PlayerActionGameEvent(this);
                 ge.setE(pfe);
                 this.fireEvent(ge);
 
-//              This player has action now.
-                p.setCommandThisTurn(true);
-
                 /**
                  * Check if there is only 1 player playing after this player fold then endgame immediately*/
-                int i = 0;
-                Player temp = null;
-                for (Player player : this.listPlayer) {
-                    if (!player.isSittingOut()) {
-                        i++;
-                        temp = player;
-                    }
-                }
-                if (i == 1) {
-                    temp.getCurrentGame().endGameSoon(temp);
+                int active = seats.getActive();
+                if (Integer.bitCount(active) == 1) {
+                    this.endGameSoon(seats.get(Integer.numberOfTrailingZeros(active)));
                 } else {
                     if (isNextRoundReady()) {
                         this.setCurrentPlayer(this.getNextPlayer(this.getDealer()));
@@ -770,12 +912,11 @@ public class Game implements AbstractPlayerListener, GameMBean {
             }
             if (e instanceof PlayerCheckEvent) {
                 PlayerCheckEvent pce = (PlayerCheckEvent) e;
+//              This player has action now.
+                acted(p, seat);
                 PlayerActionGameEvent ge = new PlayerActionGameEvent(this);
                 ge.setE(pce);
                 this.fireEvent(ge);
-
-//              This player has action now.
-                p.setCommandThisTurn(true);
                 if (isNextRoundReady()) {
                     this.setCurrentPlayer(this.getNextPlayer(this.getDealer()));
                     autoNextRound();
@@ -808,7 +949,7 @@ public class Game implements AbstractPlayerListener, GameMBean {
      */
     public void setCurrentPlayer(Player p) {
         this.currentPlayer = p;
-        this.currentPlayer.myTurn();
+        if (p != null) p.myTurn();
     }
 
     /**
@@ -827,6 +968,7 @@ public class Game implements AbstractPlayerListener, GameMBean {
      */
     public void setCurrentBet(long currentBet) {
         this.currentRoundBet = currentBet;
+        recountPendingActs();
     }
 
     /**
@@ -859,25 +1001,14 @@ public class Game implements AbstractPlayerListener, GameMBean {
         return bestHands;
     }
 
-    public void registerMBean() {
-        try {
-            MBeanServer sv = ManagementFactory.getPlatformMBeanServer();
-            ObjectName name = new ObjectName("com.fcs.pokerserver:type=Game,id=" + this.getId());
-            sv.registerMBean(this, name);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-    }
-
     @Override
     public long jmx_getPotBalance() {
-        return this.potBalance;
+        return this.pot.getTotal();
     }
 
     @Override
     public void jmx_setPotBalance(long bal) {
-        this.potBalance = bal;
+        this.room.run(() -> this.pot.addDead(bal - this.pot.getTotal()));
     }
 
     @Override
@@ -887,18 +1018,20 @@ public class Game implements AbstractPlayerListener, GameMBean {
 
     @Override
     public void jmx_setCurrentRoundBet(long bal) {
-        this.currentRoundBet = bal;
+        this.room.run(() -> this.setCurrentBet(bal));
     }
 
     @Override
     public String jmx_getListPlayer() {
-        return this.listPlayer.toString();
+        return this.seats.asList().toString();
     }
 
     @Override
     public void jmx_kickPlayer(String id) {
-        Player pl = this.listPlayer.stream().filter(p -> id.equals(p.getId())).findFirst().orElse(null);
-        if (pl != null) listPlayer.remove(pl);
+        this.room.run(() -> {
+            Player pl = this.getListPlayer().stream().filter(p -> id.equals(p.getId())).findFirst().orElse(null);
+            if (pl != null) seats.leave(pl);
+        });
     }
 
     @Override
@@ -923,8 +1056,10 @@ public class Game implements AbstractPlayerListener, GameMBean {
 
     @Override
     public String jmx_setDealer(String id) {
-        Player pl = this.listPlayer.stream().filter(p -> id.equals(p.getId())).findFirst().orElse(null);
-        this.dealer = pl;
-        return pl.toJson();
+        return this.room.call(() -> {
+            Player pl = this.getListPlayer().stream().filter(p -> id.equals(p.getId())).findFirst().orElse(null);
+            this.dealer = pl;
+            return pl.toJson();
+        });
     }
 }
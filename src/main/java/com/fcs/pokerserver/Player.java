@@ -23,24 +23,25 @@ THE SOFTWARE.
 */
 package com.fcs.pokerserver;
 
-import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Timer;
 
 import com.fcs.pokerserver.automation.CountDownPlayer;
+import com.fcs.pokerserver.automation.TurnTimer;
 import com.fcs.pokerserver.events.*;
 import com.fcs.pokerserver.holder.Board;
 import com.fcs.pokerserver.holder.Hand;
-import com.fcs.pokerserver.holder.TwoPlusTwoHandEvaluator;
+import com.fcs.pokerserver.holder.HandEvaluator;
+import com.fcs.pokerserver.holder.HandEvaluatorFactory;
+import com.fcs.pokerserver.holder.HandRank;
+import com.fcs.pokerserver.holder.HandType;
 import com.google.api.gax.rpc.AlreadyExistsException;
 import com.google.gson.annotations.Expose;
 import com.googlecode.objectify.annotation.Entity;
 import com.googlecode.objectify.annotation.Id;
 import com.googlecode.objectify.annotation.Index;
 
-import javax.management.*;
 
 /**
  * An instance of the Player class is created Player when user want to play Poker Game.
@@ -64,16 +65,21 @@ public class Player implements PlayerMBean {
     private boolean commandThisTurn = false;
 
     private Hand playerHand = new Hand();
+    private long handState;
+    private long handStateMask;
+    private int currentHandRank;
     private List<AbstractPlayerListener> listeners = new ArrayList<>();
     private Game currentGame = null;
     private String avatar_url;
-    private Timer countdown = new Timer();
-    private CountDownPlayer task = null;
+    private TurnTimer.Timeout turnTimeout = null;
+    private int seat = -1;
+    private int wireVersion = 0;
+    private boolean legacyText = false;
     private long COUNTDOWN_DELAY = 20 * 1000;
 
     @Override
     public String toString() {
-        return "{\"id\":\"" + this.getId() + "\",\"name\":\"" + this.getName() + "\",\"balance\":" + this.getBalance() + ",\"globalBalance\":" + this.getGlobalBalance() + ",\"isSittingOut\":" + this.isSittingOut() + "}";
+        return "{\"id\":\"" + this.getId() + "\",\"name\":\"" + this.getName() + "\",\"balance\":" + this.getBalance() + ",\"globalBalance\":" + this.getGlobalBalance() + ",\"isSittingOut\":" + this.isSittingOut() + ",\"seat\":" + this.seat + "}";
     }
 
     @Override
@@ -88,7 +94,7 @@ public class Player implements PlayerMBean {
 
     @Override
     public void jmx_setBalance(long bal) {
-        this.balance = bal;
+        onTable(() -> this.balance = bal);
     }
 
     @Override
@@ -98,29 +104,32 @@ public class Player implements PlayerMBean {
 
     @Override
     public void jmx_setGlobalBalance(long bal) {
-        this.globalBalance = bal;
+        onTable(() -> this.globalBalance = bal);
     }
 
     @Override
     public void jmx_setSittingOut(boolean bool) {
-        this.sittingOut = bool;
+        onTable(() -> this.setSittingOut(bool));
     }
 
     @Override
     public void jmx_setRoundBet(long amount) {
-        this.roundBet = amount;
+        onTable(() -> this.roundBet = amount);
     }
 
     @Override
     public void jmx_setGameBet(long amount) {
-        this.gameBet = amount;
+        onTable(() -> this.gameBet = amount);
     }
 
     @Override
     public int jmx_evaluateHand() {
         Board b = this.getCurrentGame().getBoard();
-        TwoPlusTwoHandEvaluator evaluator = TwoPlusTwoHandEvaluator.getInstance();
-        return evaluator.evaluate(b,this.getPlayerHand()).getValue();
+        if (isHandStateOf(b)) return currentHandRank;
+        // no rank before the flop, like the hand state
+        if (b.getCardNumber() + this.getPlayerHand().getCardNumber() < 5) return 0;
+        HandEvaluator evaluator = HandEvaluatorFactory.getInstance();
+        return evaluator.rank(b, this.getPlayerHand());
     }
 
     @Override
@@ -129,14 +138,13 @@ public class Player implements PlayerMBean {
         return "flop: "+ b.getFlopCards()+" turn: "+b.getTurnCard()+" river: "+b.getRiverCard();
     }
 
-    public void registerMbean() {
-        try {
-            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
-            ObjectName name = new ObjectName("com.fcs.pokerserver" + ":type=Player,id=" + this.getId());
-            mbs.registerMBean(this, name);
-        } catch (MalformedObjectNameException | AlreadyExistsException | MBeanRegistrationException | NotCompliantMBeanException | InstanceAlreadyExistsException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Run a change coming from another thread on the loop of the player's room, or at once outside a room.
+     */
+    private void onTable(Runnable task) {
+        Room room = this.currentRoom;
+        if (room == null) task.run();
+        else room.run(task);
     }
 
     /**
@@ -144,7 +152,6 @@ public class Player implements PlayerMBean {
      */
     public Player() {
         this.setId(String.valueOf(System.nanoTime()));
-        registerMbean();
     }
 
     /**
@@ -155,7 +162,6 @@ public class Player implements PlayerMBean {
     public Player(String name) {
         this.name = name;
         this.setId(name);
-        registerMbean();
     }
 
     public void attachListener(AbstractPlayerListener listener) {
@@ -179,15 +185,12 @@ public class Player implements PlayerMBean {
      */
 
     public void bet(long amount) {
-        assert amount < this.balance;
+        assert amount <= this.balance;
         assert !this.sittingOut;
         this.setRoundBet(this.getRoundBet() + amount);
         this.gameBet += amount;
         this.balance = this.balance - amount;
-        if (task != null) {
-            task.cancel();
-        }
-        ;
+        cancelTurnTimeout();
         PlayerBetEvent pbe = new PlayerBetEvent(this);
         pbe.setAmount(amount);
         this.triggerEvent(pbe);
@@ -226,9 +229,7 @@ public class Player implements PlayerMBean {
      * The Player want to fold in the game.
      */
     public void fold() {
-        if (task != null) {
-            task.cancel();
-        }
+        cancelTurnTimeout();
         PlayerFoldEvent pfe = new PlayerFoldEvent(this);
         this.triggerEvent(pfe);
         this.sittingOut = true;
@@ -238,10 +239,7 @@ public class Player implements PlayerMBean {
      * The Player want to check in the game.
      */
     public void check() {
-        if (task != null) {
-            task.cancel();
-        }
-        ;
+        cancelTurnTimeout();
         PlayerCheckEvent pce = new PlayerCheckEvent(this);
         this.triggerEvent(pce);
     }
@@ -273,9 +271,31 @@ public class Player implements PlayerMBean {
     }
 
 
+    /**
+     * The method to get the handle of the pending turn timeout of this Player.
+     *
+     * @return TurnTimer.Timeout handle, null when no turn is pending
+     */
+    public TurnTimer.Timeout getTurnTimeout() {
+        return turnTimeout;
+    }
+
+    /**
+     * The method to drop the pending turn timeout of this Player, if any.
+     */
+    private void cancelTurnTimeout() {
+        TurnTimer.Timeout timeout = turnTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+            turnTimeout = null;
+        }
+    }
+
     public void myTurn() {
-        task = CountDownPlayer.createInstance(this, this.getCurrentGame());
-        countdown.schedule(task, COUNTDOWN_DELAY);
+        cancelTurnTimeout();
+        CountDownPlayer task = CountDownPlayer.createInstance(this, this.getCurrentGame());
+        turnTimeout = TurnTimer.getInstance().schedule(task, COUNTDOWN_DELAY);
+        task.setTimeout(turnTimeout);
         System.out.println("My Turn: " + this.getId() + " ID task: " + task.getId());
         GetTurnPlayerEvent e = new GetTurnPlayerEvent(this);
         this.triggerEvent(e);
@@ -353,6 +373,67 @@ public class Player implements PlayerMBean {
         return playerHand;
     }
 
+    /**
+     * Start tracking the strength of the hand once the hole cards are dealt.
+     * The board cards are then added one by one with {@link #advanceHandState(HandEvaluator, Card)}.
+     *
+     * @param HandEvaluator evaluator, or null to stop tracking
+     */
+    void resetHandState(HandEvaluator evaluator) {
+        currentHandRank = 0;
+        if (evaluator == null || playerHand.getCardNumber() != 2) {
+            // not a fresh hand, leave the showdown to a full evaluation
+            handStateMask = 0;
+            return;
+        }
+        long state = evaluator.initialState();
+        for (Card card : playerHand.getAllCards()) {
+            state = evaluator.advance(state, card.getEvaluation());
+        }
+        handState = state;
+        handStateMask = playerHand.getCardMask();
+    }
+
+    /**
+     * Add a board card to the tracked hand: one table lookup, plus one more to read the rank.
+     *
+     * @param HandEvaluator evaluator, Card card
+     */
+    void advanceHandState(HandEvaluator evaluator, Card card) {
+        if (handStateMask == 0 || Long.bitCount(handStateMask) >= 7) return;
+        handState = evaluator.advance(handState, card.getEvaluation());
+        handStateMask |= card.getMask();
+        currentHandRank = evaluator.rankOfState(handState);
+    }
+
+    /**
+     * Return true if the tracked hand strength covers exactly the hole cards and this board.
+     *
+     * @param Board board
+     * @return boolean
+     */
+    boolean isHandStateOf(Board board) {
+        return handStateMask != 0 && handStateMask == (playerHand.getCardMask() | board.getCardMask());
+    }
+
+    /**
+     * Return the raw rank of the best hand made with the board dealt so far, 0 before the flop.
+     *
+     * @return int raw rank value
+     */
+    public int getCurrentHandRank() {
+        return currentHandRank;
+    }
+
+    /**
+     * Return the type of the best hand made with the board dealt so far, {@link HandType#BAD} before the flop.
+     *
+     * @return HandType
+     */
+    public HandType getCurrentHandType() {
+        return new HandRank(currentHandRank).getHandType();
+    }
+
     /**
      * The method to set the cards on hand of the Player
      *
@@ -414,6 +495,61 @@ public class Player implements PlayerMBean {
      */
     public void setSittingOut(boolean sittingOut) {
         this.sittingOut = sittingOut;
+        if (currentGame != null) currentGame.sittingOutChanged(this);
+    }
+
+    /**
+     * The method to get the seat of the Player at the table of the current game.
+     *
+     * @return int seat, -1 if the Player never sat at a table
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+    /**
+     * The method to set the seat of the Player, only the Seats of a game may call it.
+     *
+     * @param int seat
+     */
+    void setSeat(int seat) {
+        this.seat = seat;
+    }
+
+    /**
+     * The method to get the version of the binary format the client of the Player reads the room events in.
+     *
+     * @return int version, 0 if the client does not read the binary format
+     */
+    public int getWireVersion() {
+        return wireVersion;
+    }
+
+    /**
+     * The method to set the version of the binary format the client of the Player reads the room events in.
+     *
+     * @param int version, 0 if the client does not read the binary format
+     */
+    public void setWireVersion(int wireVersion) {
+        this.wireVersion = wireVersion;
+    }
+
+    /**
+     * The method to know if the client of the Player reads the legacy text messages of the room events.
+     *
+     * @return boolean legacyText
+     */
+    public boolean isLegacyText() {
+        return legacyText;
+    }
+
+    /**
+     * The method to set if the client of the Player reads the legacy text messages of the room events.
+     *
+     * @param boolean legacyText
+     */
+    public void setLegacyText(boolean legacyText) {
+        this.legacyText = legacyText;
     }
 
     /**
@@ -0,0 +1,279 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The chips put in the pot during a game, kept as layers: each all-in caps a layer and opens a side pot above it.
+ * A contribution only adds its overlap to the layers it crosses, so the main and side pots are always up to date
+ * and {@link #getPots()} returns a cached snapshot. Only an all-in at a new level walks the contributions of the
+ * seats, to split the layer it falls in.
+ * At showdown {@link #distribute(int[], int)} pays every pot to the best eligible hands in one pass; the odd
+ * chips of a split pot go one by one to the winners closest to the left of the dealer.
+ *
+ * @category com > fcs > pokerserver
+ */
+public class PotLedger {
+
+    private static final long OPEN = Long.MAX_VALUE;
+
+    private final long[] contributed;
+    private final long[] caps;
+    private final long[] amounts;
+    private final int[] reached;
+    private int layers = 1;
+    private int folded;
+    private int allIn;
+    private long dead;
+    private long total;
+    private List<Pot> snapshot;
+
+    /**
+     * Create an empty ledger for a table.
+     *
+     * @param int seats number of seats of the table
+     */
+    public PotLedger(int seats) {
+        this.contributed = new long[seats];
+        this.caps = new long[seats + 1];
+        this.amounts = new long[seats + 1];
+        this.reached = new int[seats + 1];
+        this.caps[0] = OPEN;
+    }
+
+    /**
+     * Record chips put in the pot by a seat.
+     *
+     * @param int seat, long amount, boolean allIn true if the seat has no chips left
+     */
+    public void contribute(int seat, long amount, boolean allIn) {
+        long from = contributed[seat];
+        long to = from + amount;
+        contributed[seat] = to;
+        total += amount;
+        long lo = 0;
+        for (int k = 0; k < layers && to > lo; k++) {
+            long hi = caps[k];
+            long overlap = Math.min(to, hi) - Math.max(from, lo);
+            if (overlap > 0) amounts[k] += overlap;
+            if (hi == OPEN || to >= hi) reached[k] |= 1 << seat;
+            lo = hi;
+        }
+        if (allIn) {
+            this.allIn |= 1 << seat;
+            cap(to);
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Add chips which belong to no seat to the main pot.
+     *
+     * @param long amount
+     */
+    public void addDead(long amount) {
+        dead += amount;
+        total += amount;
+        snapshot = null;
+    }
+
+    /**
+     * Mark a seat as folded, it is no longer eligible for any pot.
+     *
+     * @param int seat
+     */
+    public void fold(int seat) {
+        folded |= 1 << seat;
+        snapshot = null;
+    }
+
+    /**
+     * Return the total of the chips in the pots.
+     *
+     * @return long total
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Return the chips a seat put in the pot during the game.
+     *
+     * @param int seat
+     * @return long chips
+     */
+    public long getContributed(int seat) {
+        return contributed[seat];
+    }
+
+    /**
+     * Return the pots, main pot first. The list is rebuilt only after a change.
+     *
+     * @return List<Pot> pots
+     */
+    public List<Pot> getPots() {
+        List<Pot> pots = snapshot;
+        if (pots == null) {
+            pots = new ArrayList<>(layers);
+            for (int k = 0; k < layers; k++) {
+                long amount = k == 0 ? amounts[0] + dead : amounts[k];
+                if (amount > 0) pots.add(new Pot(amount, reached[k] & ~folded));
+            }
+            snapshot = pots = Collections.unmodifiableList(pots);
+        }
+        return pots;
+    }
+
+    /**
+     * Share every pot between the best hands eligible for it.
+     * Every shown hand which is not all-in below it can win the top pot, even without chips in it yet.
+     * A pot nobody eligible is left for (all its players folded) goes to the best hand still in the game.
+     *
+     * @param int[] ranks rank of the hand of each seat, higher is better, Integer.MIN_VALUE if not shown
+     * @param int dealerSeat seat of the dealer, the odd chips go first to the seat left of the dealer
+     * @return long[] chips won by each seat
+     */
+    public long[] distribute(int[] ranks, int dealerSeat) {
+        long[] payouts = new long[contributed.length];
+        int live = 0;
+        for (int seat = 0; seat < ranks.length; seat++) {
+            if (ranks[seat] != Integer.MIN_VALUE && (folded & (1 << seat)) == 0) live |= 1 << seat;
+        }
+        for (int k = 0; k < layers; k++) {
+            long amount = k == 0 ? amounts[0] + dead : amounts[k];
+            if (amount == 0) continue;
+            int eligible = reached[k] & ~folded;
+            if (k == layers - 1) eligible |= live & ~allIn;
+            if (eligible == 0) eligible = live;
+            if (eligible == 0) continue;
+            int winners = 0;
+            int best = Integer.MIN_VALUE;
+            for (int m = eligible; m != 0; m &= m - 1) {
+                int seat = Integer.numberOfTrailingZeros(m);
+                int rank = seat < ranks.length ? ranks[seat] : Integer.MIN_VALUE;
+                if (winners == 0 || rank > best) {
+                    best = rank;
+                    winners = 1 << seat;
+                } else if (rank == best) {
+                    winners |= 1 << seat;
+                }
+            }
+            int count = Integer.bitCount(winners);
+            long share = amount / count;
+            long odd = amount % count;
+            for (int i = 0, seat = dealerSeat; i < count; i++) {
+                seat = Seats.next(seat, winners);
+                payouts[seat] += share + (odd-- > 0 ? 1 : 0);
+            }
+        }
+        return payouts;
+    }
+
+    /**
+     * Split the layer containing a new all-in level in two, the upper part becomes a side pot.
+     *
+     * @param long level
+     */
+    private void cap(long level) {
+        long lo = 0;
+        int k = 0;
+        while (k < layers && caps[k] < level) {
+            lo = caps[k];
+            k++;
+        }
+        if (k == layers || caps[k] == level) return;
+        long below = 0;
+        int reachedBelow = 0;
+        int reachedAbove = 0;
+        for (int seat = 0; seat < contributed.length; seat++) {
+            long c = contributed[seat];
+            if (c <= lo) continue;
+            below += Math.min(c, level) - lo;
+            if (c >= level) reachedBelow |= 1 << seat;
+            if (caps[k] == OPEN ? c > level : c >= caps[k]) reachedAbove |= 1 << seat;
+        }
+        int n = layers - k;
+        System.arraycopy(caps, k, caps, k + 1, n);
+        System.arraycopy(amounts, k, amounts, k + 1, n);
+        System.arraycopy(reached, k, reached, k + 1, n);
+        caps[k] = level;
+        amounts[k + 1] = amounts[k] - below;
+        amounts[k] = below;
+        reached[k] = reachedBelow;
+        reached[k + 1] = reachedAbove;
+        layers++;
+    }
+
+    @Override
+    public String toString() {
+        List<Pot> pots = getPots();
+        StringBuilder data = new StringBuilder("[");
+        for (int i = 0; i < pots.size(); i++) {
+            if (i > 0) data.append(",");
+            data.append(pots.get(i));
+        }
+        return data.append("]").toString();
+    }
+
+    /**
+     * A pot and the seats which can win it.
+     */
+    public static final class Pot {
+        private final long amount;
+        private final int eligible;
+
+        Pot(long amount, int eligible) {
+            this.amount = amount;
+            this.eligible = eligible;
+        }
+
+        /**
+         * Return the chips in the pot.
+         *
+         * @return long amount
+         */
+        public long getAmount() {
+            return amount;
+        }
+
+        /**
+         * Return the mask of the seats which can win the pot.
+         *
+         * @return int mask of seats
+         */
+        public int getEligible() {
+            return eligible;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder data = new StringBuilder("{\"amount\":" + amount + ",\"seats\":[");
+            for (int m = eligible; m != 0; m &= m - 1) {
+                data.append(Integer.numberOfTrailingZeros(m));
+                if ((m & (m - 1)) != 0) data.append(",");
+            }
+            return data.append("]}").toString();
+        }
+    }
+}
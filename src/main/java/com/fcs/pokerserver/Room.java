@@ -20,13 +20,15 @@ THE SOFTWARE.
 
 package com.fcs.pokerserver;
 
-import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
+import com.fcs.pokerserver.automation.TableExecutor;
 import com.fcs.pokerserver.events.AbstractGameEvent;
 import com.fcs.pokerserver.events.AbstractRoomEvent;
+import com.fcs.pokerserver.events.EndGameEvent;
 import com.fcs.pokerserver.events.GameActRoomEvent;
 import com.fcs.pokerserver.events.GameAction;
 import com.fcs.pokerserver.events.GameListener;
@@ -34,27 +36,37 @@ import com.fcs.pokerserver.events.RoomAction;
 import com.fcs.pokerserver.events.RoomListener;
 import com.fcs.pokerserver.events.RoundGameEvent;
 import com.fcs.pokerserver.events.VisitRoomEvent;
+import com.fcs.pokerserver.history.SnapshotStore;
 import com.google.common.base.Joiner;
 
-import javax.management.MBeanServer;
-import javax.management.ObjectName;
 import javax.sql.rowset.Joinable;
 
 /**
  * An instance of the Room class is created Room when user want to play Poker Game.
+ * The room and its games are not thread-safe: every change coming from another thread (requests, timeouts,
+ * JMX) goes through {@link #execute(Runnable)}, {@link #run(Runnable)} or {@link #call(Callable)}, which run it
+ * on the {@link TableExecutor} loop of the room.
  *
  * @category com > fcs > pokerserver
  */
 
 public class Room implements GameListener, RoomMBean {
+    public static final String TABLE_SIZE_PROPERTY = "pokerserver.table.size";
+    public static final int DEFAULT_TABLE_SIZE = 8;
+
     private Game currentGame = null;
     private long RoomID;
     private Player master;
     private BlindLevel blindLevel;
+    private int tableSize;
+    private final TableState state = new TableState();
 
     private List<Player> listPlayer = new ArrayList<Player>();
 
     private List<RoomListener> listeners = new ArrayList<RoomListener>();
+    private List<GameListener> gameListeners = new ArrayList<GameListener>();
+    private SnapshotStore snapshots = null;
+    private final Deck deck = new Deck();
 
     public Player getMaster() {
         return master;
@@ -69,6 +81,33 @@ public class Room implements GameListener, RoomMBean {
         this.listeners.add(rl);
     }
 
+    /**
+     * The method to add a listener to every game of this Room, the current one included. The listeners hear the
+     * events of a game before the Room does, in the order they were added.
+     *
+     * @param GameListener gl
+     */
+    public void addGameListener(GameListener gl) {
+        if (this.gameListeners.contains(gl)) return;
+        this.gameListeners.add(gl);
+        if (this.currentGame != null) this.currentGame.addGameListener(this.gameListeners.size() - 1, gl);
+    }
+
+    /**
+     * The method to set the store which keeps the snapshot of this Room for the crash recovery, null for none.
+     * The Room is captured at once.
+     *
+     * @param SnapshotStore snapshots
+     */
+    public void setSnapshotStore(SnapshotStore snapshots) {
+        this.snapshots = snapshots;
+        this.capture();
+    }
+
+    private void capture() {
+        if (this.snapshots != null) this.snapshots.capture(this);
+    }
+
     /**
      * The method fire a RoomEvent to all listener.
      */
@@ -79,9 +118,49 @@ public class Room implements GameListener, RoomMBean {
         }
     }
 
+    /**
+     * Queue a task on the loop of the room and return at once.
+     *
+     * @param Runnable task
+     */
+    public void execute(Runnable task) {
+        TableExecutor.getInstance().execute(this.RoomID, task);
+    }
+
+    /**
+     * Run a task on the loop of the room and wait for it to finish.
+     *
+     * @param Runnable task
+     */
+    public void run(Runnable task) {
+        TableExecutor.getInstance().call(this.RoomID, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a task on the loop of the room and return its result.
+     *
+     * @param Callable<T> task
+     * @return T result of the task
+     */
+    public <T> T call(Callable<T> task) {
+        return TableExecutor.getInstance().call(this.RoomID, task);
+    }
+
+    /**
+     * Return true if the current thread is the loop of the room.
+     *
+     * @return boolean
+     */
+    public boolean isInLoop() {
+        return TableExecutor.getInstance().inLoop(this.RoomID);
+    }
+
     /**
      * The method to add the Player to the room.
-     * The player is also added to game if  current GameStatus is NOT_STARTED and game's player size less than 8 players
+     * The player is also added to game if  current GameStatus is NOT_STARTED and the game has a free seat
      *
      * @param Player p
      */
@@ -93,7 +172,7 @@ public class Room implements GameListener, RoomMBean {
         p.buyChip(1000);
         p.setCurrentRoom(this);
 
-        if (this.currentGame.getStatus() == GameStatus.NOT_STARTED && this.currentGame.getListPlayer().size() < 8) {
+        if (this.currentGame.getStatus() == GameStatus.NOT_STARTED && !this.currentGame.getSeats().isFull()) {
 
             this.currentGame.addPlayer(p);
         } else {
@@ -105,6 +184,28 @@ public class Room implements GameListener, RoomMBean {
         re.setP(p);
 
         this.fireEvent(re);
+        this.capture();
+    }
+
+    /**
+     * The method to bring back a Player after a restart, with the chips he had at the table and on his seat if it is
+     * free. No chip is bought and no event is fired.
+     *
+     * @param Player p, int seat
+     */
+    public void restorePlayer(Player p, int seat) {
+        if (listPlayer.contains(p)) return;
+        this.listPlayer.add(p);
+        p.setCurrentRoom(this);
+        p.setSittingOut(false);
+        if (this.currentGame.getSeats().seatOf(p) >= 0) return;
+        if (!this.currentGame.seatPlayer(p, seat)) {
+            if (this.currentGame.getSeats().isFull()) {
+                p.setSittingOut(true);
+            } else {
+                this.currentGame.addPlayer(p);
+            }
+        }
     }
 
     public void removePlayer(Player p) {
@@ -128,6 +229,7 @@ public class Room implements GameListener, RoomMBean {
         re.setType(RoomAction.PLAYERLEFT);
         re.setP(p);
         this.fireEvent(re);
+        this.capture();
     }
 
 
@@ -203,6 +305,15 @@ public class Room implements GameListener, RoomMBean {
         this.master = master;
     }
 
+    /**
+     * Return the number of seats at the table of the room.
+     *
+     * @return int tableSize
+     */
+    public int getTableSize() {
+        return tableSize;
+    }
+
     /**
      * Return the Blind Level of the Player
      *
@@ -212,6 +323,24 @@ public class Room implements GameListener, RoomMBean {
         return blindLevel;
     }
 
+    /**
+     * Return the Deck of this Room, put back in order and shuffled by every new Game.
+     *
+     * @return Deck deck
+     */
+    public Deck getDeck() {
+        return deck;
+    }
+
+    /**
+     * Return the versioned state of the table the clients follow.
+     *
+     * @return TableState state
+     */
+    public TableState getState() {
+        return state;
+    }
+
     /**
      * The method to set the Blind Level for the Player
      *
@@ -231,13 +360,37 @@ public class Room implements GameListener, RoomMBean {
      * Add master into new Room, then create new game and add master into new game too.
      **/
     public Room(Player master, BlindLevel blindLevel) {
+        this(master, blindLevel, Integer.getInteger(TABLE_SIZE_PROPERTY, DEFAULT_TABLE_SIZE));
+    }
+
+    /**
+     * Add master into new Room with the given number of seats.
+     *
+     * @param Player master, BlindLevel blindLevel, int tableSize
+     * @throws IllegalArgumentException if the table size is not between 2 and {@link Seats#MAX_SEATS}
+     */
+    public Room(Player master, BlindLevel blindLevel, int tableSize) {
+        this(System.currentTimeMillis(), master, blindLevel, tableSize);
+        this.addPlayer(master);
+    }
+
+    /**
+     * Bring back a Room with its id after a restart. The master is not added to the room, the players come back with
+     * {@link #restorePlayer(Player, int)}.
+     *
+     * @param long roomId, Player master, BlindLevel blindLevel, int tableSize
+     * @throws IllegalArgumentException if the table size is not between 2 and {@link Seats#MAX_SEATS}
+     */
+    public Room(long roomId, Player master, BlindLevel blindLevel, int tableSize) {
+        if (tableSize < 2 || tableSize > Seats.MAX_SEATS) {
+            throw new IllegalArgumentException("Table size must be between 2 and " + Seats.MAX_SEATS + ": " + tableSize);
+        }
         this.master = master;
         this.blindLevel = blindLevel;
+        this.tableSize = tableSize;
 
-        this.RoomID = System.currentTimeMillis();
-        this.createNewGame();
-        this.addPlayer(master);
-        registerMBean();
+        this.RoomID = roomId;
+        this.createGame(false);
     }
 
     /**
@@ -246,18 +399,30 @@ public class Room implements GameListener, RoomMBean {
      * @return Game currentGame
      */
     public Game createNewGame() {
+        return this.createGame(true);
+    }
+
+    /**
+     * Create the new Game in the Room, with the master at the table or not.
+     *
+     * @param boolean seatMaster
+     * @return Game currentGame
+     */
+    private Game createGame(boolean seatMaster) {
         if (this.currentGame != null && this.currentGame.getStatus() != GameStatus.END_HAND) {
             return this.currentGame;
         }
 
         this.currentGame = new Game(this);
+        for (GameListener gl : gameListeners) this.currentGame.addGameListener(gl);
         this.currentGame.addGameListener(this);
-        this.currentGame.addPlayer(this.master);
+        if (seatMaster) this.currentGame.addPlayer(this.master);
 
         //TODO not good because game event should fire from game
         GameActRoomEvent re = new GameActRoomEvent(this);
         re.setE(new RoundGameEvent(this.currentGame, GameAction.CREATED));
         this.fireEvent(re);
+        this.capture();
         return this.currentGame;
     }
 
@@ -269,66 +434,46 @@ public class Room implements GameListener, RoomMBean {
     public Game nextGame() {
         assert this.currentGame.getStatus() == GameStatus.END_HAND;
         Game previous_Game = this.currentGame;
-        Player previous_dealer = previous_Game.getDealer();
-        int previous_dealer_index = previous_Game.getDealer_index();
         if (this.currentGame != null && this.currentGame.getStatus() != GameStatus.END_HAND) {
             return this.currentGame;
         }
-        List<Player> newListPlayer = new ArrayList<>();
         this.currentGame = new Game(this);
+        for (GameListener gl : gameListeners) this.currentGame.addGameListener(gl);
         this.currentGame.addGameListener(this);
         /**
-         * Prioritize players who are currently playing, will be added first into new game players list.
+         * Players still in the room keep their seat, the folded ones are back in the hand.
          * */
-        for (Player p : previous_Game.getListPlayer()) {
-            if (!p.isSittingOut()) {
-                newListPlayer.add(p);
-            }
+        Seats previousSeats = previous_Game.getSeats();
+        for (int m = previousSeats.getOccupied(); m != 0; m &= m - 1) {
+            int seat = Integer.numberOfTrailingZeros(m);
+            Player p = previousSeats.get(seat);
+            if (!listPlayer.contains(p)) continue;
+            // seated first, so the sitting out flag is cleared on the new game and not on the finished one
+            currentGame.seatPlayer(p, seat);
+            p.setSittingOut(false);
         }
         /**
-         * Add the remaining Player in room.
+         * The remaining Players in room take the free seats.
          * */
+        Seats seats = currentGame.getSeats();
         for (Player p : listPlayer) {
-            if (newListPlayer.size() >= 8) break;
-            if (!newListPlayer.contains(p)) {
-                p.setSittingOut(false);
-                newListPlayer.add(p);
+            if (seats.isFull()) break;
+            if (seats.seatOf(p) < 0) {
+                currentGame.addPlayer(p);
+                if (seats.seatOf(p) >= 0) p.setSittingOut(false);
             }
         }
-        this.currentGame.setListPlayer(newListPlayer);
-        /**
-         * Set new dealer for new Game
-         * In case dealer has not quit yet.
-         * */
-
-        if (currentGame.getListPlayer().contains(previous_dealer)) {
-            Player newDealer = currentGame.getNextPlayer(previous_dealer);
-            System.out.println(newDealer);
-            currentGame.setDealer(newDealer);
-
-        }
         /**
-         * In case previous dealer did quit. New Dealer will lie on next index of prev_dealer.
-         * In case next game got less players than prev-game. Dealer will be set by the index 0.
-         * **/
-        else if (previous_dealer_index < 8) {
-            try {
-                currentGame.setDealer(currentGame.getListPlayer().get(previous_dealer_index + 1));
-            } catch (IndexOutOfBoundsException e) {
-                currentGame.setDealer(currentGame.getListPlayer().get(0));
-            }
-        } else if (previous_dealer_index == 8) currentGame.setDealer(currentGame.getListPlayer().get(0));
-
-
-        /**
-         * In case prev-dealer did stay on the last position. The new dealer will be set by index 0
+         * The dealer button moves to the next taken seat, whether the previous dealer is still there or not.
          * */
-
+        int dealerSeat = Seats.next(previous_Game.getDealer_index(), seats.getOccupied());
+        if (dealerSeat >= 0) currentGame.setDealer(seats.get(dealerSeat));
 
         //TODO not good because game event should fire from game
         GameActRoomEvent re = new GameActRoomEvent(this);
         re.setE(new RoundGameEvent(this.currentGame, GameAction.CREATED));
         this.fireEvent(re);
+        this.capture();
         return this.currentGame;
     }
 
@@ -351,24 +496,16 @@ public class Room implements GameListener, RoomMBean {
     }
 
     /**
-     * Send all event to the room topic
+     * Send all event to the room topic, the chips of the table are snapshot when a hand starts and when it ends.
      **/
     @Override
     public void actionPerformed(AbstractGameEvent event) {
         GameActRoomEvent re = new GameActRoomEvent(this);
         re.setE(event);
         this.fireEvent(re);
-    }
-
-    public void registerMBean() {
-        try {
-            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
-            ObjectName name = new ObjectName("com.fcs.pokerserver:type=Room,id=" + this.RoomID);
-            mbs.registerMBean(this, name);
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (event instanceof EndGameEvent || event.getType() == GameAction.WAITTING) {
+            this.capture();
         }
-
     }
 
     @Override
@@ -378,8 +515,10 @@ public class Room implements GameListener, RoomMBean {
 
     @Override
     public void jmx_kickPlayer(String id) {
-        Player pl = this.listPlayer.stream().filter(p -> id.equals(p.getId())).findFirst().orElse(null);
-        if (pl != null) this.listPlayer.remove(pl);
+        this.run(() -> {
+            Player pl = this.listPlayer.stream().filter(p -> id.equals(p.getId())).findFirst().orElse(null);
+            if (pl != null) this.listPlayer.remove(pl);
+        });
     }
 
     @Override
@@ -389,7 +528,9 @@ public class Room implements GameListener, RoomMBean {
 
     @Override
     public void jmx_setMaster(String id) {
-        Player pl = this.listPlayer.stream().filter(p -> id.equals(p.getId())).findFirst().orElse(null);
-        if (pl != null) this.master = pl;
+        this.run(() -> {
+            Player pl = this.listPlayer.stream().filter(p -> id.equals(p.getId())).findFirst().orElse(null);
+            if (pl != null) this.master = pl;
+        });
     }
 }
@@ -0,0 +1,310 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * The seats of a table: a fixed array of players with one bit per seat in the occupied, folded and all-in masks.
+ * Turn order, blinds and the dealer button come from bit operations on these masks, so finding the next seat
+ * never scans the table nor allocates. A table has at most {@link #MAX_SEATS} seats.
+ *
+ * @category com > fcs > pokerserver
+ */
+public class Seats {
+
+    public static final int MAX_SEATS = 32;
+
+    private final Player[] players;
+    private final int allSeats;
+    private int occupied;
+    private int folded;
+    private int allIn;
+    private final List<Player> view = new SeatList();
+
+    /**
+     * Create the empty seats of a table.
+     *
+     * @param int size number of seats
+     * @throws IllegalArgumentException if the size is not between 2 and {@link #MAX_SEATS}
+     */
+    public Seats(int size) {
+        if (size < 2 || size > MAX_SEATS) {
+            throw new IllegalArgumentException("Table size must be between 2 and " + MAX_SEATS + ": " + size);
+        }
+        this.players = new Player[size];
+        this.allSeats = size == MAX_SEATS ? -1 : (1 << size) - 1;
+    }
+
+    /**
+     * Return the next seat after the given one, going round the table, with its bit set in the mask.
+     * The seat itself is returned last, when it is the only one in the mask.
+     *
+     * @param int seat, int mask
+     * @return int seat or -1 if the mask is empty
+     */
+    public static int next(int seat, int mask) {
+        // seats above the given one first, then wrap around from seat 0
+        int after = seat >= MAX_SEATS - 1 ? 0 : mask & (-2 << seat);
+        if (after != 0) return Integer.numberOfTrailingZeros(after);
+        if (mask != 0) return Integer.numberOfTrailingZeros(mask);
+        return -1;
+    }
+
+    /**
+     * Return the number of seats of the table.
+     *
+     * @return int size
+     */
+    public int size() {
+        return players.length;
+    }
+
+    /**
+     * Return the number of seated players.
+     *
+     * @return int count
+     */
+    public int count() {
+        return Integer.bitCount(occupied);
+    }
+
+    /**
+     * Return true if every seat is taken.
+     *
+     * @return boolean
+     */
+    public boolean isFull() {
+        return occupied == allSeats;
+    }
+
+    /**
+     * Return the player on a seat.
+     *
+     * @param int seat
+     * @return Player or null if the seat is empty
+     */
+    public Player get(int seat) {
+        return players[seat];
+    }
+
+    /**
+     * Return the seat of a player.
+     *
+     * @param Player p
+     * @return int seat or -1 if the player is not seated
+     */
+    public int seatOf(Player p) {
+        if (p == null) return -1;
+        int seat = p.getSeat();
+        if (seat >= 0 && seat < players.length && players[seat] == p) return seat;
+        // the player took another seat at another table since
+        for (int m = occupied; m != 0; m &= m - 1) {
+            int s = Integer.numberOfTrailingZeros(m);
+            if (players[s] == p) return s;
+        }
+        return -1;
+    }
+
+    /**
+     * Seat a player on the lowest free seat.
+     *
+     * @param Player p
+     * @return int seat or -1 if the table is full
+     */
+    public int sit(Player p) {
+        int seat = seatOf(p);
+        if (seat >= 0) return seat;
+        if (isFull()) return -1;
+        seat = Integer.numberOfTrailingZeros(~occupied);
+        sit(p, seat);
+        return seat;
+    }
+
+    /**
+     * Seat a player on a given seat.
+     *
+     * @param Player p, int seat
+     * @return boolean false if the seat does not exist or is taken
+     */
+    public boolean sit(Player p, int seat) {
+        if (seat < 0 || seat >= players.length || players[seat] != null) return false;
+        players[seat] = p;
+        int bit = 1 << seat;
+        occupied |= bit;
+        folded = p.isSittingOut() ? folded | bit : folded & ~bit;
+        allIn &= ~bit;
+        p.setSeat(seat);
+        return true;
+    }
+
+    /**
+     * Free the seat of a player.
+     *
+     * @param Player p
+     * @return boolean false if the player was not seated
+     */
+    public boolean leave(Player p) {
+        int seat = seatOf(p);
+        if (seat < 0) return false;
+        players[seat] = null;
+        int bit = ~(1 << seat);
+        occupied &= bit;
+        folded &= bit;
+        allIn &= bit;
+        return true;
+    }
+
+    /**
+     * Free every seat.
+     */
+    public void clear() {
+        for (int m = occupied; m != 0; m &= m - 1) {
+            players[Integer.numberOfTrailingZeros(m)] = null;
+        }
+        occupied = folded = allIn = 0;
+    }
+
+    /**
+     * Mark a seat as folded or back in the hand.
+     *
+     * @param int seat, boolean value
+     */
+    public void setFolded(int seat, boolean value) {
+        folded = value ? folded | (1 << seat) & occupied : folded & ~(1 << seat);
+    }
+
+    /**
+     * Mark a seat as all-in or not.
+     *
+     * @param int seat, boolean value
+     */
+    public void setAllIn(int seat, boolean value) {
+        allIn = value ? allIn | (1 << seat) & occupied : allIn & ~(1 << seat);
+    }
+
+    /**
+     * Return the mask of taken seats.
+     *
+     * @return int mask
+     */
+    public int getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Return the mask of seats which folded or sit out.
+     *
+     * @return int mask
+     */
+    public int getFolded() {
+        return folded;
+    }
+
+    /**
+     * Return the mask of seats which are all-in.
+     *
+     * @return int mask
+     */
+    public int getAllIn() {
+        return allIn;
+    }
+
+    /**
+     * Return the mask of seats still in the hand.
+     *
+     * @return int mask
+     */
+    public int getActive() {
+        return occupied & ~folded;
+    }
+
+    /**
+     * Return the mask of seats still in the hand which can act, that is not all-in.
+     *
+     * @return int mask
+     */
+    public int getCanAct() {
+        return occupied & ~folded & ~allIn;
+    }
+
+    /**
+     * Return the seated players in seat order, as a list backed by the seats.
+     * Adding to the list seats the player on the lowest free seat and removing from it frees the seat.
+     *
+     * @return List<Player> players
+     */
+    public List<Player> asList() {
+        return view;
+    }
+
+    private class SeatList extends AbstractList<Player> {
+        @Override
+        public Player get(int index) {
+            if (index < 0) throw new IndexOutOfBoundsException("Index: " + index);
+            int m = occupied;
+            for (int i = 0; i < index && m != 0; i++) m &= m - 1;
+            if (m == 0) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            return players[Integer.numberOfTrailingZeros(m)];
+        }
+
+        @Override
+        public int size() {
+            return count();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Player && seatOf((Player) o) >= 0;
+        }
+
+        @Override
+        public boolean add(Player p) {
+            if (seatOf(p) >= 0 || sit(p) < 0) throw new IllegalStateException("No free seat for " + p.getId());
+            modCount++;
+            return true;
+        }
+
+        /**
+         * A player is always seated on the lowest free seat, never at a list index.
+         */
+        @Override
+        public void add(int index, Player p) {
+            throw new UnsupportedOperationException("Players are seated on the lowest free seat, use add(Player)");
+        }
+
+        @Override
+        public Player remove(int index) {
+            Player p = get(index);
+            leave(p);
+            modCount++;
+            return p;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof Player) || !leave((Player) o)) return false;
+            modCount++;
+            return true;
+        }
+    }
+}
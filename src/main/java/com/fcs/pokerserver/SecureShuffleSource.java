@@ -0,0 +1,103 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Default {@link ShuffleSource}: one SHA1PRNG generator per thread, so tables never contend on a shared generator.
+ * Each generator is seeded from a pooled {@link SecureRandom} backed by the operating system, and reseeded from it
+ * after {@link #RESEED_INTERVAL} numbers.
+ *
+ * @category com > fcs > pokerserver
+ */
+public class SecureShuffleSource implements ShuffleSource {
+
+    public static final int RESEED_INTERVAL = 1 << 20;
+    private static final int SEED_BYTES = 32;
+
+    private static final SecureShuffleSource instance = new SecureShuffleSource();
+
+    private final SecureRandom pool = new SecureRandom();
+
+    private final ThreadLocal<Generator> generators = ThreadLocal.withInitial(Generator::new);
+
+    /**
+     * Return the shared SecureShuffleSource.
+     *
+     * @return SecureShuffleSource instance
+     */
+    public static SecureShuffleSource getInstance() {
+        return instance;
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        Generator generator = generators.get();
+        if (--generator.left < 0) {
+            generator.random.setSeed(seed());
+            generator.left = RESEED_INTERVAL;
+        }
+        return generator.random.nextInt(bound);
+    }
+
+    /**
+     * Return a new seed for a {@link SeededShuffleSource}, drawn from the generator of the thread.
+     *
+     * @return byte[] seed
+     */
+    public byte[] nextSeed() {
+        Generator generator = generators.get();
+        if (--generator.left < 0) {
+            generator.random.setSeed(seed());
+            generator.left = RESEED_INTERVAL;
+        }
+        byte[] seed = new byte[SEED_BYTES];
+        generator.random.nextBytes(seed);
+        return seed;
+    }
+
+    private byte[] seed() {
+        byte[] seed = new byte[SEED_BYTES];
+        // nextBytes never blocks once the pool is seeded, unlike generateSeed
+        pool.nextBytes(seed);
+        return seed;
+    }
+
+    /**
+     * The generator of one thread.
+     */
+    private class Generator {
+        private final SecureRandom random;
+        private int left = RESEED_INTERVAL;
+
+        Generator() {
+            try {
+                random = SecureRandom.getInstance("SHA1PRNG");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            // seeding before the first use replaces the self seeding of SHA1PRNG
+            random.setSeed(seed());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * {@link ShuffleSource} of a single hand: a SHA1PRNG generator which only uses the seed it is given, so the same seed
+ * always shuffles the deck in the same order. The seeds are drawn from {@link SecureShuffleSource#nextSeed()}, which
+ * keeps the hands unpredictable while a recorded seed is enough to replay one.
+ *
+ * @category com > fcs > pokerserver
+ */
+public class SeededShuffleSource implements ShuffleSource {
+
+    private final byte[] seed;
+    private final SecureRandom random;
+
+    /**
+     * Create new the SeededShuffleSource with its seed.
+     *
+     * @param byte[] seed
+     */
+    public SeededShuffleSource(byte[] seed) {
+        this.seed = seed.clone();
+        try {
+            random = SecureRandom.getInstance("SHA1PRNG");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // seeding before the first use replaces the self seeding of SHA1PRNG
+        random.setSeed(this.seed);
+    }
+
+    @Override
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    /**
+     * Return the seed of the source.
+     *
+     * @return byte[] seed a new array
+     */
+    public byte[] getSeed() {
+        return seed.clone();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Append-only audit log of the cards dealt in every {@link Game}.
+ * One line per game, recorded as soon as the hole cards are dealt, holds the game and room ids, the players in
+ * dealing order and the hex seed of the {@link SeededShuffleSource} of the hand, which is enough to replay the hand
+ * exactly with {@link #replay(String)}. The table loop only builds the line, the "shuffle-audit-writer" thread writes it.
+ * The file is set with the {@code pokerserver.shuffle.audit} system property (a {@link FileHandler} pattern,
+ * {@code %h/pokerserver-shuffle-audit.log} by default) and is never rotated.
+ *
+ * @category com > fcs > pokerserver
+ */
+public class ShuffleAuditLog {
+
+    public static final String AUDIT_FILE_PROPERTY = "pokerserver.shuffle.audit";
+
+    private static volatile ShuffleAuditLog instance;
+
+    private final Logger audit = Logger.getLogger(ShuffleAuditLog.class.getName());
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "shuffle-audit-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ShuffleAuditLog() {
+        String pattern = System.getProperty(AUDIT_FILE_PROPERTY, "%h" + File.separator + "pokerserver-shuffle-audit.log");
+        audit.setUseParentHandlers(false);
+        audit.setLevel(Level.INFO);
+        try {
+            FileHandler handler = new FileHandler(pattern, true);
+            handler.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord record) {
+                    return record.getMillis() + " " + record.getMessage() + System.lineSeparator();
+                }
+            });
+            audit.addHandler(handler);
+        } catch (IOException e) {
+            // keep the games running, the audit lines go to the server log instead
+            Logger.getLogger(Game.class.getName()).log(Level.SEVERE, "Cannot open shuffle audit log " + pattern, e);
+            audit.setUseParentHandlers(true);
+        }
+    }
+
+    /**
+     * Return the audit log.
+     *
+     * @return ShuffleAuditLog instance
+     */
+    public static ShuffleAuditLog getInstance() {
+        ShuffleAuditLog log = instance;
+        if (log == null) {
+            synchronized (ShuffleAuditLog.class) {
+                log = instance;
+                if (log == null) {
+                    log = new ShuffleAuditLog();
+                    instance = log;
+                }
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Record the seed the deck of a game is shuffled with. Runs on the table loop, the line is written later.
+     *
+     * @param Game game
+     */
+    public void record(Game game) {
+        StringBuilder line = new StringBuilder("game=").append(game.getId());
+        line.append(" room=").append(game.getRoom() != null ? game.getRoom().getRoomID() : -1);
+        line.append(" players=");
+        List<Player> players = game.getListPlayer();
+        for (int i = 0; i < players.size(); i++) {
+            if (i > 0) line.append(",");
+            line.append(players.get(i).getId());
+        }
+        line.append(" seed=");
+        ShuffleSource source = game.getDeck().getSource();
+        if (source instanceof SeededShuffleSource) {
+            for (byte b : ((SeededShuffleSource) source).getSeed()) {
+                line.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+        } else {
+            // a deck without a seed cannot be replayed
+            line.append("none");
+        }
+        String text = line.toString();
+        writer.execute(() -> audit.info(text));
+    }
+
+    /**
+     * Wait for the lines recorded so far to be written.
+     *
+     * @param long timeoutMillis
+     * @return boolean true if they are all written
+     */
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        writer.execute(done::countDown);
+        return done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Return a deck which deals the cards of a recorded hand in the same order.
+     *
+     * @param String seed the hex seed of the audit line
+     * @return Deck deck
+     * @throws IllegalArgumentException if the seed is not hex
+     */
+    public static Deck replay(String seed) {
+        if (seed.length() % 2 != 0) throw new IllegalArgumentException("Odd length seed " + seed);
+        byte[] bytes = new byte[seed.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(seed.charAt(2 * i), 16);
+            int low = Character.digit(seed.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) throw new IllegalArgumentException("Not a hex seed " + seed);
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return new Deck(new SeededShuffleSource(bytes), true);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.fcs.pokerserver.holder.Board;
+
+/**
+ * The versioned state of a table, as the clients see it. The state is a set of fields, each a json value: the room,
+ * the fields of the current game and one field per taken seat. Every update which changes a field makes a new
+ * version, published as a delta of the fields set or removed since the previous version; every
+ * pokerserver.state.keyframe versions (32 by default) the version is also a keyframe, the whole state. A client which
+ * misses a version waits for the next keyframe or fetches the current one.
+ * <pre>
+ * delta    {"v":12,"base":11,"set":{"potBalance":60,"seat.1":{...}},"del":["seat.3"]}
+ * keyframe {"v":12,"state":{"room":{...},"id":...,"seat.0":{...}}}
+ * </pre>
+ * Only the loop of the room updates its state, the keyframe may be read from any thread.
+ *
+ * @category com > fcs > pokerserver
+ */
+public class TableState {
+    public static final String KEYFRAME_PROPERTY = "pokerserver.state.keyframe";
+
+    private final int keyframeInterval;
+    private Map<String, String> fields = new LinkedHashMap<String, String>();
+    private Map<String, Object> keys = new HashMap<String, Object>();
+    private long version = 0;
+    private long keyframeVersion = 0;
+    private String keyframe = null;
+
+    /**
+     * The constructor with the keyframe interval of the pokerserver.state.keyframe property.
+     */
+    public TableState() {
+        this(Integer.getInteger(KEYFRAME_PROPERTY, 32));
+    }
+
+    /**
+     * The constructor with the number of versions between two keyframes.
+     *
+     * @param int keyframeInterval
+     */
+    public TableState(int keyframeInterval) {
+        if (keyframeInterval < 1) throw new IllegalArgumentException("Keyframe interval must be positive: " + keyframeInterval);
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Take the state of a room and return the delta from the previous version, or null if nothing changed.
+     * The json of a field is only built again when the values it is made of changed.
+     *
+     * @param Room room
+     * @return String delta
+     */
+    public synchronized String update(Room room) {
+        Map<String, String> current = new LinkedHashMap<String, String>();
+        Map<String, Object> currentKeys = new HashMap<String, Object>();
+        StringBuilder set = new StringBuilder();
+        collect(room, (name, key, json) -> {
+            String value = key.equals(keys.get(name)) ? fields.get(name) : json.get();
+            current.put(name, value);
+            currentKeys.put(name, key);
+            if (value.equals(fields.get(name))) return;
+            if (set.length() > 0) set.append(",");
+            set.append("\"").append(name).append("\":").append(value);
+        });
+        List<String> removed = new ArrayList<String>();
+        for (String name : fields.keySet()) {
+            if (!current.containsKey(name)) removed.add("\"" + name + "\"");
+        }
+        this.keys = currentKeys;
+        if (set.length() == 0 && removed.isEmpty()) return null;
+
+        this.fields = current;
+        this.version++;
+        this.keyframe = null;
+        if (version == 1 || version - keyframeVersion >= keyframeInterval) keyframeVersion = version;
+        return "{\"v\":" + version + ",\"base\":" + (version - 1) + ",\"set\":{" + set + "},\"del\":" + removed + "}";
+    }
+
+    /**
+     * Return true if the current version is a keyframe, to be published whole.
+     *
+     * @return boolean keyframe
+     */
+    public synchronized boolean isKeyframe() {
+        return version > 0 && version == keyframeVersion;
+    }
+
+    /**
+     * Return the whole state of the current version.
+     *
+     * @return String keyframe
+     */
+    public synchronized String getKeyframe() {
+        if (keyframe == null) {
+            StringBuilder data = new StringBuilder("{\"v\":").append(version).append(",\"state\":{");
+            boolean first = true;
+            for (Map.Entry<String, String> field : fields.entrySet()) {
+                if (!first) data.append(",");
+                data.append("\"").append(field.getKey()).append("\":").append(field.getValue());
+                first = false;
+            }
+            keyframe = data.append("}}").toString();
+        }
+        return keyframe;
+    }
+
+    /**
+     * Return the current version, 0 before the first update.
+     *
+     * @return long version
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Return the fields of the state of a room.
+     *
+     * @param Room room
+     * @return Map<String, String> fields
+     */
+    static Map<String, String> fieldsOf(Room room) {
+        Map<String, String> fields = new LinkedHashMap<String, String>();
+        collect(room, (name, key, json) -> fields.put(name, json.get()));
+        return fields;
+    }
+
+    /**
+     * Give each field of the state of a room to a sink, with the values its json is made of as a key.
+     *
+     * @param Room room, FieldSink sink
+     */
+    private static void collect(Room room, FieldSink sink) {
+        sink.field("room", Arrays.asList(room.getRoomID(), room.getListPlayer().size(), room.getBlindLevel(), room.getMaster()),
+                room::toString);
+        Game game = room.getCurrentGame();
+        if (game == null) return;
+        sink.field("id", game.getId(), () -> String.valueOf(game.getId()));
+        sink.field("gameStatus", game.getStatus(), () -> "\"" + game.getStatus() + "\"");
+        sink.field("potBalance", game.getPotBalance(), () -> String.valueOf(game.getPotBalance()));
+        sink.field("currentRoundBet", game.getCurrentRoundBet(), () -> String.valueOf(game.getCurrentRoundBet()));
+        sink.field("dealer", keyOf(game.getDealer()), () -> idOf(game.getDealer()));
+        sink.field("smallBlind", keyOf(game.getSmallBlind()), () -> idOf(game.getSmallBlind()));
+        sink.field("bigBlind", keyOf(game.getBigBlind()), () -> idOf(game.getBigBlind()));
+        sink.field("currentPlayer", keyOf(game.getCurrentPlayer()), () -> idOf(game.getCurrentPlayer()));
+        Board board = game.getBoard();
+        sink.field("board", board == null ? -1L : board.getCardMask(), () -> boardOf(board));
+        sink.field("playersToAct", game.getPlayersToAct(), () -> String.valueOf(game.getPlayersToAct()));
+        Seats seats = game.getSeats();
+        // the pots only change with the chips in them and the seats which can win them
+        sink.field("pots", Arrays.asList(game.getId(), game.getPotBalance(), seats.getOccupied(), seats.getFolded(), seats.getAllIn()),
+                () -> String.valueOf(game.getPot()));
+        for (int m = seats.getOccupied(); m != 0; m &= m - 1) {
+            int seat = Integer.numberOfTrailingZeros(m);
+            Player p = seats.get(seat);
+            int bit = 1 << seat;
+            boolean folded = (seats.getFolded() & bit) != 0;
+            boolean allIn = (seats.getAllIn() & bit) != 0;
+            sink.field("seat." + seat, Arrays.asList(p, p.getBalance(), p.getRoundBet(), folded, allIn, p.isSittingOut()),
+                    () -> "{\"id\":\"" + p.getId() + "\",\"balance\":" + p.getBalance() + ",\"roundBet\":" + p.getRoundBet()
+                            + ",\"folded\":" + folded + ",\"allIn\":" + allIn + ",\"isSittingOut\":" + p.isSittingOut() + "}");
+        }
+    }
+
+    /**
+     * The receiver of the fields of a state: the name of the field, the values its json is made of and its json.
+     */
+    private interface FieldSink {
+        void field(String name, Object key, Supplier<String> json);
+    }
+
+    private static Object keyOf(Player p) {
+        return p == null ? "null" : p;
+    }
+
+    private static String idOf(Player p) {
+        return p == null ? "null" : "\"" + p.getId() + "\"";
+    }
+
+    private static String boardOf(Board board) {
+        return board == null ? "[]" : board.getAllCards().toString();
+    }
+}
@@ -2,16 +2,15 @@ package com.fcs.pokerserver.automation;
 
 import com.fcs.pokerserver.Game;
 import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
 
-import java.sql.Time;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.UUID;
 
-public class CountDownPlayer extends TimerTask {
+public class CountDownPlayer implements Runnable {
     private String id;
     private Player player;
     private Game currentGame;
+    private volatile TurnTimer.Timeout timeout;
 
     public CountDownPlayer(Player player, Game game) {
         id = UUID.randomUUID().toString();
@@ -27,9 +26,30 @@ public class CountDownPlayer extends TimerTask {
         return id;
     }
 
+    /**
+     * The method to set the handle under which this task was scheduled.
+     *
+     * @param TurnTimer.Timeout timeout
+     */
+    public void setTimeout(TurnTimer.Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Runs on the TurnTimer thread, the fold itself is queued on the loop of the room.
+     */
     @Override
     public void run() {
+        Room room = currentGame.getRoom();
+        if (room == null) timeout();
+        else room.execute(this::timeout);
+    }
+
+    private void timeout() {
         System.out.println("PID: " + player.getId() + " id: " + id);
+        // a fold queued before the turn ended, or before a newer turn of the same player, is stale
+        TurnTimer.Timeout handle = timeout;
+        if (handle == null || player.getTurnTimeout() != handle) return;
         if (currentGame.getCurrentPlayer() == player) {
             player.fold();
             System.out.println("IN " + id + " Player: " + player.getId() + " is folded automaticatlly!");
@@ -0,0 +1,158 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.automation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fixed set of single-threaded event loops running the tables.
+ * Every room is bound to one loop by its id, and all commands, timeouts and admin operations of the room are
+ * queued on that loop, so the state of a table is only ever changed by one thread and needs no locking.
+ * The queue of the loop is the mailbox of its rooms. The number of loops is set with the
+ * {@code pokerserver.table.threads} system property and defaults to the number of processors.
+ *
+ * @category com > fcs > pokerserver > automation
+ */
+public class TableExecutor {
+
+    public static final String THREADS_PROPERTY = "pokerserver.table.threads";
+
+    private static Logger logger = Logger.getLogger(TableExecutor.class.getName());
+
+    private static final TableExecutor instance = new TableExecutor(
+            Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Index of the loop running on the current thread, null on any other thread.
+     */
+    private static final ThreadLocal<Integer> currentLoop = new ThreadLocal<>();
+
+    private final ExecutorService[] loops;
+
+    TableExecutor(int threads) {
+        loops = new ExecutorService[Math.max(1, threads)];
+        for (int i = 0; i < loops.length; i++) {
+            final int index = i;
+            loops[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(() -> {
+                    currentLoop.set(index);
+                    r.run();
+                }, "table-loop-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Return the shared TableExecutor.
+     *
+     * @return TableExecutor instance
+     */
+    public static TableExecutor getInstance() {
+        return instance;
+    }
+
+    /**
+     * Return the number of loops.
+     *
+     * @return int loops
+     */
+    public int getLoopCount() {
+        return loops.length;
+    }
+
+    /**
+     * Return the loop index of a table.
+     *
+     * @param long tableId
+     * @return int loop index
+     */
+    public int loopOf(long tableId) {
+        // spread ids made of close timestamps over the loops
+        return Math.floorMod(Long.hashCode(tableId * 0x9E3779B97F4A7C15L), loops.length);
+    }
+
+    /**
+     * Return true if the current thread is the loop of the table.
+     *
+     * @param long tableId
+     * @return boolean
+     */
+    public boolean inLoop(long tableId) {
+        Integer loop = currentLoop.get();
+        return loop != null && loop == loopOf(tableId);
+    }
+
+    /**
+     * Queue a task on the loop of the table and return at once. Exceptions of the task are logged.
+     *
+     * @param long tableId, Runnable task
+     */
+    public void execute(long tableId, Runnable task) {
+        loops[loopOf(tableId)].execute(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.log(Level.SEVERE, "Table " + tableId + " task failed", e);
+            }
+        });
+    }
+
+    /**
+     * Run a task on the loop of the table and wait for its result. On the loop itself the task runs at once.
+     * Unchecked exceptions of the task are rethrown as they are, checked ones wrapped in a {@link CompletionException}.
+     * A loop must not wait for another loop that may be waiting for it.
+     *
+     * @param long tableId, Callable<T> task
+     * @return T result of the task
+     */
+    public <T> T call(long tableId, Callable<T> task) {
+        if (inLoop(tableId)) {
+            try {
+                return task.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }
+        Future<T> future = loops[loopOf(tableId)].submit(task);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new CompletionException(cause);
+        }
+    }
+}
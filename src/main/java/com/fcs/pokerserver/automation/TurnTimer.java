@@ -0,0 +1,202 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.automation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hashed wheel timer owning all turn deadlines of the server with a single thread.
+ * A deadline lands in one of the {@link #WHEEL_SIZE} buckets of the wheel, with the number of full turns of the
+ * wheel it still has to wait; the timer thread visits one bucket per tick. Scheduling and cancelling are a queue
+ * offer and a compare-and-set, and cancelled deadlines are dropped when their bucket is next visited.
+ * Expired tasks run on the timer thread and must be short: they should only hand the work to the table loop.
+ * The tick is set in milliseconds with the {@code pokerserver.turntimer.tick} system property (100 by default).
+ *
+ * @category com > fcs > pokerserver > automation
+ */
+public class TurnTimer {
+
+    public static final String TICK_PROPERTY = "pokerserver.turntimer.tick";
+    public static final int WHEEL_SIZE = 512;
+
+    private static Logger logger = Logger.getLogger(TurnTimer.class.getName());
+
+    private static final TurnTimer instance = new TurnTimer(Long.getLong(TICK_PROPERTY, 100));
+
+    private final long tickNanos;
+    private final long startTime = System.nanoTime();
+    private final List<Timeout>[] wheel;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private long tick;
+
+    TurnTimer(long tickMillis) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<Timeout>[] buckets = new List[WHEEL_SIZE];
+        this.wheel = buckets;
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        Thread worker = new Thread(this::work, "turn-timer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Return the shared TurnTimer.
+     *
+     * @return TurnTimer instance
+     */
+    public static TurnTimer getInstance() {
+        return instance;
+    }
+
+    /**
+     * Run a task once the delay is over, within one tick.
+     *
+     * @param Runnable task, long delayMillis
+     * @return Timeout handle to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis));
+        Timeout timeout = new Timeout(task, deadline);
+        scheduled.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Return the number of deadlines not yet expired nor dropped after a cancel.
+     *
+     * @return int scheduled deadlines
+     */
+    public int getScheduledCount() {
+        return scheduled.get();
+    }
+
+    private void work() {
+        while (true) {
+            long deadline = tickNanos * (tick + 1);
+            long sleep;
+            while ((sleep = deadline - (System.nanoTime() - startTime)) > 0) {
+                LockSupport.parkNanos(sleep);
+            }
+            transferPending();
+            expire(wheel[(int) (tick % WHEEL_SIZE)], deadline);
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.isCancelled()) {
+                scheduled.decrementAndGet();
+                continue;
+            }
+            long due = timeout.deadline / tickNanos;
+            timeout.rounds = (due - tick) / WHEEL_SIZE;
+            // a deadline already past goes to the current bucket
+            wheel[(int) (Math.max(due, tick) % WHEEL_SIZE)].add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket, long deadline) {
+        int kept = 0;
+        for (int i = 0, n = bucket.size(); i < n; i++) {
+            Timeout timeout = bucket.get(i);
+            if (timeout.isCancelled()) {
+                scheduled.decrementAndGet();
+            } else if (timeout.rounds <= 0 && timeout.deadline <= deadline) {
+                scheduled.decrementAndGet();
+                timeout.expire();
+            } else {
+                if (timeout.rounds > 0) timeout.rounds--;
+                bucket.set(kept++, timeout);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private long rounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the task if it has not run yet.
+         *
+         * @return boolean true if the task will not run
+         */
+        public boolean cancel() {
+            return state.compareAndSet(WAITING, CANCELLED);
+        }
+
+        /**
+         * Return true if the task was cancelled before it ran.
+         *
+         * @return boolean
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * Return true if the task has run.
+         *
+         * @return boolean
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(WAITING, EXPIRED)) return;
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.log(Level.SEVERE, "Turn timeout task failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.gameserver;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.googlecode.objectify.ObjectifyService.ofy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fcs.pokerserver.events.AbstractGameEvent;
+import com.fcs.pokerserver.events.AbstractRoomEvent;
+import com.fcs.pokerserver.events.GameActRoomEvent;
+import com.fcs.pokerserver.events.PlayerActionGameEvent;
+import com.fcs.pokerserver.events.PlayerBetEvent;
+import com.fcs.pokerserver.events.RoomListener;
+import com.fsc.pokerserver.web.User;
+import com.googlecode.objectify.ObjectifyService;
+
+/**
+ * Take the bets of the rooms off the balance of their users in the Datastore.
+ * The bets are seen on the loops of the rooms, which have no Objectify context and must not wait for the Datastore,
+ * so the updates run in order on one thread of their own, each one in its own Objectify context.
+ * @category com > fcs > pokerserver > gameserver
+ * */
+public class BalanceWriter implements RoomListener {
+
+	private static Logger logger = Logger.getLogger(BalanceWriter.class.getName());
+
+	private final BiConsumer<String, Long> store;
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "balance-writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The constructor which updates the users in the Datastore.
+	 * */
+	public BalanceWriter() {
+		this(BalanceWriter::debit);
+	}
+
+	/**
+	 * The constructor with the update to run for each bet, given the name of the user and the amount.
+	 * @param BiConsumer<String, Long> store
+	 * */
+	public BalanceWriter(BiConsumer<String, Long> store) {
+		this.store = store;
+	}
+
+	@Override
+	public void actionPerformed(AbstractRoomEvent event) {
+		if (!(event instanceof GameActRoomEvent)) return;
+		AbstractGameEvent ge = ((GameActRoomEvent) event).getE();
+		if (!(ge instanceof PlayerActionGameEvent) || !(((PlayerActionGameEvent) ge).getPE() instanceof PlayerBetEvent)) return;
+		PlayerBetEvent pe = (PlayerBetEvent) ((PlayerActionGameEvent) ge).getPE();
+		String name = pe.getSrc().getName();
+		long amount = pe.getAmount();
+		executor.execute(() -> {
+			try {
+				store.accept(name, amount);
+			} catch (RuntimeException e) {
+				logger.log(Level.SEVERE, "Cannot take " + amount + " off the balance of " + name, e);
+			}
+		});
+	}
+
+	/**
+	 * Wait for the updates queued so far.
+	 * @param long timeoutMillis
+	 * @return boolean true if they are all done
+	 * */
+	public boolean flush(long timeoutMillis) throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(1);
+		executor.execute(done::countDown);
+		return done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private static void debit(String name, long amount) {
+		ObjectifyService.run(() -> {
+			User user = ofy().load().type(User.class).id(name).now();
+			checkNotNull(user, "User is null when loaded from datastore!");
+			user.setBalance(user.getBalance() - amount);
+			checkNotNull(ofy().save().entity(user).now(), "Update to datastore failed!");
+			return null;
+		});
+	}
+}
@@ -0,0 +1,133 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.gameserver;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The pool of the buffers the binary frames are encoded into. A buffer is taken by the encoder and given back by the
+ * Sender once the frame is copied into the payload, so a busy server encodes without allocating. The size of the
+ * buffers comes from the pokerserver.wire.buffer property (4096 bytes by default) and at most pokerserver.wire.pool
+ * buffers (1024 by default) are kept, the others are left to the garbage collector.
+ * @category com > fcs > pokerserver > gameserver
+ * */
+public class BufferPool {
+	public static final String BUFFER_PROPERTY = "pokerserver.wire.buffer";
+	public static final String POOL_PROPERTY = "pokerserver.wire.pool";
+
+	private static volatile BufferPool instance;
+
+	private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final AtomicInteger pooled = new AtomicInteger();
+	private final AtomicLong allocations = new AtomicLong();
+	private final int bufferSize;
+	private final int maxPooled;
+
+	/**
+	 * The constructor with the size of the buffers and the number of buffers kept.
+	 * @param int bufferSize, int maxPooled
+	 * */
+	public BufferPool(int bufferSize, int maxPooled) {
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * Singleton pattern to get the BufferPool of the server.
+	 * @return BufferPool instance
+	 * */
+	public static BufferPool getInstance() {
+		if (instance == null) {
+			synchronized (BufferPool.class) {
+				if (instance == null) {
+					instance = new BufferPool(Integer.getInteger(BUFFER_PROPERTY, 4096), Integer.getInteger(POOL_PROPERTY, 1024));
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Return a cleared buffer of the pool, or a new one when the pool is empty.
+	 * @return ByteBuffer buffer
+	 * */
+	public ByteBuffer acquire() {
+		ByteBuffer buffer = buffers.poll();
+		if (buffer == null) {
+			allocations.incrementAndGet();
+			return ByteBuffer.allocate(bufferSize);
+		}
+		pooled.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Return a cleared buffer of at least the given size, the larger buffers are never pooled.
+	 * @param int size
+	 * @return ByteBuffer buffer
+	 * */
+	public ByteBuffer acquire(int size) {
+		if (size <= bufferSize) return acquire();
+		allocations.incrementAndGet();
+		return ByteBuffer.allocate(size);
+	}
+
+	/**
+	 * Give a buffer back to the pool, it must not be used afterwards.
+	 * @param ByteBuffer buffer
+	 * */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null || buffer.capacity() != bufferSize) return;
+		if (pooled.incrementAndGet() > maxPooled) {
+			pooled.decrementAndGet();
+			return;
+		}
+		buffers.offer(buffer);
+	}
+
+	/**
+	 * Return the size of the pooled buffers.
+	 * @return int bufferSize
+	 * */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Return the number of buffers waiting in the pool.
+	 * @return int pooled
+	 * */
+	public int getPooled() {
+		return pooled.get();
+	}
+
+	/**
+	 * Return the number of buffers allocated because the pool was empty or the frame was too large.
+	 * @return long allocations
+	 * */
+	public long getAllocationCount() {
+		return allocations.get();
+	}
+}
@@ -23,6 +23,7 @@ package com.fcs.pokerserver.gameserver;
 
 import java.io.InputStream;
 import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.rmi.registry.LocateRegistry;
 import java.util.ArrayList;
@@ -30,6 +31,7 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
@@ -43,7 +45,17 @@ import javax.servlet.DispatcherType;
 
 
 import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.TableState;
 import com.fcs.pokerserver.events.*;
+import com.fcs.pokerserver.history.HandArchive;
+import com.fcs.pokerserver.history.HandHistoryWriter;
+import com.fcs.pokerserver.history.SnapshotStore;
+import com.fcs.pokerserver.history.TableRecovery;
+import com.fcs.pokerserver.history.TableSnapshot;
+import com.fcs.pokerserver.jmx.GameRegistry;
+import com.fcs.pokerserver.jmx.PlayerRegistry;
+import com.fcs.pokerserver.jmx.RoomRegistry;
+import com.fcs.pokerserver.holder.HandEvaluatorFactory;
 
 import com.fsc.pokerserver.web.*;
 import com.google.common.base.Preconditions;
@@ -63,9 +75,7 @@ import org.joda.time.DateTime;
 import com.fcs.pokerserver.Player;
 import com.fcs.pokerserver.Room;
 
-import static com.google.common.base.Preconditions.checkNotNull;
 import static com.googlecode.objectify.ObjectifyService.begin;
-import static com.googlecode.objectify.ObjectifyService.ofy;
 import static com.google.common.base.Preconditions.checkArgument;
 
 
@@ -78,10 +88,18 @@ public class MqttServletGameServer implements MqttCallback, RoomListener, MqttSe
     private static MqttServletGameServer instance = null;
     private List<Player> listPlayer = new ArrayList<Player>();
     private List<Room> listRoom = new ArrayList<Room>();
+    private Map<String, Player> restoredPlayers = new ConcurrentHashMap<String, Player>();
 
     private static final String BROKER_URL = "tcp://broker.mqttdashboard.com:1883";
     private static final String SERVER_TOPIC = "/pokerserver/server";
-    private Sender sender;
+    private PublisherPool publisher;
+    private PublishPolicy policy = new PublishPolicy();
+    private WireEncoder encoder = new WireEncoder();
+    private BalanceWriter balances = new BalanceWriter();
+    private static final int TEXT_FORMAT = 1;
+    private static final int BINARY_FORMAT = 2;
+    public static final String TEXT_TOPIC_PROPERTY = "pokerserver.wire.text";
+    private final boolean textTopic = Boolean.parseBoolean(System.getProperty(TEXT_TOPIC_PROPERTY, "false"));
     private static Logger logger = Logger.getLogger(MqttServletGameServer.class.getName());
 
 
@@ -98,12 +116,16 @@ public class MqttServletGameServer implements MqttCallback, RoomListener, MqttSe
     }
 
     private MqttServletGameServer() throws Exception {
+        // load the hand evaluator while the rest of the server starts, games wait for it with isEvaluatorReady()
+        HandEvaluatorFactory.warmUp();
+        this.recoverTables();
         ServletHolder loginServlet = new ServletHolder(LoginServlet.class);
         ServletHolder registerServlet = new ServletHolder(RegisterServlet.class);
         ServletHolder roomServlet = new ServletHolder(RoomServlet.class);
         ServletHolder gameServlet = new ServletHolder(GameServlet.class);
         ServletHolder deleteUserServlet = new ServletHolder(DeleteUserServlet.class);
         ServletHolder getProfile = new ServletHolder(GetProfilePlayerServlet.class);
+        ServletHolder historyServlet = new ServletHolder(HistoryServlet.class);
 
         Server server = new Server(8080);
         MBeanContainer mbContainer = new MBeanContainer(ManagementFactory.getPlatformMBeanServer());
@@ -140,6 +162,7 @@ public class MqttServletGameServer implements MqttCallback, RoomListener, MqttSe
         context.addFilter(PokerTokenFilter.class, "/api/game", EnumSet.of(DispatcherType.REQUEST));
         context.addFilter(PokerTokenFilter.class, "/api/profile", EnumSet.of(DispatcherType.REQUEST));
         context.addFilter(PokerTokenFilter.class, "/api/logout", EnumSet.of(DispatcherType.REQUEST));
+        context.addFilter(PokerTokenFilter.class, "/api/history", EnumSet.of(DispatcherType.REQUEST));
 
         context.addServlet(loginServlet, "/api/login");
         context.addServlet(loginServlet, "/api/logout");
@@ -148,6 +171,7 @@ public class MqttServletGameServer implements MqttCallback, RoomListener, MqttSe
         context.addServlet(gameServlet, "/api/game");
         context.addServlet(deleteUserServlet, "/api/deluser");
         context.addServlet(getProfile, "/api/profile");
+        context.addServlet(historyServlet, "/api/history");
 
         logger.warning("MqttServletGameServer starting..." + ManagementFactory.getRuntimeMXBean().getName());
         try {
@@ -204,6 +228,7 @@ public class MqttServletGameServer implements MqttCallback, RoomListener, MqttSe
     public void addPlayer(Player p) {
         if (this.getListPlayer().contains(p)) return;
         this.getListPlayer().add(p);
+        PlayerRegistry.getInstance().add(p);
     }
 
     /**
@@ -212,8 +237,23 @@ public class MqttServletGameServer implements MqttCallback, RoomListener, MqttSe
 
     public void removePlayer(Player p) {
         if (!this.getListPlayer().contains(p)) return;
-        if (p.getCurrentRoom() != null) p.getCurrentRoom().removePlayer(p);
+        Room room = p.getCurrentRoom();
+        if (room != null) this.leaveRoom(room, p);
         this.getListPlayer().remove(p);
+        PlayerRegistry.getInstance().remove(p);
+    }
+
+    /**
+     * The Player leaves the Room, the room is removed from the server once the last player left.
+     *
+     * @param Room room, Player p
+     */
+    public void leaveRoom(Room room, Player p) {
+        boolean empty = room.call(() -> {
+            room.removePlayer(p);
+            return room.getListPlayer().isEmpty();
+        });
+        if (empty) this.removeRoom(room);
     }
 
     /**
@@ -225,6 +265,31 @@ public class MqttServletGameServer implements MqttCallback, RoomListener, MqttSe
         if (getListRoom().contains(r)) return;
         this.getListRoom().add(r);
         r.addRoomListener(this);
+        // the bets leave the balance of the users in the Datastore off the loop of the room
+        r.addRoomListener(balances);
+        // the room and its games are in the registries while they are on the server, as the players are
+        RoomRegistry.getInstance().add(r);
+        r.addRoomListener(GameRegistry.getInstance());
+        // the hand history, the archive and the snapshots belong to the server, a room on its own writes nothing
+        r.run(() -> {
+            r.addGameListener(HandHistoryWriter.getInstance());
+            r.addGameListener(HandArchive.getInstance());
+            r.setSnapshotStore(SnapshotStore.getInstance());
+            GameRegistry.getInstance().add(r.getCurrentGame());
+        });
+    }
+
+    /**
+     * The method to remove the room from the server, with its current game from the registries and the archive.
+     *
+     * @param Room r
+     */
+    public void removeRoom(Room r) {
+        if (!this.getListRoom().remove(r)) return;
+        RoomRegistry.getInstance().remove(r);
+        GameRegistry.getInstance().remove(r);
+        // a hand the last player walked out of never ends
+        HandArchive.getInstance().abandon(r);
     }
 
     /**
@@ -237,6 +302,32 @@ public class MqttServletGameServer implements MqttCallback, RoomListener, MqttSe
         return this.getListPlayer().stream().filter(x -> name.equals(x.getName())).findFirst().orElse(null);
     }
 
+    /**
+     * Bring back the tables of the last run from their snapshots and the hand history, before any login.
+     */
+    private void recoverTables() {
+        long start = System.currentTimeMillis();
+        List<TableSnapshot> tables = new TableRecovery(HandHistoryWriter.getDirectory()).recover();
+        for (Room room : TableRecovery.restore(tables)) {
+            this.addRoom(room);
+            for (Player p : room.getListPlayer()) {
+                restoredPlayers.put(p.getName(), p);
+                PlayerRegistry.getInstance().add(p);
+            }
+        }
+        logger.warning("Recovered " + tables.size() + " tables in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Return the Player brought back at his table by the recovery, only once, or null.
+     *
+     * @param String name
+     * @return Player p
+     */
+    public Player adoptRestoredPlayer(String name) {
+        return restoredPlayers.remove(name);
+    }
+
     /**
      * The method to get the Id of the Room.
      *
@@ -278,12 +369,17 @@ public class MqttServletGameServer implements MqttCallback, RoomListener, MqttSe
         connOpt.setCleanSession(true);
         connOpt.setKeepAliveInterval(30);
 
-        // Connect to Broker
+        // Connect to Broker, the first connection also receives the commands
         try {
-            myClient = new MqttClient(BROKER_URL, "pokerserver" + System.currentTimeMillis(), new MemoryPersistence());
-            myClient.setCallback(this);
-            myClient.connect(connOpt);
-            this.sender = new Sender(myClient);
+            String clientId = "pokerserver" + System.currentTimeMillis();
+            MqttClient[] clients = new MqttClient[PublisherPool.getConnections()];
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = new MqttClient(BROKER_URL, i == 0 ? clientId : clientId + "-" + i, new MemoryPersistence());
+                if (i == 0) clients[i].setCallback(this);
+                clients[i].connect(connOpt);
+            }
+            myClient = clients[0];
+            this.publisher = new PublisherPool(clients);
             int subQoS = 0;
             myClient.subscribe(SERVER_TOPIC, subQoS);
 
@@ -375,51 +471,98 @@ public class MqttServletGameServer implements MqttCallback, RoomListener, MqttSe
 
 
     /**
-     * Override the actionPerformed to push the message to the MqttServer
+     * Override the actionPerformed to push the message to the MqttServer.
+     * The changes of the {@link TableState} of the room go to its /delta topic and its keyframes to its /state topic,
+     * for every client. The legacy text message goes to the topic of the room only when one of its players asked for it
+     * at login or pokerserver.wire.text is true, the binary frame of the {@link WireEncoder} to its /bin topic when one
+     * of its players negotiated the binary format at login.
      *
      * @param RoomEvent event
      */
     @Override
     public void actionPerformed(AbstractRoomEvent event) {
         logger.log(Level.SEVERE, event.toString());
-        String content = "";
+
+        Room room = event.getSrc();
+        String topic = MqttServletGameServer.SERVER_TOPIC + "/room/" + room.getRoomID();
+        int formats = this.wireFormats(room, event);
+        if ((formats & TEXT_FORMAT) != 0) {
+            this.publisher.add(room.getRoomID(), topic, this.toText(event), policy.of(event));
+        }
+        if ((formats & BINARY_FORMAT) != 0) {
+            ByteBuffer frame = encoder.encode(event);
+            if (frame != null) this.publisher.add(room.getRoomID(), topic + "/bin", frame, policy.of(event));
+        }
+        /**
+         * Only the changes of the state of the table are published, the keyframes are retained so a new subscriber
+         * gets the last one at once*/
+        TableState state = room.getState();
+        String delta = state.update(room);
+        if (delta != null) {
+            this.publisher.add(room.getRoomID(), topic + "/delta", delta, policy.get(PublishPolicy.TABLE_DELTA));
+            if (state.isKeyframe()) {
+                this.publisher.add(room.getRoomID(), topic + "/state", state.getKeyframe(), policy.get(PublishPolicy.TABLE_STATE));
+            }
+        }
+
+    }
+
+    /**
+     * Return the formats to publish an event of a room in, besides the table state which is always published.
+     * The observers of a room are not known to the server, they read the table state unless pokerserver.wire.text
+     * keeps the text format for them.
+     *
+     * @param Room room, AbstractRoomEvent event
+     * @return int TEXT_FORMAT and BINARY_FORMAT bits
+     */
+    private int wireFormats(Room room, AbstractRoomEvent event) {
+        int formats = textTopic ? TEXT_FORMAT : 0;
+        for (Player p : room.getListPlayer()) {
+            formats |= wireFormat(p);
+        }
+        if (event instanceof VisitRoomEvent && ((VisitRoomEvent) event).getP() != null) {
+            formats |= wireFormat(((VisitRoomEvent) event).getP());
+        }
+        return formats;
+    }
+
+    private static int wireFormat(Player p) {
+        return (p.isLegacyText() ? TEXT_FORMAT : 0) | (p.getWireVersion() > 0 ? BINARY_FORMAT : 0);
+    }
+
+    /**
+     * Return the text message of an event as a query string.
+     *
+     * @param AbstractRoomEvent event
+     * @return String content
+     */
+    private String toText(AbstractRoomEvent event) {
+        StringBuilder content = new StringBuilder(256);
         if (event instanceof GameActRoomEvent) {
-            content += "cmd=" + RoomAction.GAMEACTION + "&roomid=" + event.getSrc().getRoomID();
+            content.append("cmd=").append(RoomAction.GAMEACTION).append("&roomid=").append(event.getSrc().getRoomID());
             GameActRoomEvent gare = (GameActRoomEvent) event;
             AbstractGameEvent ge = gare.getE();
-            content += "&gameEvent=" + ge.getType() + "&gameid=" + ge.getSrc().getId();
+            content.append("&gameEvent=").append(ge.getType()).append("&gameid=").append(ge.getSrc().getId());
             if (ge instanceof PlayerActionGameEvent) {
                 PlayerActionGameEvent pge = (PlayerActionGameEvent) ge;
                 AbstractPlayerEvent e = pge.getPE();
+                content.append("&toact=").append(pge.getSrc().getPlayersToAct()).append("&pots=").append(pge.getSrc().getPot());
 
                 if (e instanceof PlayerBetEvent) {
                     PlayerBetEvent pe = (PlayerBetEvent) e;
-                    long amount = pe.getAmount();
-                    Player p = pe.getSrc();
-                    /**
-                     * Minus Balance of USER and update to Datastore*/
-                    User user = ofy().load().type(User.class).id(p.getName()).now();
-                    checkNotNull(user, "User is null when loaded from datastore!");
-                    user.setBalance(user.getBalance() - amount);
-                    checkNotNull(ofy().save().entity(user).now(), "Update to datastore failed!");
-                    content += "&pid=" + p.getId() + "&playeraction=bet&amount=" + amount;
+                    content.append("&pid=").append(pe.getSrc().getId()).append("&playeraction=bet&amount=").append(pe.getAmount());
                 }
                 if (e instanceof PlayerFoldEvent) {
-                    PlayerFoldEvent pe = (PlayerFoldEvent) e;
-                    Player p = pe.getSrc();
-                    content += "&pid=" + p.getId() + "&playeraction=fold";
+                    content.append("&pid=").append(e.getSrc().getId()).append("&playeraction=fold");
                 }
                 if (e instanceof PlayerCheckEvent) {
-                    Player p = e.getSrc();
-                    content += "&pid=" + p.getId() + "&playeraction=check";
+                    content.append("&pid=").append(e.getSrc().getId()).append("&playeraction=check");
                 }
                 if (e instanceof PlayerCallEvent) {
-                    Player p = e.getSrc();
-                    content += "&pid=" + p.getId() + "&playeraction=call";
+                    content.append("&pid=").append(e.getSrc().getId()).append("&playeraction=call");
                 }
                 if (e instanceof GetTurnPlayerEvent) {
-                    Player p = e.getSrc();
-                    content += "&pid=" + p.getId() + "&playeraction=myturn";
+                    content.append("&pid=").append(e.getSrc().getId()).append("&playeraction=myturn");
                 }
             }
 
@@ -427,50 +570,84 @@ public class MqttServletGameServer implements MqttCallback, RoomListener, MqttSe
                 RoundGameEvent rge = (RoundGameEvent) ge;
                 Game src = ge.getSrc();
                 if (rge.getType() == GameAction.WAITTING) {
-                    content += "&sb=" + src.getSmallBlind().getId() + "&bb=" + src.getBigBlind().getId() + "&dealer=" + src.getDealer().getId()
-                            + "&listPlayers=" + src.getListPlayer();
+                    content.append("&sb=").append(src.getSmallBlind().getId()).append("&bb=").append(src.getBigBlind().getId())
+                            .append("&dealer=").append(src.getDealer().getId()).append("&listPlayers=").append(src.getListPlayer());
                 }
                 if (rge.getType() == GameAction.PREFLOP) {
-                    List<Player> players = rge.getSrc().getListPlayer();
-                    StringBuffer playerHands = new StringBuffer();
-                    playerHands.append("[");
-                    for (Player player : players) {
-                        if (!player.isSittingOut()) playerHands.append(player.toJson() + ",");
+                    content.append("&preflopHands=[");
+                    int length = content.length();
+                    for (Player player : src.getListPlayer()) {
+                        if (player.isSittingOut()) continue;
+                        if (content.length() > length) content.append(",");
+                        content.append(player.toJson());
                     }
-                    playerHands.setLength(playerHands.length() - 1);
-                    playerHands.append("]");
-                    content += "&preflopHands=" + playerHands.toString();
+                    content.append("]");
                 }
                 if (rge.getType() == GameAction.FLOP) {
-                    content += "&flopcard=" + rge.getSrc().getBoard().getFlopCards().toString();
+                    content.append("&flopcard=").append(src.getBoard().getFlopCards()).append("&handranks=").append(this.handRanks(src));
                 }
                 if (rge.getType() == GameAction.TURN) {
-                    content += "&turncard=" + rge.getSrc().getBoard().getTurnCard().toString();
+                    content.append("&turncard=").append(src.getBoard().getTurnCard()).append("&handranks=").append(this.handRanks(src));
                 }
                 if (rge.getType() == GameAction.RIVER) {
-                    content += "&rivercard=" + rge.getSrc().getBoard().getRiverCard().toString();
+                    content.append("&rivercard=").append(src.getBoard().getRiverCard()).append("&handranks=").append(this.handRanks(src));
                 }
             }
             if (ge instanceof EndGameEvent) {
                 EndGameEvent ege = (EndGameEvent) ge;
-                content += "&playerwin=" + ege.getPlayerwins() + "&rank=" + ege.getRank() + "&besthand=" + ege.getBestHands();
+                content.append("&playerwin=").append(ege.getPlayerwins()).append("&rank=").append(ege.getRank())
+                        .append("&besthand=").append(ege.getBestHands());
+                content.append("&pots=").append(ege.getSrc().getPot());
             }
 
         } else if (event instanceof VisitRoomEvent) {
             VisitRoomEvent vre = (VisitRoomEvent) event;
+            Player p = vre.getP();
             if (vre.getType() == RoomAction.PLAYERJOINEDROOM) {
-                content += "cmd=" + RoomAction.PLAYERJOINEDROOM + "&roomid=" + event.getSrc().getRoomID();
-                Player p = vre.getP();
-                content += "&pid=" + p.getId() + "&balance=" + p.getBalance();
+                content.append("cmd=").append(RoomAction.PLAYERJOINEDROOM).append("&roomid=").append(event.getSrc().getRoomID());
+                content.append("&pid=").append(p.getId()).append("&balance=").append(p.getBalance());
             }
             if (vre.getType() == RoomAction.PLAYERLEFT) {
-                Player p = vre.getP();
-                content += "cmd=" + RoomAction.PLAYERLEFT + "&roomid=" + event.getSrc().getRoomID() + "&pid=" + p.getId();
+                content.append("cmd=").append(RoomAction.PLAYERLEFT).append("&roomid=").append(event.getSrc().getRoomID()).append("&pid=").append(p.getId());
             }
         }
+        return content.toString();
+    }
 
-        this.sender.add(MqttServletGameServer.SERVER_TOPIC + "/room/" + event.getSrc().getRoomID(), content);
+    /**
+     * Return the current hand type and rank of every player still in the game as a json array.
+     *
+     * @param Game game
+     * @return String json
+     */
+    private String handRanks(Game game) {
+        StringBuilder builder = new StringBuilder("[");
+        for (Player player : game.getListPlayer()) {
+            if (player.isSittingOut()) continue;
+            if (builder.length() > 1) builder.append(",");
+            builder.append("{\"pid\":\"").append(player.getId()).append("\",\"type\":\"").append(player.getCurrentHandType())
+                    .append("\",\"rank\":").append(player.getCurrentHandRank()).append("}");
+        }
+        return builder.append("]").toString();
+    }
+
+    /**
+     * Return true once the hand evaluator is loaded and games can be started.
+     *
+     * @return boolean ready
+     */
+    public boolean isEvaluatorReady() {
+        return HandEvaluatorFactory.isReady();
+    }
 
+    @Override
+    public boolean jmx_isEvaluatorReady() {
+        return HandEvaluatorFactory.isReady();
+    }
+
+    @Override
+    public long jmx_getEvaluatorLoadMillis() {
+        return HandEvaluatorFactory.getLoadMillis();
     }
 
     @Override
@@ -8,4 +8,6 @@ import java.util.List;
 public interface MqttServletGameServerMBean {
     public String jmx_getRoomsList();
     public String jmx_getPlayerList();
+    public boolean jmx_isEvaluatorReady();
+    public long jmx_getEvaluatorLoadMillis();
 }
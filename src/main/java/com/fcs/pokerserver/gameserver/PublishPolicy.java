@@ -0,0 +1,139 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.gameserver;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fcs.pokerserver.events.AbstractGameEvent;
+import com.fcs.pokerserver.events.AbstractRoomEvent;
+import com.fcs.pokerserver.events.GameActRoomEvent;
+import com.fcs.pokerserver.events.GetTurnPlayerEvent;
+import com.fcs.pokerserver.events.PlayerActionGameEvent;
+
+/**
+ * The QoS and retain flag of the messages published for each class of event.
+ * The defaults are overridden by the pokerserver.publish.policy property, a comma separated list of
+ * Name:qos[:retain], for example "GetTurnPlayerEvent:0,EndGameEvent:2,TableState:1:retain".
+ * The names are RoundGameEvent, PlayerActionGameEvent, GetTurnPlayerEvent (the turn notifications), EndGameEvent,
+ * VisitRoomEvent, TableState, the retained keyframe of a room published on its /state topic, and TableDelta, the
+ * changes of the state of a room published on its /delta topic.
+ * @category com > fcs > pokerserver > gameserver
+ * */
+public class PublishPolicy {
+	public static final String PROPERTY = "pokerserver.publish.policy";
+	public static final String TABLE_STATE = "TableState";
+	public static final String TABLE_DELTA = "TableDelta";
+	public static final String TURN = "GetTurnPlayerEvent";
+
+	private static final Delivery DEFAULT = new Delivery(1, false);
+
+	private final Map<String, Delivery> deliveries = new HashMap<String, Delivery>();
+
+	/**
+	 * The constructor with the policy of the pokerserver.publish.policy property.
+	 * */
+	public PublishPolicy() {
+		this(System.getProperty(PROPERTY));
+	}
+
+	/**
+	 * The constructor with a policy over the defaults, or the defaults only when it is null.
+	 * @param String spec
+	 * @throws IllegalArgumentException if the policy is not well-formed
+	 * */
+	public PublishPolicy(String spec) {
+		deliveries.put("RoundGameEvent", new Delivery(1, false));
+		deliveries.put("PlayerActionGameEvent", new Delivery(1, false));
+		// losing a turn notification is harmless, the state and the timeout tell the same
+		deliveries.put(TURN, new Delivery(0, false));
+		deliveries.put("EndGameEvent", new Delivery(2, false));
+		deliveries.put("VisitRoomEvent", new Delivery(1, false));
+		deliveries.put(TABLE_STATE, new Delivery(1, true));
+		deliveries.put(TABLE_DELTA, new Delivery(1, false));
+		if (spec == null || spec.trim().isEmpty()) return;
+		for (String entry : spec.split(",")) {
+			String[] parts = entry.trim().split(":");
+			if (parts.length < 2 || parts.length > 3 || (parts.length == 3 && !"retain".equals(parts[2]))) {
+				throw new IllegalArgumentException("Not a publish policy entry: " + entry);
+			}
+			int qos = Integer.parseInt(parts[1]);
+			if (qos < 0 || qos > 2) throw new IllegalArgumentException("QoS must be 0, 1 or 2: " + entry);
+			deliveries.put(parts[0], new Delivery(qos, parts.length == 3));
+		}
+	}
+
+	/**
+	 * Return the delivery of a class of event.
+	 * @param String name
+	 * @return Delivery delivery
+	 * */
+	public Delivery get(String name) {
+		Delivery delivery = deliveries.get(name);
+		return delivery == null ? DEFAULT : delivery;
+	}
+
+	/**
+	 * Return the delivery of a room event, from the class of the game event it carries.
+	 * @param AbstractRoomEvent event
+	 * @return Delivery delivery
+	 * */
+	public Delivery of(AbstractRoomEvent event) {
+		if (event instanceof GameActRoomEvent) {
+			AbstractGameEvent ge = ((GameActRoomEvent) event).getE();
+			if (ge instanceof PlayerActionGameEvent && ((PlayerActionGameEvent) ge).getPE() instanceof GetTurnPlayerEvent) {
+				return get(TURN);
+			}
+			return get(ge.getClass().getSimpleName());
+		}
+		return get(event.getClass().getSimpleName());
+	}
+
+	/**
+	 * The QoS and retain flag of a message.
+	 * */
+	public static final class Delivery {
+		private final int qos;
+		private final boolean retained;
+
+		/**
+		 * The constructor with 2 parameters qos and retained.
+		 * @param int qos, boolean retained
+		 * */
+		public Delivery(int qos, boolean retained) {
+			this.qos = qos;
+			this.retained = retained;
+		}
+
+		public int getQos() {
+			return qos;
+		}
+
+		public boolean isRetained() {
+			return retained;
+		}
+
+		@Override
+		public String toString() {
+			return "qos" + qos + (retained ? " retained" : "");
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.gameserver;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.paho.client.mqttv3.MqttClient;
+
+/**
+ * The MQTT publishers of the server: one {@link Sender} thread per client connection. The messages of a room always
+ * go through the same sender, picked from a hash of the room id, so a room keeps its order while the rooms are
+ * published in parallel over all the connections.
+ * @category com > fcs > pokerserver > gameserver
+ * */
+public class PublisherPool {
+	public static final String CONNECTIONS_PROPERTY = "pokerserver.publisher.connections";
+
+	private final Sender[] senders;
+
+	/**
+	 * The constructor with one connected client per sender.
+	 * @param MqttClient[] clients
+	 * */
+	public PublisherPool(MqttClient[] clients) {
+		this.senders = new Sender[clients.length];
+		int capacity = Integer.getInteger(Sender.QUEUE_PROPERTY, 1 << 16);
+		long window = Long.getLong(Sender.WINDOW_PROPERTY, 5);
+		for (int i = 0; i < clients.length; i++) {
+			senders[i] = new Sender(clients[i], capacity, window, i);
+		}
+	}
+
+	/**
+	 * Return the number of connections from the pokerserver.publisher.connections property, by default one per core
+	 * up to 8.
+	 * @return int connections
+	 * */
+	public static int getConnections() {
+		return Math.max(1, Integer.getInteger(CONNECTIONS_PROPERTY, Math.min(Runtime.getRuntime().availableProcessors(), 8)));
+	}
+
+	/**
+	 * Return the sender of a room.
+	 * @param long roomId
+	 * @return int shard
+	 * */
+	public int shard(long roomId) {
+		// room ids are creation times, mixed so that close ids spread over the senders
+		long h = roomId * 0x9E3779B97F4A7C15L;
+		return (int) ((h >>> 32) % senders.length);
+	}
+
+	/**
+	 * The method to add a message of a room.
+	 * @param long roomId, String topic, String content
+	 * */
+	public void add(long roomId, String topic, String content) {
+		senders[shard(roomId)].add(topic, content);
+	}
+
+	/**
+	 * The method to add a message of a room with its delivery.
+	 * @param long roomId, String topic, String content, PublishPolicy.Delivery delivery
+	 * */
+	public void add(long roomId, String topic, String content, PublishPolicy.Delivery delivery) {
+		senders[shard(roomId)].add(topic, content, delivery.getQos(), delivery.isRetained());
+	}
+
+	/**
+	 * The method to add a binary frame of a room with its delivery.
+	 * @param long roomId, String topic, ByteBuffer frame, PublishPolicy.Delivery delivery
+	 * */
+	public void add(long roomId, String topic, ByteBuffer frame, PublishPolicy.Delivery delivery) {
+		senders[shard(roomId)].add(topic, frame, delivery.getQos(), delivery.isRetained());
+	}
+
+	/**
+	 * The method to add a message which belongs to no room, sent by the first sender.
+	 * @param String topic, String content
+	 * */
+	public void add(String topic, String content) {
+		senders[0].add(topic, content);
+	}
+
+	/**
+	 * Return the sender of a shard.
+	 * @param int shard
+	 * @return Sender sender
+	 * */
+	public Sender getSender(int shard) {
+		return senders[shard];
+	}
+
+	/**
+	 * Return the number of senders.
+	 * @return int size
+	 * */
+	public int size() {
+		return senders.length;
+	}
+}
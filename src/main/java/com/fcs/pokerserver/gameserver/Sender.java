@@ -20,8 +20,22 @@ THE SOFTWARE.
 
 package com.fcs.pokerserver.gameserver;
 
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
@@ -36,14 +50,29 @@ class MessageQueue
 {	
 	private String topic;
 	private String content;
+	private ByteBuffer frame;
+	private int qos;
+	private boolean retained;
+	private long time = System.nanoTime();
 	/**
-	 * The constructor with 2 parameters topic and content.
-	 * @param String topic, String content
+	 * The constructor with 4 parameters topic, content, qos and retained.
+	 * @param String topic, String content, int qos, boolean retained
 	 * */
-	public MessageQueue(String topic, String content) {
+	public MessageQueue(String topic, String content, int qos, boolean retained) {
 		super();
 		this.topic = topic;
 		this.content = content;
+		this.qos = qos;
+		this.retained = retained;
+	}
+
+	/**
+	 * The constructor of a binary frame of the {@link WireEncoder}.
+	 * @param String topic, ByteBuffer frame, int qos, boolean retained
+	 * */
+	public MessageQueue(String topic, ByteBuffer frame, int qos, boolean retained) {
+		this(topic, (String) null, qos, retained);
+		this.frame = frame;
 	}
 	
 	/**
@@ -70,6 +99,38 @@ class MessageQueue
 		return content;
 	}
 	
+	/**
+	 * Return the binary frame, null for a text message.
+	 * @return ByteBuffer frame
+	 * */
+	public ByteBuffer getFrame() {
+		return frame;
+	}
+	
+	/**
+	 * Return the QoS of the message.
+	 * @return int qos
+	 * */
+	public int getQos() {
+		return qos;
+	}
+	
+	/**
+	 * Return true if the broker keeps the message for the next subscribers.
+	 * @return boolean retained
+	 * */
+	public boolean isRetained() {
+		return retained;
+	}
+	
+	/**
+	 * Return the time the message was added, in System.nanoTime().
+	 * @return long time
+	 * */
+	public long getTime() {
+		return time;
+	}
+	
 	/**
 	 * The method to set value for the content.
 	 * @param String content
@@ -79,52 +140,343 @@ class MessageQueue
 //	}
 }
 
+/**
+ * The messages of one topic which go in one payload: text messages one per line, binary frames each after its
+ * varint length. A line break inside a text message is written as its JSON escape, so every line is one message.
+ * */
+class Segment
+{
+	private final MessageQueue first;
+	private final StringBuilder text;
+	private final List<ByteBuffer> frames;
+
+	Segment(MessageQueue first) {
+		this.first = first;
+		if (first.getFrame() == null) {
+			this.text = new StringBuilder();
+			Sender.appendEscaped(this.text, first.getContent());
+			this.frames = null;
+		} else {
+			this.text = null;
+			this.frames = new ArrayList<ByteBuffer>();
+			this.frames.add(first.getFrame());
+		}
+	}
+
+	/**
+	 * Add a message with the same delivery, a retained message replaces the previous one.
+	 * @param MessageQueue mq
+	 * @return boolean false if the message has another delivery
+	 * */
+	boolean add(MessageQueue mq) {
+		if (mq.getQos() != first.getQos() || mq.isRetained() != first.isRetained()) return false;
+		if ((mq.getFrame() == null) != (frames == null)) return false;
+		if (frames != null) {
+			if (first.isRetained()) release();
+			frames.add(mq.getFrame());
+			return true;
+		}
+		if (first.isRetained()) text.setLength(0);
+		else text.append(Sender.SEPARATOR);
+		Sender.appendEscaped(text, mq.getContent());
+		return true;
+	}
+
+	MessageQueue getFirst() {
+		return first;
+	}
+
+	/**
+	 * Return the bytes to publish, the frames go back to the pool.
+	 * @return byte[] payload
+	 * */
+	byte[] getPayload() {
+		if (frames == null) return text.toString().getBytes(StandardCharsets.UTF_8);
+		int size = 0;
+		for (ByteBuffer frame : frames) size += frame.remaining() + 5;
+		ByteBuffer payload = ByteBuffer.allocate(size);
+		for (ByteBuffer frame : frames) {
+			WireEncoder.putVarint(payload, frame.remaining());
+			payload.put(frame);
+		}
+		release();
+		byte[] bytes = new byte[payload.position()];
+		System.arraycopy(payload.array(), 0, bytes, 0, bytes.length);
+		return bytes;
+	}
+
+	private void release() {
+		for (ByteBuffer frame : frames) BufferPool.getInstance().release(frame);
+		frames.clear();
+	}
+}
+
 /**
  * The class to get the messages in the Queue to send.
+ * The thread sleeps on a bounded queue until a message comes, then waits for the coalescing window and takes every
+ * message queued by then. The following messages of one topic with the same QoS are published as one payload, one
+ * message per line, in the order they were added; of following retained messages only the last one is published.
+ * Line breaks inside a message are sent as the JSON escapes {@code \n} and {@code \r}, which keeps JSON content valid.
+ * The binary frames of the {@link WireEncoder} are joined the same way, each after its varint length.
+ * A full queue makes {@link #add(String, String, int, boolean)} wait rather than lose a message.
  * */
-public class Sender extends Thread{
-	private Queue<MessageQueue> queue = new LinkedBlockingDeque<MessageQueue> ();
+public class Sender extends Thread implements SenderMBean {
+	public static final String QUEUE_PROPERTY = "pokerserver.sender.queue";
+	public static final String WINDOW_PROPERTY = "pokerserver.sender.window";
+	public static final String SEPARATOR = "\n";
+
+	private static Logger logger = Logger.getLogger(Sender.class.getName());
+
+	private final BlockingQueue<MessageQueue> queue;
+	private final long windowMillis;
 	private MqttClient client;
+
+	private final AtomicLong messages = new AtomicLong();
+	private final AtomicLong publishes = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong stalls = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong latencyNanos = new AtomicLong();
+	private final AtomicLong publishNanos = new AtomicLong();
+	private volatile int lastBatchSize;
+	private volatile int maxBatchSize;
+	private volatile long maxLatencyNanos;
 	
 	/**
 	 * The constructor with the parameter is MqqtClient and start thread. 
 	 * */
 	public Sender(MqttClient client) {
-		super();
+		this(client, Integer.getInteger(QUEUE_PROPERTY, 1 << 16), Long.getLong(WINDOW_PROPERTY, 5));
+	}
+
+	/**
+	 * The constructor with the size of the queue and the coalescing window, 0 to publish what is queued at once.
+	 * @param MqttClient client, int capacity, long windowMillis
+	 * */
+	public Sender(MqttClient client, int capacity, long windowMillis) {
+		this(client, capacity, windowMillis, 0);
+	}
+
+	/**
+	 * The constructor of one sender of a {@link PublisherPool}.
+	 * @param MqttClient client, int capacity, long windowMillis, int shard
+	 * */
+	public Sender(MqttClient client, int capacity, long windowMillis, int shard) {
+		super("mqtt-sender-" + shard);
 		this.client = client;
+		this.queue = new ArrayBlockingQueue<MessageQueue>(capacity);
+		this.windowMillis = windowMillis;
+		this.setDaemon(true);
+		registerMBean(shard);
 		this.start();
 	}
 
+	private void registerMBean(int shard) {
+		try {
+			MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("com.fcs.pokerserver.gameserver:type=Sender,shard=" + shard);
+			if (!mbs.isRegistered(name)) mbs.registerMBean(this, name);
+		} catch (Exception e) {
+			logger.log(Level.WARNING, "Cannot register the Sender MBean", e);
+		}
+	}
+
 	/**
 	 * The method to add the topic, content into the Queue.
 	 * @param String topic, String content.
 	 * */
 	public void add(String topic,String content)
 	{
-		queue.add(new MessageQueue(topic, content));
+		add(topic, content, 2, false);
+	}
+
+	/**
+	 * The method to add a message with its QoS and retain flag into the Queue.
+	 * @param String topic, String content, int qos, boolean retained
+	 * */
+	public void add(String topic, String content, int qos, boolean retained)
+	{
+		put(new MessageQueue(topic, content, qos, retained));
+	}
+
+	/**
+	 * Append a text message with its line breaks escaped as in JSON.
+	 * @param StringBuilder text, String content
+	 * */
+	static void appendEscaped(StringBuilder text, String content) {
+		int from = 0;
+		for (int i = 0, n = content.length(); i < n; i++) {
+			char c = content.charAt(i);
+			if (c != '\n' && c != '\r') continue;
+			text.append(content, from, i).append(c == '\n' ? "\\n" : "\\r");
+			from = i + 1;
+		}
+		text.append(content, from, content.length());
+	}
+
+	private void put(MessageQueue mq) {
+		if (queue.offer(mq)) return;
+		stalls.incrementAndGet();
+		try {
+			queue.put(mq);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 	}
 	
+	/**
+	 * The method to add a binary frame of the {@link WireEncoder} with its QoS and retain flag into the Queue, the
+	 * frame goes back to the {@link BufferPool} once it is published.
+	 * @param String topic, ByteBuffer frame, int qos, boolean retained
+	 * */
+	public void add(String topic, ByteBuffer frame, int qos, boolean retained)
+	{
+		put(new MessageQueue(topic, frame, qos, retained));
+	}
+
 	/**
 	 * The method to run the queue.
 	 * */
 	public void run()
 	{
-		try {
-			while(1==1)
-			{
-				MessageQueue mq = queue.poll();
-				if(mq==null) continue;
-				else
-				{
-					//Thread.sleep(1);
-					//System.out.println(mq.getTopic()+":"+mq.getContent());
-					client.publish(mq.getTopic(), mq.getContent().getBytes(), 2, false);
-				}	
+		List<MessageQueue> batch = new ArrayList<MessageQueue>();
+		Map<String, Segment> topics = new HashMap<String, Segment>();
+		List<Segment> segments = new ArrayList<Segment>();
+		while (true) {
+			try {
+				batch.add(queue.take());
+				if (windowMillis > 0) {
+					long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+					long left;
+					while ((left = end - System.nanoTime()) > 0) {
+						MessageQueue mq = queue.poll(left, TimeUnit.NANOSECONDS);
+						if (mq == null) break;
+						batch.add(mq);
+						queue.drainTo(batch);
+					}
+				}
+				queue.drainTo(batch);
+				publish(batch, topics, segments);
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				batch.clear();
+				topics.clear();
+				segments.clear();
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
 		}
 	}
+
+	private void publish(List<MessageQueue> batch, Map<String, Segment> topics, List<Segment> segments) {
+		// a topic keeps its order: another delivery starts a new payload
+		for (MessageQueue mq : batch) {
+			Segment segment = topics.get(mq.getTopic());
+			if (segment == null || !segment.add(mq)) {
+				segment = new Segment(mq);
+				topics.put(mq.getTopic(), segment);
+				segments.add(segment);
+			}
+		}
+		long start = System.nanoTime();
+		for (Segment segment : segments) {
+			MessageQueue first = segment.getFirst();
+			try {
+				client.publish(first.getTopic(), segment.getPayload(), first.getQos(), first.isRetained());
+				publishes.incrementAndGet();
+			} catch (Exception e) {
+				errors.incrementAndGet();
+				logger.log(Level.WARNING, "Cannot publish to " + first.getTopic(), e);
+			}
+		}
+		long now = System.nanoTime();
+		long latency = now - batch.get(0).getTime();
+		messages.addAndGet(batch.size());
+		batches.incrementAndGet();
+		publishNanos.addAndGet(now - start);
+		latencyNanos.addAndGet(latency);
+		lastBatchSize = batch.size();
+		if (batch.size() > maxBatchSize) maxBatchSize = batch.size();
+		if (latency > maxLatencyNanos) maxLatencyNanos = latency;
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	@Override
+	public int getQueueCapacity() {
+		return queue.size() + queue.remainingCapacity();
+	}
+
+	@Override
+	public long getWindowMillis() {
+		return windowMillis;
+	}
+
+	@Override
+	public long getMessageCount() {
+		return messages.get();
+	}
+
+	@Override
+	public long getPublishCount() {
+		return publishes.get();
+	}
+
+	@Override
+	public long getBatchCount() {
+		return batches.get();
+	}
+
+	@Override
+	public int getLastBatchSize() {
+		return lastBatchSize;
+	}
+
+	@Override
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	@Override
+	public double getAverageBatchSize() {
+		long n = batches.get();
+		return n == 0 ? 0 : (double) messages.get() / n;
+	}
+
+	@Override
+	public double getAverageLatencyMillis() {
+		long n = batches.get();
+		return n == 0 ? 0 : latencyNanos.get() / 1e6 / n;
+	}
+
+	@Override
+	public double getMaxLatencyMillis() {
+		return maxLatencyNanos / 1e6;
+	}
+
+	@Override
+	public double getAveragePublishMillis() {
+		long n = batches.get();
+		return n == 0 ? 0 : publishNanos.get() / 1e6 / n;
+	}
+
+	@Override
+	public long getStallCount() {
+		return stalls.get();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errors.get();
+	}
+
+	@Override
+	public void resetMax() {
+		maxBatchSize = 0;
+		maxLatencyNanos = 0;
+	}
 	
 	/**
 	 * The main method
@@ -0,0 +1,358 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.gameserver;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.fcs.pokerserver.Card;
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.PotLedger;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.Seats;
+import com.fcs.pokerserver.events.AbstractGameEvent;
+import com.fcs.pokerserver.events.AbstractPlayerEvent;
+import com.fcs.pokerserver.events.AbstractRoomEvent;
+import com.fcs.pokerserver.events.EndGameEvent;
+import com.fcs.pokerserver.events.GameActRoomEvent;
+import com.fcs.pokerserver.events.GameAction;
+import com.fcs.pokerserver.events.GetTurnPlayerEvent;
+import com.fcs.pokerserver.events.PlayerActionGameEvent;
+import com.fcs.pokerserver.events.PlayerBetEvent;
+import com.fcs.pokerserver.events.PlayerCallEvent;
+import com.fcs.pokerserver.events.PlayerCheckEvent;
+import com.fcs.pokerserver.events.PlayerFoldEvent;
+import com.fcs.pokerserver.events.RoomAction;
+import com.fcs.pokerserver.events.RoundGameEvent;
+import com.fcs.pokerserver.events.VisitRoomEvent;
+import com.fcs.pokerserver.holder.Hand;
+
+/**
+ * The binary encoding of the room events, published beside the text format to the clients which asked for it.
+ * A frame starts with the version and the kind of the event, then the room id and the game id (0 when the room has
+ * no game). The amounts, ids and seat masks are unsigned varints (7 bits a byte, low bits first), a seat is one byte
+ * (255 when the player has no seat), a card is its one byte evaluation code from 1 to 52 (0 when it is not dealt)
+ * and a text is its varint length followed by its UTF-8 bytes. The players are named by their seat, only the
+ * PLAYERJOINED and PLAYERLEFT frames carry the id of the player. The bodies of version 1 are:
+ * <pre>
+ * JOINED  seat balance id
+ * LEFT    seat id
+ * ROUND   round [body of the round]
+ *         WAITTING dealer smallBlind bigBlind count (seat balance)*
+ *         PREFLOP  count (seat card card)*
+ *         FLOP     card card card ranks
+ *         TURN     card ranks
+ *         RIVER    card ranks
+ *         ranks := count (seat handType rank)*
+ * ACTION  action seat amount toAct pots
+ *         action := 0 bet, 1 fold, 2 call, 3 check, 4 turn of the player
+ * END     winners rank count (count card*)* pots
+ * pots := count (amount eligible)*
+ * </pre>
+ * @category com > fcs > pokerserver > gameserver
+ * */
+public class WireEncoder {
+	public static final int VERSION = 1;
+
+	public static final int JOINED = 1;
+	public static final int LEFT = 2;
+	public static final int ROUND = 3;
+	public static final int ACTION = 4;
+	public static final int END = 5;
+
+	public static final int BET = 0;
+	public static final int FOLD = 1;
+	public static final int CALL = 2;
+	public static final int CHECK = 3;
+	public static final int TURN = 4;
+
+	public static final int NO_SEAT = 255;
+
+	private final BufferPool pool;
+
+	/**
+	 * The constructor with the buffer pool of the server.
+	 * */
+	public WireEncoder() {
+		this(BufferPool.getInstance());
+	}
+
+	/**
+	 * The constructor with the pool the buffers are taken from.
+	 * @param BufferPool pool
+	 * */
+	public WireEncoder(BufferPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Return the frame of an event in a buffer of the pool, ready to be read, or null if the event has no binary form.
+	 * The buffer goes back to the pool with {@link BufferPool#release(ByteBuffer)} once it is sent.
+	 * @param AbstractRoomEvent event
+	 * @return ByteBuffer frame
+	 * */
+	public ByteBuffer encode(AbstractRoomEvent event) {
+		ByteBuffer buffer = pool.acquire();
+		while (true) {
+			try {
+				if (!encode(event, buffer)) {
+					pool.release(buffer);
+					return null;
+				}
+				buffer.flip();
+				return buffer;
+			} catch (BufferOverflowException e) {
+				int size = buffer.capacity() * 2;
+				pool.release(buffer);
+				buffer = pool.acquire(size);
+			}
+		}
+	}
+
+	/**
+	 * Return the version of the binary format a client gets for the format it asked for at login: 0 (the text format)
+	 * unless the format is "bin", then the version it asked for up to {@link #VERSION}, the last one by default.
+	 * @param String format, String version
+	 * @return int version
+	 * @throws IllegalArgumentException if the version is not a number
+	 * */
+	public static int negotiate(String format, String version) {
+		if (!"bin".equals(format)) return 0;
+		if (version == null) return VERSION;
+		int asked = Integer.parseInt(version);
+		return asked < 1 ? 0 : Math.min(asked, VERSION);
+	}
+
+	private boolean encode(AbstractRoomEvent event, ByteBuffer out) {
+		Room room = event.getSrc();
+		if (event instanceof VisitRoomEvent) {
+			VisitRoomEvent vre = (VisitRoomEvent) event;
+			Player p = vre.getP();
+			Game game = room.getCurrentGame();
+			if (vre.getType() == RoomAction.PLAYERJOINEDROOM) {
+				header(out, JOINED, room, game);
+				putSeat(out, game == null ? p.getSeat() : game.getSeats().seatOf(p));
+				putVarint(out, p.getBalance());
+				putString(out, p.getId());
+				return true;
+			}
+			if (vre.getType() == RoomAction.PLAYERLEFT) {
+				header(out, LEFT, room, game);
+				putSeat(out, p.getSeat());
+				putString(out, p.getId());
+				return true;
+			}
+			return false;
+		}
+		if (!(event instanceof GameActRoomEvent)) return false;
+		AbstractGameEvent ge = ((GameActRoomEvent) event).getE();
+		Game game = ge.getSrc();
+		Seats seats = game.getSeats();
+		if (ge instanceof PlayerActionGameEvent) {
+			AbstractPlayerEvent e = ((PlayerActionGameEvent) ge).getPE();
+			int action;
+			long amount = 0;
+			if (e instanceof PlayerBetEvent) {
+				action = BET;
+				amount = ((PlayerBetEvent) e).getAmount();
+			} else if (e instanceof PlayerFoldEvent) action = FOLD;
+			else if (e instanceof PlayerCallEvent) action = CALL;
+			else if (e instanceof PlayerCheckEvent) action = CHECK;
+			else if (e instanceof GetTurnPlayerEvent) action = TURN;
+			else return false;
+			header(out, ACTION, room, game);
+			out.put((byte) action);
+			putSeat(out, seats.seatOf(e.getSrc()));
+			putVarint(out, amount);
+			putVarint(out, game.getPendingActs());
+			putPots(out, game.getPot());
+			return true;
+		}
+		if (ge instanceof RoundGameEvent) {
+			GameAction round = ge.getType();
+			header(out, ROUND, room, game);
+			out.put((byte) round.ordinal());
+			switch (round) {
+				case WAITTING:
+					putSeat(out, seats.seatOf(game.getDealer()));
+					putSeat(out, seats.seatOf(game.getSmallBlind()));
+					putSeat(out, seats.seatOf(game.getBigBlind()));
+					out.put((byte) seats.count());
+					for (int m = seats.getOccupied(); m != 0; m &= m - 1) {
+						int seat = Integer.numberOfTrailingZeros(m);
+						out.put((byte) seat);
+						putVarint(out, seats.get(seat).getBalance());
+					}
+					break;
+				case PREFLOP:
+					int count = out.position();
+					out.put((byte) 0);
+					int n = 0;
+					for (int m = seats.getOccupied(); m != 0; m &= m - 1) {
+						int seat = Integer.numberOfTrailingZeros(m);
+						Player p = seats.get(seat);
+						if (p.isSittingOut()) continue;
+						out.put((byte) seat);
+						putCards(out, p.getPlayerHand().getAllCards(), 2);
+						n++;
+					}
+					out.put(count, (byte) n);
+					break;
+				case FLOP:
+					putCards(out, game.getBoard().getFlopCards(), 3);
+					putRanks(out, seats);
+					break;
+				case TURN:
+					putCard(out, game.getBoard().getTurnCard());
+					putRanks(out, seats);
+					break;
+				case RIVER:
+					putCard(out, game.getBoard().getRiverCard());
+					putRanks(out, seats);
+					break;
+				default:
+					break;
+			}
+			return true;
+		}
+		if (ge instanceof EndGameEvent) {
+			EndGameEvent ege = (EndGameEvent) ge;
+			header(out, END, room, game);
+			int winners = 0;
+			if (ege.getPlayerwins() != null) {
+				for (Player p : ege.getPlayerwins()) {
+					int seat = seats.seatOf(p);
+					if (seat >= 0) winners |= 1 << seat;
+				}
+			}
+			putVarint(out, winners & 0xFFFFFFFFL);
+			putString(out, ege.getRank() == null ? "" : ege.getRank());
+			List<Hand> hands = ege.getBestHands();
+			out.put((byte) (hands == null ? 0 : hands.size()));
+			if (hands != null) {
+				for (Hand hand : hands) {
+					List<Card> cards = hand.getAllCards();
+					out.put((byte) cards.size());
+					putCards(out, cards, cards.size());
+				}
+			}
+			putPots(out, game.getPot());
+			return true;
+		}
+		return false;
+	}
+
+	private static void header(ByteBuffer out, int kind, Room room, Game game) {
+		out.put((byte) VERSION);
+		out.put((byte) kind);
+		putVarint(out, room.getRoomID());
+		putVarint(out, game == null ? 0 : game.getId());
+	}
+
+	private static void putSeat(ByteBuffer out, int seat) {
+		out.put((byte) (seat < 0 ? NO_SEAT : seat));
+	}
+
+	private static void putCard(ByteBuffer out, Card card) {
+		out.put((byte) (card == null ? 0 : card.getEvaluation()));
+	}
+
+	private static void putCards(ByteBuffer out, List<Card> cards, int count) {
+		for (int i = 0; i < count; i++) {
+			putCard(out, i < cards.size() ? cards.get(i) : null);
+		}
+	}
+
+	private static void putRanks(ByteBuffer out, Seats seats) {
+		int count = out.position();
+		out.put((byte) 0);
+		int n = 0;
+		for (int m = seats.getOccupied(); m != 0; m &= m - 1) {
+			int seat = Integer.numberOfTrailingZeros(m);
+			Player p = seats.get(seat);
+			if (p.isSittingOut()) continue;
+			out.put((byte) seat);
+			out.put((byte) p.getCurrentHandType().ordinal());
+			putVarint(out, p.getCurrentHandRank());
+			n++;
+		}
+		out.put(count, (byte) n);
+	}
+
+	private static void putPots(ByteBuffer out, PotLedger ledger) {
+		List<PotLedger.Pot> pots = ledger.getPots();
+		out.put((byte) pots.size());
+		for (PotLedger.Pot pot : pots) {
+			putVarint(out, pot.getAmount());
+			putVarint(out, pot.getEligible() & 0xFFFFFFFFL);
+		}
+	}
+
+	/**
+	 * Write an unsigned varint.
+	 * @param ByteBuffer out, long value
+	 * */
+	public static void putVarint(ByteBuffer out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	/**
+	 * Read an unsigned varint.
+	 * @param ByteBuffer in
+	 * @return long value
+	 * */
+	public static long getVarint(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) return value;
+		}
+	}
+
+	/**
+	 * Write a text as its varint length and its UTF-8 bytes.
+	 * @param ByteBuffer out, String value
+	 * */
+	public static void putString(ByteBuffer out, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		putVarint(out, bytes.length);
+		out.put(bytes);
+	}
+
+	/**
+	 * Read a text written by {@link #putString(ByteBuffer, String)}.
+	 * @param ByteBuffer in
+	 * @return String value
+	 * */
+	public static String getString(ByteBuffer in) {
+		byte[] bytes = new byte[(int) getVarint(in)];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
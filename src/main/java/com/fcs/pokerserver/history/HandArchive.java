@@ -0,0 +1,642 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.history;
+
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.events.AbstractGameEvent;
+import com.fcs.pokerserver.events.GameAction;
+import com.fcs.pokerserver.events.GameListener;
+import com.fcs.pokerserver.events.PlayerAction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The archive of the finished games, looked up by game id or by player without a database.
+ * The records of a game are kept in memory while it is played, then compressed on the archive thread and appended
+ * to the data file of the open part. A part is sealed once it is full: two sorted index files are written beside it,
+ * one by game id and one by player, and the three files are memory mapped, so a lookup is a binary search per part.
+ * <pre>
+ * part-NNNNNN.dat   per game: int length, long gameId, int raw length, deflated records
+ * part-NNNNNN.gidx  sorted by game id: long gameId, long offset, int length
+ * part-NNNNNN.pidx  sorted by player, newest game first: long player key, long gameId, long offset, int length
+ * </pre>
+ * The player key is a 64 bit hash of the player id, the games found are checked against the id.
+ * A part left open by a crash is indexed again and sealed at the next start.
+ *
+ * @category com > fcs > pokerserver > history
+ */
+public class HandArchive implements GameListener {
+
+    public static final String DIR_PROPERTY = "pokerserver.archive.dir";
+    public static final String PART_PROPERTY = "pokerserver.archive.part";
+    public static final String PART_PREFIX = "part-";
+    public static final String DATA_SUFFIX = ".dat";
+    public static final String GAME_INDEX_SUFFIX = ".gidx";
+    public static final String PLAYER_INDEX_SUFFIX = ".pidx";
+
+    private static final int GAME_ENTRY = 8 + 8 + 4;
+    private static final int PLAYER_ENTRY = 8 + 8 + 8 + 4;
+    private static final int GAME_HEADER = 4 + 8 + 4;
+    private static final long MAX_PART_BYTES = 1L << 30;
+    private static final int QUEUE_SIZE = 1 << 14;
+    private static final int MAX_RECORDS = 1 << 14;
+
+    private static Logger logger = Logger.getLogger(HandArchive.class.getName());
+
+    private static volatile HandArchive instance;
+
+    private final File directory;
+    private final int partGames;
+    private final Map<Long, List<HistoryRecord>> playing = new ConcurrentHashMap<>();
+    private final Map<Room, Long> current = new ConcurrentHashMap<>();
+    private final BlockingQueue<List<HistoryRecord>> finished = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final List<Part> sealed = new CopyOnWriteArrayList<>();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final AtomicLong stalls = new AtomicLong();
+    private volatile boolean failed;
+    private int partIndex;
+    private RandomAccessFile data;
+    private long dataSize;
+    private Map<Long, long[]> openGames = new HashMap<>();
+    private Map<Long, List<Long>> openPlayers = new HashMap<>();
+
+    /**
+     * Create new the HandArchive on a directory, sealing a part every given number of games.
+     *
+     * @param File directory, int partGames
+     */
+    public HandArchive(File directory, int partGames) {
+        this.directory = directory;
+        this.partGames = partGames;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Cannot create " + directory);
+            load();
+            open();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot open hand archive " + directory + ", games are no longer archived", e);
+            failed = true;
+        }
+        Thread archiver = new Thread(this::work, "hand-archive");
+        archiver.setDaemon(true);
+        archiver.start();
+    }
+
+    /**
+     * Singleton pattern to get the HandArchive of the server.
+     *
+     * @return HandArchive instance
+     */
+    public static HandArchive getInstance() {
+        HandArchive archive = instance;
+        if (archive == null) {
+            synchronized (HandArchive.class) {
+                archive = instance;
+                if (archive == null) {
+                    archive = new HandArchive(getDirectory(), Integer.getInteger(PART_PROPERTY, 1 << 20));
+                    instance = archive;
+                }
+            }
+        }
+        return archive;
+    }
+
+    /**
+     * Return the archive directory, in the hand history directory unless it is set.
+     *
+     * @return File directory
+     */
+    public static File getDirectory() {
+        return new File(System.getProperty(DIR_PROPERTY, new File(HandHistoryWriter.getDirectory(), "archive").getPath()));
+    }
+
+    /**
+     * Keep the records of a game while it is played, and hand it to the archive thread when it ends. A game of the
+     * room which never ended is dropped when the next one starts.
+     */
+    @Override
+    public void actionPerformed(AbstractGameEvent event) {
+        if (failed) return;
+        HistoryRecord record = HandHistoryWriter.toRecord(event);
+        if (record == null) return;
+        Room room = event.getSrc().getRoom();
+        if (room != null) {
+            Long previous = current.put(room, record.getGameId());
+            if (previous != null && previous != record.getGameId()) playing.remove(previous);
+        }
+        List<HistoryRecord> records = playing.computeIfAbsent(record.getGameId(), k -> new ArrayList<>());
+        if (records.size() < MAX_RECORDS) records.add(record);
+        if (record.getKind() != HistoryRecord.END) return;
+        playing.remove(record.getGameId());
+        if (room != null) current.remove(room, record.getGameId());
+        if (finished.offer(records)) return;
+        stalls.incrementAndGet();
+        try {
+            finished.put(records);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drop the game a room was playing when it is closed, it will never end.
+     *
+     * @param Room room
+     */
+    public void abandon(Room room) {
+        Long gameId = current.remove(room);
+        if (gameId != null) playing.remove(gameId);
+    }
+
+    /**
+     * Return the number of games being played, kept in memory until they end.
+     *
+     * @return int count
+     */
+    public int getPlayingCount() {
+        return playing.size();
+    }
+
+    /**
+     * Compress the records of a finished game into the open part, and seal the part once it is full.
+     *
+     * @param List<HistoryRecord> records of one game in the order they were written
+     * @throws IOException
+     */
+    public synchronized void archive(List<HistoryRecord> records) throws IOException {
+        if (records.isEmpty()) return;
+        long gameId = records.get(0).getGameId();
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(records.size() * 64);
+        for (HistoryRecord record : records) {
+            raw.write(record.toBytes());
+        }
+        byte[] input = raw.toByteArray();
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        byte[] output = new byte[GAME_HEADER + input.length + (input.length >> 12) + 64];
+        int length = GAME_HEADER;
+        while (!deflater.finished()) {
+            if (length == output.length) output = Arrays.copyOf(output, output.length * 2);
+            length += deflater.deflate(output, length, output.length - length);
+        }
+        ByteBuffer.wrap(output, 0, GAME_HEADER).order(ByteOrder.LITTLE_ENDIAN).putInt(length).putLong(gameId).putInt(input.length);
+        data.seek(dataSize);
+        data.write(output, 0, length);
+        add(gameId, dataSize, length, players(records));
+        dataSize += length;
+        if (openGames.size() >= partGames || dataSize >= MAX_PART_BYTES) {
+            sealPart();
+            open();
+        }
+    }
+
+    /**
+     * Seal the open part now and start a new one, so its games are served from the indexes.
+     *
+     * @throws IOException
+     */
+    public synchronized void seal() throws IOException {
+        if (openGames.isEmpty()) return;
+        sealPart();
+        open();
+    }
+
+    /**
+     * Return the records of a game, or an empty list if it is not in the archive.
+     *
+     * @param long gameId
+     * @return List<HistoryRecord> records
+     */
+    public List<HistoryRecord> getGame(long gameId) {
+        byte[] game;
+        synchronized (this) {
+            game = readOpen(openGames.get(gameId));
+        }
+        for (int i = sealed.size() - 1; game == null && i >= 0; i--) {
+            game = sealed.get(i).game(gameId);
+        }
+        return game == null ? Collections.emptyList() : decode(game);
+    }
+
+    /**
+     * Return the last games of a player, newest first.
+     *
+     * @param String playerId, int limit
+     * @return List<List<HistoryRecord>> games
+     */
+    public List<List<HistoryRecord>> getGames(String playerId, int limit) {
+        long key = key(playerId);
+        List<List<HistoryRecord>> games = new ArrayList<>();
+        synchronized (this) {
+            List<Long> ids = openPlayers.getOrDefault(key, Collections.emptyList());
+            for (int i = ids.size() - 1; i >= 0 && games.size() < limit; i--) {
+                collect(readOpen(openGames.get(ids.get(i))), playerId, games);
+            }
+        }
+        for (int i = sealed.size() - 1; i >= 0 && games.size() < limit; i--) {
+            sealed.get(i).games(key, playerId, limit, games);
+        }
+        return games;
+    }
+
+    /**
+     * Add a game found under the key of a player, unless it is a game of another id with the same key. The games
+     * are told apart as they are found, so the games of the other id do not count in the limit.
+     *
+     * @param byte[] game, String playerId, List<List<HistoryRecord>> games
+     */
+    private static void collect(byte[] game, String playerId, List<List<HistoryRecord>> games) {
+        List<HistoryRecord> records = decode(game);
+        if (players(records).contains(playerId)) games.add(records);
+    }
+
+    /**
+     * Return the records of a game as one of its players may see them: the hole cards of the other players are
+     * removed unless they were shown at the showdown. Return null if the player did not play in the game.
+     *
+     * @param List<HistoryRecord> records, String playerId
+     * @return List<HistoryRecord> records
+     */
+    public static List<HistoryRecord> viewOf(List<HistoryRecord> records, String playerId) {
+        if (!players(records).contains(playerId)) return null;
+        Set<String> live = new HashSet<>();
+        Set<String> folded = new HashSet<>();
+        boolean ended = false;
+        for (HistoryRecord record : records) {
+            if (record.getKind() == HistoryRecord.ROUND && record.getCode() == GameAction.PREFLOP.ordinal()) {
+                for (HistoryRecord.Entry entry : record.getEntries()) {
+                    if (!entry.getCards().isEmpty()) live.add(entry.getId());
+                }
+            } else if (record.getKind() == HistoryRecord.ACTION && record.getCode() == PlayerAction.FOLD.ordinal()) {
+                for (HistoryRecord.Entry entry : record.getEntries()) {
+                    folded.add(entry.getId());
+                }
+            } else if (record.getKind() == HistoryRecord.END) {
+                ended = true;
+            }
+        }
+        live.removeAll(folded);
+        Set<String> visible = new HashSet<>();
+        visible.add(playerId);
+        // a hand won when every other player folded is never shown
+        if (ended && live.size() > 1) visible.addAll(live);
+        List<HistoryRecord> view = new ArrayList<>(records.size());
+        for (HistoryRecord record : records) {
+            view.add(record.withCardsOf(visible));
+        }
+        return view;
+    }
+
+    /**
+     * Return the number of archived games.
+     *
+     * @return long count
+     */
+    public synchronized long getGameCount() {
+        long count = openGames.size();
+        for (Part part : sealed) {
+            count += part.count();
+        }
+        return count;
+    }
+
+    public long getStallCount() {
+        return stalls.get();
+    }
+
+    public File getArchiveDirectory() {
+        return directory;
+    }
+
+    /**
+     * Return the key of a player id in the player index, 64 bit FNV-1a of the UTF-8 bytes.
+     *
+     * @param String playerId
+     * @return long key
+     */
+    static long key(String playerId) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : playerId.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static Set<String> players(List<HistoryRecord> records) {
+        Set<String> players = new LinkedHashSet<>();
+        for (HistoryRecord record : records) {
+            for (HistoryRecord.Entry entry : record.getEntries()) {
+                players.add(entry.getId());
+            }
+        }
+        return players;
+    }
+
+    private static List<HistoryRecord> decode(byte[] game) {
+        ByteBuffer header = ByteBuffer.wrap(game).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] raw = new byte[header.getInt(4 + 8)];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(game, GAME_HEADER, game.length - GAME_HEADER);
+            inflater.inflate(raw);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted archived game " + header.getLong(4), e);
+        } finally {
+            inflater.end();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        List<HistoryRecord> records = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            records.add(HistoryRecord.decode(buffer));
+        }
+        return records;
+    }
+
+    private void add(long gameId, long offset, int length, Set<String> players) {
+        openGames.put(gameId, new long[]{offset, length});
+        for (String player : players) {
+            openPlayers.computeIfAbsent(key(player), k -> new ArrayList<>()).add(gameId);
+        }
+    }
+
+    private byte[] readOpen(long[] entry) {
+        if (entry == null) return null;
+        byte[] game = new byte[(int) entry[1]];
+        try {
+            data.seek(entry[0]);
+            data.readFully(game);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot read the open part of the hand archive", e);
+            return null;
+        }
+        return game;
+    }
+
+    private File file(int index, String suffix) {
+        return new File(directory, String.format("%s%06d%s", PART_PREFIX, index, suffix));
+    }
+
+    /**
+     * Map the sealed parts, index and seal a part left open.
+     */
+    private void load() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PART_PREFIX) && name.endsWith(DATA_SUFFIX));
+        if (files == null) files = new File[0];
+        int[] indexes = new int[files.length];
+        for (int i = 0; i < files.length; i++) {
+            String name = files[i].getName();
+            indexes[i] = Integer.parseInt(name.substring(PART_PREFIX.length(), name.length() - DATA_SUFFIX.length()));
+        }
+        Arrays.sort(indexes);
+        for (int index : indexes) {
+            partIndex = index;
+            if (!file(index, GAME_INDEX_SUFFIX).isFile() || !file(index, PLAYER_INDEX_SUFFIX).isFile()) {
+                reindex(index);
+                // nothing was archived in the part before the stop
+                if (openGames.isEmpty()) {
+                    for (String suffix : new String[]{DATA_SUFFIX, GAME_INDEX_SUFFIX, PLAYER_INDEX_SUFFIX}) {
+                        Files.deleteIfExists(file(index, suffix).toPath());
+                    }
+                    continue;
+                }
+            }
+            sealed.add(new Part(index));
+        }
+    }
+
+    /**
+     * Open a new part after the last one.
+     */
+    private void open() throws IOException {
+        partIndex++;
+        data = new RandomAccessFile(file(partIndex, DATA_SUFFIX), "rw");
+        data.setLength(0);
+        dataSize = 0;
+        openGames = new HashMap<>();
+        openPlayers = new HashMap<>();
+    }
+
+    /**
+     * Read back the games of a part left open and write its indexes, a game cut by the crash is dropped.
+     */
+    private void reindex(int index) throws IOException {
+        openGames = new HashMap<>();
+        openPlayers = new HashMap<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file(index, DATA_SUFFIX), "rw")) {
+            data = raf;
+            long size = raf.length();
+            long offset = 0;
+            byte[] header = new byte[GAME_HEADER];
+            while (offset + GAME_HEADER <= size) {
+                raf.seek(offset);
+                raf.readFully(header);
+                int length = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt();
+                if (length < GAME_HEADER || offset + length > size) break;
+                long[] entry = {offset, length};
+                List<HistoryRecord> records;
+                try {
+                    records = decode(readOpen(entry));
+                } catch (RuntimeException e) {
+                    break;
+                }
+                add(records.get(0).getGameId(), offset, length, players(records));
+                offset += length;
+            }
+            raf.setLength(offset);
+            writeIndexes(index);
+        } finally {
+            data = null;
+        }
+        if (!openGames.isEmpty()) logger.warning("Hand archive part " + index + " indexed again with " + openGames.size() + " games");
+    }
+
+    private void sealPart() throws IOException {
+        writeIndexes(partIndex);
+        data.close();
+        data = null;
+        sealed.add(new Part(partIndex));
+    }
+
+    private void writeIndexes(int index) throws IOException {
+        long[] gameIds = new long[openGames.size()];
+        int n = 0;
+        for (long gameId : openGames.keySet()) {
+            gameIds[n++] = gameId;
+        }
+        Arrays.sort(gameIds);
+        File games = file(index, GAME_INDEX_SUFFIX);
+        write(games, gameIds.length * GAME_ENTRY, buffer -> {
+            for (long gameId : gameIds) {
+                long[] entry = openGames.get(gameId);
+                buffer.putLong(gameId).putLong(entry[0]).putInt((int) entry[1]);
+            }
+        });
+        long[] keys = new long[openPlayers.size()];
+        int count = 0;
+        n = 0;
+        for (Map.Entry<Long, List<Long>> player : openPlayers.entrySet()) {
+            keys[n++] = player.getKey();
+            count += player.getValue().size();
+        }
+        Arrays.sort(keys);
+        write(file(index, PLAYER_INDEX_SUFFIX), count * PLAYER_ENTRY, buffer -> {
+            for (long key : keys) {
+                List<Long> ids = new ArrayList<>(openPlayers.get(key));
+                ids.sort(Collections.reverseOrder());
+                for (long gameId : ids) {
+                    long[] entry = openGames.get(gameId);
+                    buffer.putLong(key).putLong(gameId).putLong(entry[0]).putInt((int) entry[1]);
+                }
+            }
+        });
+    }
+
+    private interface Fill {
+        void fill(ByteBuffer buffer);
+    }
+
+    private static void write(File file, int size, Fill fill) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        fill.fill(buffer);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp.toPath()))) {
+            out.write(buffer.array());
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    private void work() {
+        while (true) {
+            try {
+                List<HistoryRecord> records = finished.take();
+                if (!failed) archive(records);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Hand archive failed, games are no longer archived", e);
+                failed = true;
+                finished.clear();
+                playing.clear();
+            }
+        }
+    }
+
+    /**
+     * A sealed part, its data and indexes mapped read only.
+     */
+    private final class Part {
+        private final MappedByteBuffer data;
+        private final MappedByteBuffer games;
+        private final MappedByteBuffer players;
+
+        private Part(int index) throws IOException {
+            this.data = map(file(index, DATA_SUFFIX));
+            this.games = map(file(index, GAME_INDEX_SUFFIX));
+            this.players = map(file(index, PLAYER_INDEX_SUFFIX));
+        }
+
+        private int count() {
+            return games.capacity() / GAME_ENTRY;
+        }
+
+        private byte[] read(long offset, int length) {
+            byte[] game = new byte[length];
+            ByteBuffer view = data.duplicate();
+            view.position((int) offset);
+            view.get(game);
+            return game;
+        }
+
+        private byte[] game(long gameId) {
+            int low = 0;
+            int high = count() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long id = games.getLong(mid * GAME_ENTRY);
+                if (id < gameId) {
+                    low = mid + 1;
+                } else if (id > gameId) {
+                    high = mid - 1;
+                } else {
+                    return read(games.getLong(mid * GAME_ENTRY + 8), games.getInt(mid * GAME_ENTRY + 16));
+                }
+            }
+            return null;
+        }
+
+        private void games(long key, String playerId, int limit, List<List<HistoryRecord>> found) {
+            int n = players.capacity() / PLAYER_ENTRY;
+            int low = 0;
+            int high = n;
+            // the first entry of the key, its games follow newest first
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (players.getLong(mid * PLAYER_ENTRY) < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < n && found.size() < limit && players.getLong(i * PLAYER_ENTRY) == key; i++) {
+                collect(read(players.getLong(i * PLAYER_ENTRY + 16), players.getInt(i * PLAYER_ENTRY + 24)), playerId, found);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads back the segments written by {@link HandHistoryWriter}, oldest segment first.
+ * Records of other games are skipped on their length and game id without being decoded.
+ *
+ * @category com > fcs > pokerserver > history
+ */
+public class HandHistoryReader {
+
+    private static final int MIN_RECORD = 4 + 2 + 8 * 4 + 1 + 1 + 2;
+
+    private static Logger logger = Logger.getLogger(HandHistoryReader.class.getName());
+
+    private final File directory;
+
+    /**
+     * Create new the HandHistoryReader on a directory of segments.
+     *
+     * @param File directory
+     */
+    public HandHistoryReader(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Return the segment files of a directory in the order they were written.
+     *
+     * @param File directory
+     * @return List<File> segments
+     */
+    public static List<File> segments(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(HandHistoryWriter.SEGMENT_PREFIX)
+                && name.endsWith(HandHistoryWriter.SEGMENT_SUFFIX));
+        if (files == null) return new ArrayList<>();
+        Arrays.sort(files, (a, b) -> Integer.compare(segmentIndex(a), segmentIndex(b)));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    /**
+     * Return the index of a segment file from its name.
+     *
+     * @param File segment
+     * @return int index, 0 if the name is not a segment name
+     */
+    public static int segmentIndex(File segment) {
+        String name = segment.getName();
+        try {
+            return Integer.parseInt(name.substring(HandHistoryWriter.SEGMENT_PREFIX.length(),
+                    name.length() - HandHistoryWriter.SEGMENT_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Replay every record of a game in the order it was written.
+     *
+     * @param long gameId, Consumer<HistoryRecord> consumer
+     */
+    public void replay(long gameId, Consumer<HistoryRecord> consumer) {
+        for (File segment : segments(directory)) {
+            read(segment, gameId, consumer);
+        }
+    }
+
+    /**
+     * Return every record of a game in the order it was written.
+     *
+     * @param long gameId
+     * @return List<HistoryRecord> records
+     */
+    public List<HistoryRecord> read(long gameId) {
+        List<HistoryRecord> records = new ArrayList<>();
+        replay(gameId, records::add);
+        return records;
+    }
+
+    /**
+     * Replay every record of every game in the order it was written.
+     *
+     * @param Consumer<HistoryRecord> consumer
+     */
+    public void forEach(Consumer<HistoryRecord> consumer) {
+        for (File segment : segments(directory)) {
+            read(segment, null, consumer);
+        }
+    }
+
+    /**
+     * Read the records of one segment, all of them when the game id is null.
+     *
+     * @param File segment, Long gameId, Consumer<HistoryRecord> consumer
+     */
+    public static void read(File segment, Long gameId, Consumer<HistoryRecord> consumer) {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "r")) {
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot read hand history segment " + segment, e);
+            return;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HandHistoryWriter.HEADER_BYTES || buffer.getInt() != HandHistoryWriter.MAGIC) {
+            logger.log(Level.WARNING, "Not a hand history segment " + segment);
+            return;
+        }
+        buffer.getInt();
+        while (buffer.remaining() >= MIN_RECORD) {
+            int position = buffer.position();
+            int length = buffer.getInt(position);
+            // the zero length after the last record, or a record cut by a crash
+            if (length < MIN_RECORD || length > buffer.remaining()) break;
+            if (gameId == null || buffer.getLong(position + HistoryRecord.GAME_ID_OFFSET) == gameId) {
+                HistoryRecord record;
+                try {
+                    record = HistoryRecord.decode(buffer);
+                } catch (RuntimeException e) {
+                    // a torn record ends the segment, what was read before it is kept
+                    logger.log(Level.WARNING, "Bad hand history record at " + position + " of " + segment + ", the rest is skipped", e);
+                    break;
+                }
+                consumer.accept(record);
+            } else {
+                buffer.position(position + length);
+            }
+        }
+    }
+}
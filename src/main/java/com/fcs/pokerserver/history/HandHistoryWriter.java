@@ -0,0 +1,377 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.history;
+
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Seats;
+import com.fcs.pokerserver.events.AbstractGameEvent;
+import com.fcs.pokerserver.events.AbstractPlayerEvent;
+import com.fcs.pokerserver.events.EndGameEvent;
+import com.fcs.pokerserver.events.GameAction;
+import com.fcs.pokerserver.events.GameListener;
+import com.fcs.pokerserver.events.PlayerAction;
+import com.fcs.pokerserver.events.PlayerActionGameEvent;
+import com.fcs.pokerserver.events.PlayerBetEvent;
+import com.fcs.pokerserver.events.PlayerCallEvent;
+import com.fcs.pokerserver.events.PlayerCheckEvent;
+import com.fcs.pokerserver.events.PlayerFoldEvent;
+import com.fcs.pokerserver.events.RoundGameEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only binary log of the events of every {@link Game}, listening to the games like the room does.
+ * The table loop only encodes a {@link HistoryRecord} and queues it; the "hand-history-writer" thread drains the
+ * queue in batches into a memory-mapped segment file and forces the segment to disk every
+ * {@code pokerserver.history.sync} milliseconds (1000 by default). A segment is a {@link #MAGIC} int, a version int
+ * and records up to the first zero length; a new one is opened when a record does not fit and at every start.
+ * Segments are named {@code history-NNNNNN.seg} in the {@code pokerserver.history.dir} directory
+ * ({@code ~/pokerserver-history} by default) and are {@code pokerserver.history.segment} bytes long (64MB by default).
+ * If the queue is full the table loop waits for the writer rather than losing events.
+ *
+ * @category com > fcs > pokerserver > history
+ */
+public class HandHistoryWriter implements GameListener {
+
+    public static final String DIR_PROPERTY = "pokerserver.history.dir";
+    public static final String SEGMENT_PROPERTY = "pokerserver.history.segment";
+    public static final String SYNC_PROPERTY = "pokerserver.history.sync";
+    public static final int MAGIC = 0x48485347;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 8;
+    public static final String SEGMENT_PREFIX = "history-";
+    public static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final int QUEUE_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 4096;
+    private static final byte[] FLUSH = new byte[0];
+
+    private static Logger logger = Logger.getLogger(HandHistoryWriter.class.getName());
+
+    private static volatile HandHistoryWriter instance;
+
+    private final File directory;
+    private final int segmentSize;
+    private final long syncMillis;
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Queue<CompletableFuture<Void>> flushes = new ConcurrentLinkedQueue<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private volatile boolean failed;
+    private volatile int segmentIndex;
+    private MappedByteBuffer segment;
+
+    /**
+     * Create new the HandHistoryWriter on a directory and start its thread.
+     *
+     * @param File directory, int segmentSize, long syncMillis
+     */
+    public HandHistoryWriter(File directory, int segmentSize, long syncMillis) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncMillis = syncMillis;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.log(Level.SEVERE, "Cannot create hand history directory " + directory);
+            failed = true;
+        }
+        for (File file : HandHistoryReader.segments(directory)) {
+            segmentIndex = Math.max(segmentIndex, HandHistoryReader.segmentIndex(file));
+        }
+        Thread writer = new Thread(this::work, "hand-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Return the writer of the server, configured with the system properties.
+     *
+     * @return HandHistoryWriter instance
+     */
+    public static HandHistoryWriter getInstance() {
+        HandHistoryWriter writer = instance;
+        if (writer == null) {
+            synchronized (HandHistoryWriter.class) {
+                writer = instance;
+                if (writer == null) {
+                    writer = new HandHistoryWriter(getDirectory(), Integer.getInteger(SEGMENT_PROPERTY, 64 << 20),
+                            Long.getLong(SYNC_PROPERTY, 1000));
+                    instance = writer;
+                }
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Return the configured hand history directory.
+     *
+     * @return File directory
+     */
+    public static File getDirectory() {
+        return new File(System.getProperty(DIR_PROPERTY, System.getProperty("user.home") + File.separator + "pokerserver-history"));
+    }
+
+    /**
+     * Encode an event of a game and queue it for the writer thread. Runs on the table loop.
+     *
+     * @param AbstractGameEvent event
+     */
+    @Override
+    public void actionPerformed(AbstractGameEvent event) {
+        HistoryRecord record = toRecord(event);
+        if (record != null) append(record);
+    }
+
+    /**
+     * Queue a record for the writer thread.
+     *
+     * @param HistoryRecord record
+     */
+    public void append(HistoryRecord record) {
+        if (failed) return;
+        byte[] bytes = record.toBytes();
+        if (queue.offer(bytes)) return;
+        stalls.incrementAndGet();
+        try {
+            queue.put(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait until every record queued before the call is written and forced to disk.
+     *
+     * @param long timeoutMillis
+     * @return boolean false if the writer did not finish in time
+     */
+    public boolean flush(long timeoutMillis) {
+        if (failed) return false;
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        flushes.add(done);
+        try {
+            if (!queue.offer(FLUSH, timeoutMillis, TimeUnit.MILLISECONDS)) return false;
+            done.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Return the number of records written to the segments.
+     *
+     * @return long records
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Return the number of times a table loop had to wait for room in the queue.
+     *
+     * @return long stalls
+     */
+    public long getStallCount() {
+        return stalls.get();
+    }
+
+    /**
+     * Return the hand history directory of the writer.
+     *
+     * @return File directory
+     */
+    public File getSegmentDirectory() {
+        return directory;
+    }
+
+    /**
+     * Return the index of the segment being written. A record appended after this call lands in this segment or a
+     * later one.
+     *
+     * @return int segmentIndex
+     */
+    public int getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    /**
+     * Build the record of a game event, null for the events which are not kept.
+     *
+     * @param AbstractGameEvent event
+     * @return HistoryRecord record
+     */
+    static HistoryRecord toRecord(AbstractGameEvent event) {
+        Game game = event.getSrc();
+        long roomId = game.getRoom() != null ? game.getRoom().getRoomID() : 0;
+        long now = System.currentTimeMillis();
+        long pots = game.getPotBalance();
+        if (event instanceof PlayerActionGameEvent) {
+            AbstractPlayerEvent pe = ((PlayerActionGameEvent) event).getPE();
+            PlayerAction action;
+            long amount = 0;
+            if (pe instanceof PlayerBetEvent) {
+                action = PlayerAction.BET;
+                amount = ((PlayerBetEvent) pe).getAmount();
+            } else if (pe instanceof PlayerFoldEvent) {
+                action = PlayerAction.FOLD;
+            } else if (pe instanceof PlayerCheckEvent) {
+                action = PlayerAction.CHECK;
+            } else if (pe instanceof PlayerCallEvent) {
+                action = PlayerAction.CALL;
+            } else {
+                // turn notifications are not actions
+                return null;
+            }
+            Player p = pe.getSrc();
+            List<HistoryRecord.Entry> entries = new ArrayList<>(1);
+            entries.add(new HistoryRecord.Entry(p.getId(), p.getBalance(), null));
+            return new HistoryRecord(HistoryRecord.ACTION, (byte) action.ordinal(), game.getId(), roomId, now, amount, null, entries, null);
+        }
+        if (event instanceof EndGameEvent) {
+            EndGameEvent ege = (EndGameEvent) event;
+            long[] payouts = game.getPayouts();
+            Seats seats = game.getSeats();
+            List<HistoryRecord.Entry> entries = new ArrayList<>(seats.count());
+            for (int m = seats.getOccupied(); m != 0; m &= m - 1) {
+                int seat = Integer.numberOfTrailingZeros(m);
+                Player p = seats.get(seat);
+                long won = payouts == null ? 0 : payouts[seat];
+                byte[] hand = p.isSittingOut() ? null : HistoryRecord.ordinals(p.getPlayerHand().getAllCards());
+                entries.add(new HistoryRecord.Entry(p.getId(), won, hand));
+            }
+            byte[] board = HistoryRecord.ordinals(game.getBoard().getAllCards());
+            return new HistoryRecord(HistoryRecord.END, (byte) 0, game.getId(), roomId, now, pots, board, entries, ege.getRank());
+        }
+        if (event instanceof RoundGameEvent) {
+            byte code = (byte) event.getType().ordinal();
+            List<HistoryRecord.Entry> entries = null;
+            switch (event.getType()) {
+                case WAITTING:
+                case PREFLOP:
+                    // the seated players with their balance, and their hole cards once dealt
+                    Seats seats = game.getSeats();
+                    entries = new ArrayList<>(seats.count());
+                    for (int m = seats.getOccupied(); m != 0; m &= m - 1) {
+                        Player p = seats.get(Integer.numberOfTrailingZeros(m));
+                        byte[] hand = event.getType() == GameAction.PREFLOP
+                                ? HistoryRecord.ordinals(p.getPlayerHand().getAllCards()) : null;
+                        entries.add(new HistoryRecord.Entry(p.getId(), p.getBalance(), hand));
+                    }
+                    break;
+                default:
+                    break;
+            }
+            byte[] board = HistoryRecord.ordinals(game.getBoard().getAllCards());
+            return new HistoryRecord(HistoryRecord.ROUND, code, game.getId(), roomId, now, pots, board, entries, null);
+        }
+        return null;
+    }
+
+    private void work() {
+        List<byte[]> batch = new ArrayList<>(BATCH_SIZE);
+        long lastSync = System.currentTimeMillis();
+        boolean dirty = false;
+        while (true) {
+            try {
+                byte[] first = queue.poll(syncMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, BATCH_SIZE - 1);
+                    boolean flush = false;
+                    for (byte[] record : batch) {
+                        if (record == FLUSH) {
+                            flush = true;
+                        } else if (!failed) {
+                            write(record);
+                            dirty = true;
+                        }
+                    }
+                    batch.clear();
+                    if (flush) {
+                        force();
+                        dirty = false;
+                        lastSync = System.currentTimeMillis();
+                        CompletableFuture<Void> done;
+                        while ((done = flushes.poll()) != null) done.complete(null);
+                    }
+                }
+                if (dirty && System.currentTimeMillis() - lastSync >= syncMillis) {
+                    force();
+                    dirty = false;
+                    lastSync = System.currentTimeMillis();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Hand history writer failed, history is no longer recorded", e);
+                failed = true;
+                queue.clear();
+                CompletableFuture<Void> done;
+                while ((done = flushes.poll()) != null) done.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void write(byte[] record) throws IOException {
+        // a record always leaves room for the zero length which ends the segment
+        if (segment == null || segment.remaining() < record.length + 4) roll(record.length);
+        segment.put(record);
+        written.incrementAndGet();
+    }
+
+    private void force() {
+        if (segment != null) segment.force();
+    }
+
+    private void roll(int recordLength) throws IOException {
+        if (segment != null) segment.force();
+        segmentIndex++;
+        File file = new File(directory, String.format("%s%06d%s", SEGMENT_PREFIX, segmentIndex, SEGMENT_SUFFIX));
+        int size = Math.max(segmentSize, HEADER_BYTES + recordLength + 4);
+        // the mapping stays valid once the file is closed
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+        segment.putInt(MAGIC).putInt(VERSION);
+    }
+}
@@ -0,0 +1,293 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.history;
+
+import com.fcs.pokerserver.Card;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One event of the hand history, as written by {@link HandHistoryWriter}.
+ * A record is little-endian and starts with its length, so a reader can skip it without decoding:
+ * <pre>
+ * int    length     bytes of the whole record, 0 marks the end of the written part of a segment
+ * byte   kind       ROUND, ACTION or END
+ * byte   code       GameAction ordinal of a ROUND, PlayerAction ordinal of an ACTION
+ * long   gameId
+ * long   roomId
+ * long   time       milliseconds since the epoch
+ * long   amount     amount of a bet, total of the pots otherwise
+ * byte   n, n card ordinals             board cards
+ * byte   n, n entries                   players: short length, UTF-8 id, long value, byte n, n card ordinals
+ * short  length, UTF-8 text            rank of the winning hand of an END
+ * </pre>
+ * The value of an entry is the balance of the player, or the chips won for an END.
+ *
+ * @category com > fcs > pokerserver > history
+ */
+public class HistoryRecord {
+
+    public static final byte ROUND = 1;
+    public static final byte ACTION = 2;
+    public static final byte END = 3;
+
+    /**
+     * Offset of the game id in a record.
+     */
+    public static final int GAME_ID_OFFSET = 6;
+
+    private static final Card[] CARDS = Card.values();
+
+    private final byte kind;
+    private final byte code;
+    private final long gameId;
+    private final long roomId;
+    private final long time;
+    private final long amount;
+    private final byte[] cards;
+    private final List<Entry> entries;
+    private final String text;
+
+    /**
+     * Create new the HistoryRecord
+     *
+     * @param byte kind, byte code, long gameId, long roomId, long time, long amount, byte[] cards, List<Entry> entries, String text
+     */
+    public HistoryRecord(byte kind, byte code, long gameId, long roomId, long time, long amount, byte[] cards, List<Entry> entries, String text) {
+        this.kind = kind;
+        this.code = code;
+        this.gameId = gameId;
+        this.roomId = roomId;
+        this.time = time;
+        this.amount = amount;
+        this.cards = cards == null ? new byte[0] : cards;
+        this.entries = entries == null ? Collections.<Entry>emptyList() : entries;
+        this.text = text == null ? "" : text;
+    }
+
+    /**
+     * Encode the record.
+     *
+     * @return byte[] record
+     */
+    public byte[] toBytes() {
+        byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[][] ids = new byte[entries.size()][];
+        int length = 4 + 2 + 8 * 4 + 1 + cards.length + 1 + 2 + textBytes.length;
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = entries.get(i).id.getBytes(StandardCharsets.UTF_8);
+            length += 2 + ids[i].length + 8 + 1 + entries.get(i).cards.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(length).put(kind).put(code);
+        buffer.putLong(gameId).putLong(roomId).putLong(time).putLong(amount);
+        buffer.put((byte) cards.length).put(cards);
+        buffer.put((byte) ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            Entry entry = entries.get(i);
+            buffer.putShort((short) ids[i].length).put(ids[i]).putLong(entry.value);
+            buffer.put((byte) entry.cards.length).put(entry.cards);
+        }
+        buffer.putShort((short) textBytes.length).put(textBytes);
+        return buffer.array();
+    }
+
+    /**
+     * Decode the record at the position of a little-endian buffer and move the position after it.
+     *
+     * @param ByteBuffer buffer
+     * @return HistoryRecord
+     * @throws IllegalArgumentException, BufferUnderflowException, NegativeArraySizeException if the record is torn
+     */
+    public static HistoryRecord decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        int length = buffer.getInt();
+        byte kind = buffer.get();
+        byte code = buffer.get();
+        long gameId = buffer.getLong();
+        long roomId = buffer.getLong();
+        long time = buffer.getLong();
+        long amount = buffer.getLong();
+        byte[] cards = new byte[buffer.get()];
+        buffer.get(cards);
+        checkCards(cards);
+        int count = buffer.get();
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] id = new byte[buffer.getShort()];
+            buffer.get(id);
+            long value = buffer.getLong();
+            byte[] hand = new byte[buffer.get()];
+            buffer.get(hand);
+            checkCards(hand);
+            entries.add(new Entry(new String(id, StandardCharsets.UTF_8), value, hand));
+        }
+        byte[] text = new byte[buffer.getShort()];
+        buffer.get(text);
+        if (buffer.position() > start + length) throw new IllegalArgumentException("Record longer than its length " + length);
+        buffer.position(start + length);
+        return new HistoryRecord(kind, code, gameId, roomId, time, amount, cards, entries, new String(text, StandardCharsets.UTF_8));
+    }
+
+    private static void checkCards(byte[] ordinals) {
+        for (byte ordinal : ordinals) {
+            if (ordinal < 0 || ordinal >= CARDS.length) throw new IllegalArgumentException("Not a card: " + ordinal);
+        }
+    }
+
+    /**
+     * Return a copy of the record which keeps the hole cards of the given players only.
+     *
+     * @param Set<String> visible ids of the players whose cards are kept
+     * @return HistoryRecord record
+     */
+    public HistoryRecord withCardsOf(Set<String> visible) {
+        List<Entry> kept = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            kept.add(entry.cards.length == 0 || visible.contains(entry.id) ? entry : new Entry(entry.id, entry.value, null));
+        }
+        return new HistoryRecord(kind, code, gameId, roomId, time, amount, cards, kept, text);
+    }
+
+    /**
+     * Return the card ordinals of a list of cards.
+     *
+     * @param List<Card> cards
+     * @return byte[] ordinals
+     */
+    public static byte[] ordinals(List<Card> cards) {
+        byte[] ordinals = new byte[cards.size()];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = (byte) cards.get(i).ordinal();
+        }
+        return ordinals;
+    }
+
+    /**
+     * Return the cards of card ordinals.
+     *
+     * @param byte[] ordinals
+     * @return List<Card> cards
+     */
+    public static List<Card> cards(byte[] ordinals) {
+        List<Card> cards = new ArrayList<>(ordinals.length);
+        for (byte ordinal : ordinals) {
+            cards.add(CARDS[ordinal]);
+        }
+        return cards;
+    }
+
+    public byte getKind() {
+        return kind;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public long getRoomId() {
+        return roomId;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Return the board cards of the record.
+     *
+     * @return List<Card> cards
+     */
+    public List<Card> getCards() {
+        return cards(cards);
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"kind\":" + kind + ",\"code\":" + code + ",\"gameId\":" + gameId + ",\"roomId\":" + roomId
+                + ",\"time\":" + time + ",\"amount\":" + amount + ",\"cards\":" + getCards() + ",\"players\":" + entries
+                + ",\"text\":\"" + text + "\"}";
+    }
+
+    /**
+     * A player in a record.
+     */
+    public static final class Entry {
+        private final String id;
+        private final long value;
+        private final byte[] cards;
+
+        /**
+         * Create new the Entry
+         *
+         * @param String id, long value, byte[] cards
+         */
+        public Entry(String id, long value, byte[] cards) {
+            this.id = id;
+            this.value = value;
+            this.cards = cards == null ? new byte[0] : cards;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        /**
+         * Return the cards of the player.
+         *
+         * @return List<Card> cards
+         */
+        public List<Card> getCards() {
+            return cards(cards);
+        }
+
+        @Override
+        public String toString() {
+            return "{\"id\":\"" + id + "\",\"value\":" + value + ",\"cards\":" + getCards() + "}";
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.history;
+
+import com.fcs.pokerserver.Room;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the last {@link TableSnapshot} of every room and writes them all to one file of the hand history directory
+ * every few seconds, when one of them changed. Rooms take their snapshot on their own loop when a hand starts, when
+ * it ends and when a player comes or leaves, so a snapshot plus the records written after it give the chips of the
+ * table at any time.
+ * The file is written beside and renamed over the previous one, a crash leaves either of them whole.
+ *
+ * @category com > fcs > pokerserver > history
+ */
+public class SnapshotStore {
+
+    public static final String INTERVAL_PROPERTY = "pokerserver.snapshot.interval";
+    public static final String SNAPSHOT_FILE = "tables.snap";
+    public static final int MAGIC = 0x54534E50;
+    public static final int VERSION = 1;
+
+    private static Logger logger = Logger.getLogger(SnapshotStore.class.getName());
+
+    private static volatile SnapshotStore instance;
+
+    private final File file;
+    private final HandHistoryWriter history;
+    private final Map<Long, TableSnapshot> tables = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * Create new the SnapshotStore writing to a file every interval, 0 to write only on {@link #write()}.
+     *
+     * @param File file, HandHistoryWriter history, long intervalMillis
+     */
+    public SnapshotStore(File file, HandHistoryWriter history, long intervalMillis) {
+        this.file = file;
+        this.history = history;
+        if (intervalMillis > 0) {
+            Thread writer = new Thread(() -> work(intervalMillis), "table-snapshot");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Singleton pattern to get the SnapshotStore of the hand history directory.
+     *
+     * @return SnapshotStore instance
+     */
+    public static SnapshotStore getInstance() {
+        SnapshotStore store = instance;
+        if (store == null) {
+            synchronized (SnapshotStore.class) {
+                store = instance;
+                if (store == null) {
+                    HandHistoryWriter history = HandHistoryWriter.getInstance();
+                    store = new SnapshotStore(new File(history.getSegmentDirectory(), SNAPSHOT_FILE), history,
+                            Long.getLong(INTERVAL_PROPERTY, 5000));
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Take the snapshot of a room, on the loop of the room.
+     * A hand keeps the segment it started in, whatever the number of snapshots taken while it is played.
+     *
+     * @param Room room
+     */
+    public void capture(Room room) {
+        TableSnapshot snapshot = TableSnapshot.of(room, history.getSegmentIndex());
+        TableSnapshot previous = tables.get(room.getRoomID());
+        if (previous != null && previous.getGameId() == snapshot.getGameId() && previous.getSegment() < snapshot.getSegment()) {
+            snapshot = new TableSnapshot(snapshot.getRoomId(), snapshot.getMasterId(), snapshot.getBlindLevel(),
+                    snapshot.getTableSize(), snapshot.getGameId(), snapshot.isFinished(), previous.getSegment(), snapshot.getStacks());
+        }
+        tables.put(room.getRoomID(), snapshot);
+        dirty = true;
+    }
+
+    /**
+     * Forget the snapshot of a room which is closed.
+     *
+     * @param long roomId
+     */
+    public void remove(long roomId) {
+        if (tables.remove(roomId) != null) dirty = true;
+    }
+
+    /**
+     * Return the last snapshot of a room, or null.
+     *
+     * @param long roomId
+     * @return TableSnapshot snapshot
+     */
+    public TableSnapshot get(long roomId) {
+        return tables.get(roomId);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Write the snapshots of all the rooms now.
+     *
+     * @throws IOException
+     */
+    public synchronized void write() throws IOException {
+        dirty = false;
+        List<TableSnapshot> snapshots = new ArrayList<>(tables.values());
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshots.size());
+            for (TableSnapshot snapshot : snapshots) {
+                snapshot.write(out);
+            }
+            out.flush();
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the snapshots of a file written by {@link #write()}.
+     *
+     * @param File file
+     * @return List<TableSnapshot> snapshots, empty if there is no file
+     * @throws IOException if the file is not a snapshot file or is cut
+     */
+    public static List<TableSnapshot> read(File file) throws IOException {
+        List<TableSnapshot> snapshots = new ArrayList<>();
+        if (!file.isFile()) return snapshots;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a table snapshot file " + file);
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                snapshots.add(TableSnapshot.read(in));
+            }
+        }
+        return snapshots;
+    }
+
+    private void work(long intervalMillis) {
+        while (true) {
+            try {
+                Thread.sleep(intervalMillis);
+                if (dirty) write();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Cannot write table snapshots to " + file, e);
+            }
+        }
+    }
+}
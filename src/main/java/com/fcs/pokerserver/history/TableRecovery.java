@@ -0,0 +1,209 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.history;
+
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.events.GameAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Brings back the tables after a crash: the last {@link TableSnapshot} of every room, then the hand history written
+ * after it. The segments are read in parallel, then every room replays its own records in parallel.
+ * A hand which ended in the log pays as it did, a hand cut by the crash is refunded: every player gets back the
+ * stack he had when it started, so replaying the same files always gives the same chips.
+ *
+ * @category com > fcs > pokerserver > history
+ */
+public class TableRecovery {
+
+    private static Logger logger = Logger.getLogger(TableRecovery.class.getName());
+
+    private final File directory;
+
+    /**
+     * Create new the TableRecovery on the hand history directory holding the snapshot file.
+     *
+     * @param File directory
+     */
+    public TableRecovery(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Return the snapshots of the rooms with the chips of the players once the log is replayed.
+     *
+     * @return List<TableSnapshot> tables
+     */
+    public List<TableSnapshot> recover() {
+        List<TableSnapshot> snapshots;
+        try {
+            snapshots = SnapshotStore.read(new File(directory, SnapshotStore.SNAPSHOT_FILE));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot read the table snapshots of " + directory, e);
+            return new ArrayList<>();
+        }
+        if (snapshots.isEmpty()) return snapshots;
+        Map<Long, TableSnapshot> byRoom = new HashMap<>();
+        int first = Integer.MAX_VALUE;
+        for (TableSnapshot snapshot : snapshots) {
+            byRoom.put(snapshot.getRoomId(), snapshot);
+            first = Math.min(first, snapshot.getSegment());
+        }
+        int from = first;
+        List<File> tail = HandHistoryReader.segments(directory).stream()
+                .filter(f -> HandHistoryReader.segmentIndex(f) >= from).collect(Collectors.toList());
+        // every segment is read on its own, the records of a room are then put back in the order of the segments
+        List<Map<Long, List<HistoryRecord>>> read = tail.parallelStream().map(segment -> {
+            int index = HandHistoryReader.segmentIndex(segment);
+            Map<Long, List<HistoryRecord>> records = new HashMap<>();
+            HandHistoryReader.read(segment, null, r -> {
+                TableSnapshot snapshot = byRoom.get(r.getRoomId());
+                if (snapshot != null && index >= snapshot.getSegment()) {
+                    records.computeIfAbsent(r.getRoomId(), k -> new ArrayList<>()).add(r);
+                }
+            });
+            return records;
+        }).collect(Collectors.toList());
+        Map<Long, List<HistoryRecord>> records = new HashMap<>();
+        for (Map<Long, List<HistoryRecord>> segment : read) {
+            segment.forEach((room, list) -> records.computeIfAbsent(room, k -> new ArrayList<>()).addAll(list));
+        }
+        return snapshots.parallelStream()
+                .map(s -> replay(s, records.getOrDefault(s.getRoomId(), Collections.emptyList())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Replay the records of a room written after its snapshot.
+     *
+     * @param TableSnapshot snapshot, List<HistoryRecord> records of the room in the order they were written
+     * @return TableSnapshot the snapshot with the chips at the end of the log
+     */
+    public static TableSnapshot replay(TableSnapshot snapshot, List<HistoryRecord> records) {
+        Map<String, Long> stacks = new LinkedHashMap<>();
+        for (TableSnapshot.Stack stack : snapshot.getStacks()) {
+            stacks.put(stack.getId(), stack.getBalance());
+        }
+        long gameId = -1;
+        Map<String, Long> start = null;
+        Map<String, Long> last = null;
+        for (HistoryRecord r : records) {
+            // the snapshot of a finished game already holds what it paid
+            if (r.getGameId() < snapshot.getGameId() || (snapshot.isFinished() && r.getGameId() == snapshot.getGameId())) {
+                continue;
+            }
+            // a hand starts with its WAITTING round, a new game id starts one too if that record was lost
+            boolean handStart = r.getKind() == HistoryRecord.ROUND && r.getCode() == GameAction.WAITTING.ordinal();
+            if (r.getGameId() != gameId || handStart) {
+                if (start != null) stacks.putAll(start);
+                gameId = r.getGameId();
+                start = new HashMap<>();
+                last = new HashMap<>();
+                for (Map.Entry<String, Long> stack : stacks.entrySet()) {
+                    start.put(stack.getKey(), stack.getValue());
+                }
+            }
+            switch (r.getKind()) {
+                case HistoryRecord.ROUND:
+                    if (r.getEntries() == null) break;
+                    boolean waiting = r.getCode() == GameAction.WAITTING.ordinal();
+                    for (HistoryRecord.Entry e : r.getEntries()) {
+                        if (!stacks.containsKey(e.getId())) continue;
+                        if (waiting) start.put(e.getId(), e.getValue());
+                        last.put(e.getId(), e.getValue());
+                    }
+                    break;
+                case HistoryRecord.ACTION:
+                    for (HistoryRecord.Entry e : r.getEntries()) {
+                        if (stacks.containsKey(e.getId())) last.put(e.getId(), e.getValue());
+                    }
+                    break;
+                case HistoryRecord.END:
+                    for (Map.Entry<String, Long> stack : start.entrySet()) {
+                        stacks.put(stack.getKey(), last.getOrDefault(stack.getKey(), stack.getValue()));
+                    }
+                    for (HistoryRecord.Entry e : r.getEntries()) {
+                        if (stacks.containsKey(e.getId())) stacks.put(e.getId(), stacks.get(e.getId()) + e.getValue());
+                    }
+                    start = null;
+                    break;
+                default:
+                    break;
+            }
+        }
+        // the hand cut by the crash is refunded
+        if (start != null) stacks.putAll(start);
+        List<TableSnapshot.Stack> recovered = new ArrayList<>(stacks.size());
+        for (TableSnapshot.Stack stack : snapshot.getStacks()) {
+            recovered.add(new TableSnapshot.Stack(stack.getId(), stack.getSeat(), stacks.get(stack.getId()), stack.getGlobalBalance()));
+        }
+        return new TableSnapshot(snapshot.getRoomId(), snapshot.getMasterId(), snapshot.getBlindLevel(), snapshot.getTableSize(),
+                gameId < 0 ? snapshot.getGameId() : gameId, true, snapshot.getSegment(), recovered);
+    }
+
+    /**
+     * Build the rooms and their players from recovered snapshots. A player keeps his seat, his stack and his global
+     * balance, and waits at the table for his next login. A master who had left his room hands it over to the first
+     * player of the snapshot, a table nobody sits at is not brought back.
+     *
+     * @param List<TableSnapshot> tables
+     * @return List<Room> rooms
+     */
+    public static List<Room> restore(List<TableSnapshot> tables) {
+        Map<String, Player> players = new HashMap<>();
+        List<Room> rooms = new ArrayList<>(tables.size());
+        for (TableSnapshot table : tables) {
+            for (TableSnapshot.Stack stack : table.getStacks()) {
+                Player p = players.computeIfAbsent(stack.getId(), Player::new);
+                p.setBalance(stack.getBalance());
+                p.setGlobalBalance(stack.getGlobalBalance());
+            }
+        }
+        for (TableSnapshot table : tables) {
+            if (table.getStacks().isEmpty()) continue;
+            Player master = players.get(table.getStacks().get(0).getId());
+            for (TableSnapshot.Stack stack : table.getStacks()) {
+                if (stack.getId().equals(table.getMasterId())) master = players.get(stack.getId());
+            }
+            Room room = new Room(table.getRoomId(), master, table.getBlindLevel(), table.getTableSize());
+            room.run(() -> {
+                // the master gets back his own seat like the others
+                for (TableSnapshot.Stack stack : table.getStacks()) {
+                    room.restorePlayer(players.get(stack.getId()), stack.getSeat());
+                }
+            });
+            rooms.add(room);
+        }
+        return rooms;
+    }
+}
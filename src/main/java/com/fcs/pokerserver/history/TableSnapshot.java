@@ -0,0 +1,251 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.history;
+
+import com.fcs.pokerserver.BlindLevel;
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.GameStatus;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The chips of one table at a point the hand history can be replayed from: the players of the room with their
+ * stack, the current game and the segment of the hand history where the records of that game start.
+ * While a hand is played, a stack is the one the player had when the hand started.
+ *
+ * @category com > fcs > pokerserver > history
+ */
+public class TableSnapshot {
+
+    private final long roomId;
+    private final String masterId;
+    private final BlindLevel blindLevel;
+    private final int tableSize;
+    private final long gameId;
+    private final boolean finished;
+    private final int segment;
+    private final List<Stack> stacks;
+
+    /**
+     * Create new the TableSnapshot.
+     *
+     * @param long roomId, String masterId, BlindLevel blindLevel, int tableSize, long gameId, boolean finished, int segment, List<Stack> stacks
+     */
+    public TableSnapshot(long roomId, String masterId, BlindLevel blindLevel, int tableSize, long gameId, boolean finished,
+                         int segment, List<Stack> stacks) {
+        this.roomId = roomId;
+        this.masterId = masterId;
+        this.blindLevel = blindLevel;
+        this.tableSize = tableSize;
+        this.gameId = gameId;
+        this.finished = finished;
+        this.segment = segment;
+        this.stacks = Collections.unmodifiableList(stacks);
+    }
+
+    /**
+     * Take the snapshot of a room, on the loop of the room.
+     *
+     * @param Room room, int segment
+     * @return TableSnapshot snapshot
+     */
+    public static TableSnapshot of(Room room, int segment) {
+        Game game = room.getCurrentGame();
+        GameStatus status = game.getStatus();
+        boolean playing = status != GameStatus.NOT_STARTED && status != GameStatus.END_HAND;
+        List<Stack> stacks = new ArrayList<>(room.getListPlayer().size());
+        for (Player p : room.getListPlayer()) {
+            int seat = game.getSeats().seatOf(p);
+            long balance = p.getBalance();
+            // chips already in the pot are given back to the stack the hand started with
+            if (playing && seat >= 0) balance += game.getPot().getContributed(seat);
+            stacks.add(new Stack(p.getId(), seat, balance, p.getGlobalBalance()));
+        }
+        return new TableSnapshot(room.getRoomID(), room.getMaster().getId(), room.getBlindLevel(), room.getTableSize(),
+                game.getId(), status == GameStatus.END_HAND, segment, stacks);
+    }
+
+    /**
+     * Write the snapshot.
+     *
+     * @param DataOutput out
+     * @throws IOException
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(roomId);
+        out.writeUTF(masterId);
+        out.writeByte(blindLevel.ordinal());
+        out.writeByte(tableSize);
+        out.writeLong(gameId);
+        out.writeBoolean(finished);
+        out.writeInt(segment);
+        out.writeShort(stacks.size());
+        for (Stack stack : stacks) {
+            out.writeUTF(stack.id);
+            out.writeByte(stack.seat);
+            out.writeLong(stack.balance);
+            out.writeLong(stack.globalBalance);
+        }
+    }
+
+    /**
+     * Read a snapshot written by {@link #write(DataOutput)}.
+     *
+     * @param DataInput in
+     * @return TableSnapshot snapshot
+     * @throws IOException
+     */
+    public static TableSnapshot read(DataInput in) throws IOException {
+        long roomId = in.readLong();
+        String masterId = in.readUTF();
+        BlindLevel blindLevel = BlindLevel.values()[in.readUnsignedByte()];
+        int tableSize = in.readUnsignedByte();
+        long gameId = in.readLong();
+        boolean finished = in.readBoolean();
+        int segment = in.readInt();
+        int n = in.readUnsignedShort();
+        List<Stack> stacks = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            stacks.add(new Stack(in.readUTF(), in.readByte(), in.readLong(), in.readLong()));
+        }
+        return new TableSnapshot(roomId, masterId, blindLevel, tableSize, gameId, finished, segment, stacks);
+    }
+
+    public long getRoomId() {
+        return roomId;
+    }
+
+    public String getMasterId() {
+        return masterId;
+    }
+
+    public BlindLevel getBlindLevel() {
+        return blindLevel;
+    }
+
+    public int getTableSize() {
+        return tableSize;
+    }
+
+    /**
+     * Return the id of the game the snapshot was taken in.
+     *
+     * @return long gameId
+     */
+    public long getGameId() {
+        return gameId;
+    }
+
+    /**
+     * Return true if the game of the snapshot was over, its chips are already in the stacks.
+     *
+     * @return boolean finished
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Return the first hand history segment holding records of the game of the snapshot.
+     *
+     * @return int segment
+     */
+    public int getSegment() {
+        return segment;
+    }
+
+    public List<Stack> getStacks() {
+        return stacks;
+    }
+
+    /**
+     * Return the stack of a player, or null if he is not in the room.
+     *
+     * @param String id
+     * @return Stack stack
+     */
+    public Stack getStack(String id) {
+        for (Stack stack : stacks) {
+            if (stack.id.equals(id)) return stack;
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "{\"room\":" + roomId + ",\"game\":" + gameId + ",\"finished\":" + finished + ",\"stacks\":" + stacks + "}";
+    }
+
+    /**
+     * The chips of one player of the room.
+     */
+    public static final class Stack {
+        private final String id;
+        private final int seat;
+        private final long balance;
+        private final long globalBalance;
+
+        /**
+         * Create new the Stack.
+         *
+         * @param String id, int seat, long balance, long globalBalance
+         */
+        public Stack(String id, int seat, long balance, long globalBalance) {
+            this.id = id;
+            this.seat = seat;
+            this.balance = balance;
+            this.globalBalance = globalBalance;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Return the seat of the player, -1 if he was not seated.
+         *
+         * @return int seat
+         */
+        public int getSeat() {
+            return seat;
+        }
+
+        public long getBalance() {
+            return balance;
+        }
+
+        public long getGlobalBalance() {
+            return globalBalance;
+        }
+
+        @Override
+        public String toString() {
+            return "{\"id\":\"" + id + "\",\"seat\":" + seat + ",\"balance\":" + balance + "}";
+        }
+    }
+}
@@ -56,6 +56,12 @@ public class Board extends CardHolder {
 
 	private static final long serialVersionUID = -4373461696894251713L;
 
+	/**
+	 * Memoized evaluator state after walking the board cards: number of cards walked in the
+	 * high 32 bits, evaluator state in the low 32 bits. Zero when nothing is cached.
+	 */
+	private transient volatile long evaluationState;
+
 	/**
 	 * Creates new board with five community cards.
 	 * 
@@ -76,6 +82,32 @@ public class Board extends CardHolder {
 		
 	}
 	
+	/**
+	 * Add cards to the board and drop the memoized evaluator state.
+	 * @param Card... cards
+	 * */
+	@Override
+	public void addCard(Card... cards)
+	{
+		super.addCard(cards);
+		this.evaluationState = 0;
+	}
+
+	/**
+	 * Return the memoized evaluator state if it was computed for the current cards, otherwise -1.
+	 */
+	int getEvaluationState(int cardNumber) {
+		long cached = this.evaluationState;
+		return (int) (cached >>> 32) == cardNumber + 1 ? (int) cached : -1;
+	}
+
+	/**
+	 * Memoize the evaluator state reached after walking {@code cardNumber} board cards.
+	 */
+	void setEvaluationState(int cardNumber, int state) {
+		this.evaluationState = ((long) (cardNumber + 1) << 32) | (state & 0xFFFFFFFFL);
+	}
+
 	/**
 	 * Return the Cards in the Flop
 	 * @return List<Card> cards
@@ -92,6 +92,19 @@ public class CardHolder implements Serializable {
 		return cards.size();
 	}
 
+	/**
+	 * Returns the cards stored in the container as a 52-bit mask (see {@link Card#getMask()}).
+	 *
+	 * @return long card mask
+	 */
+	public long getCardMask() {
+		long mask = 0;
+		for (int i = 0, n = cards.size(); i < n; i++) {
+			mask |= cards.get(i).getMask();
+		}
+		return mask;
+	}
+
 	/**
 	 * Creates a card iterator for the cards stored in the container.
 	 * 
@@ -0,0 +1,222 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.holder;
+
+/**
+ * Low-memory seven card evaluator producing the same rank values as {@link TwoPlusTwoHandEvaluator}.
+ * Cards are split into four 13-bit suit masks; flushes, straights and rank multiplicities are found with
+ * bit operations, and the strength inside each hand type comes from two 8192-entry tables (32 KB in total)
+ * instead of the 130 MB state machine.
+ *
+ * @category com > fcs > pokerserver > holder
+ */
+public class CompactHandEvaluator implements HandEvaluator {
+
+    private static final int HIGH_CARD = 1 << 12;
+    private static final int PAIR = 2 << 12;
+    private static final int TWO_PAIR = 3 << 12;
+    private static final int THREE_OF_A_KIND = 4 << 12;
+    private static final int STRAIGHT = 5 << 12;
+    private static final int FLUSH = 6 << 12;
+    private static final int FULL_HOUSE = 7 << 12;
+    private static final int FOUR_OF_A_KIND = 8 << 12;
+    private static final int STRAIGHT_FLUSH = 9 << 12;
+
+    /**
+     * Strength (1..1277) of every five-rank mask that is not a straight, shared by high cards and flushes.
+     */
+    private static final short[] FIVE_RANKS = new short[8192];
+
+    /**
+     * Position of a rank mask among all masks with the same number of ranks, in ascending strength.
+     */
+    private static final short[] ORDINAL = new short[8192];
+
+    static {
+        int[] counters = new int[14];
+        int fiveRanks = 0;
+        for (int mask = 0; mask < 8192; mask++) {
+            int bits = Integer.bitCount(mask);
+            ORDINAL[mask] = (short) counters[bits]++;
+            if (bits == 5 && straightTop(mask) < 0) {
+                FIVE_RANKS[mask] = (short) ++fiveRanks;
+            }
+        }
+    }
+
+    @Override
+    public HandRank evaluate(Board board, Hand hand) {
+        return new HandRank(rank(board, hand));
+    }
+
+    @Override
+    public int rank(Board board, Hand hand) {
+        return evaluate(board.getCardMask() | hand.getCardMask());
+    }
+
+    @Override
+    public int evaluate(int c1, int c2, int c3, int c4, int c5, int c6, int c7) {
+        return evaluate(1L << (c1 - 1) | 1L << (c2 - 1) | 1L << (c3 - 1) | 1L << (c4 - 1)
+                | 1L << (c5 - 1) | 1L << (c6 - 1) | 1L << (c7 - 1));
+    }
+
+    @Override
+    public int evaluate(int[] cards, int offset, int length) {
+        long mask = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            mask |= 1L << (cards[i] - 1);
+        }
+        return evaluate(mask);
+    }
+
+    /**
+     * The state is simply the card mask.
+     */
+    @Override
+    public long initialState() {
+        return 0;
+    }
+
+    @Override
+    public long advance(long state, int card) {
+        return state | 1L << (card - 1);
+    }
+
+    @Override
+    public int rankOfState(long state) {
+        return Long.bitCount(state) < 5 ? 0 : evaluate(state);
+    }
+
+    @Override
+    public int evaluate(long cardMask) {
+        // card code - 1 == rank * 4 + suit
+        int clubs = 0, diamonds = 0, hearts = 0, spades = 0;
+        for (long m = cardMask; m != 0; m &= m - 1) {
+            int i = Long.numberOfTrailingZeros(m);
+            int bit = 1 << (i >>> 2);
+            switch (i & 3) {
+                case 0:
+                    clubs |= bit;
+                    break;
+                case 1:
+                    diamonds |= bit;
+                    break;
+                case 2:
+                    hearts |= bit;
+                    break;
+                default:
+                    spades |= bit;
+            }
+        }
+        if (Long.bitCount(cardMask) < 5) return 0;
+        return evaluateSuits(clubs, diamonds, hearts, spades);
+    }
+
+    private static int evaluateSuits(int s0, int s1, int s2, int s3) {
+        int flush = Integer.bitCount(s0) >= 5 ? s0 : Integer.bitCount(s1) >= 5 ? s1
+                : Integer.bitCount(s2) >= 5 ? s2 : Integer.bitCount(s3) >= 5 ? s3 : 0;
+        if (flush != 0) {
+            // five suited cards out of seven leave no room for a full house or quads
+            int top = straightTop(flush);
+            return top >= 0 ? STRAIGHT_FLUSH | (top - 2) : FLUSH | FIVE_RANKS[keepHighest(flush, 5)];
+        }
+
+        // bit-sliced counter of the cards per rank
+        int ones = 0, twos = 0, fours = 0, carry;
+        carry = ones & s0; ones ^= s0; fours |= twos & carry; twos ^= carry;
+        carry = ones & s1; ones ^= s1; fours |= twos & carry; twos ^= carry;
+        carry = ones & s2; ones ^= s2; fours |= twos & carry; twos ^= carry;
+        carry = ones & s3; ones ^= s3; fours |= twos & carry; twos ^= carry;
+        int ranks = s0 | s1 | s2 | s3;
+        int trips = ones & twos;
+        int pairs = twos & ~ones;
+
+        if (fours != 0) {
+            int quad = highest(fours);
+            int kicker = highest(ranks & ~(1 << quad));
+            return FOUR_OF_A_KIND | (quad * 12 + skip(kicker, quad) + 1);
+        }
+        if (trips != 0) {
+            int trip = highest(trips);
+            int rest = (trips & ~(1 << trip)) | pairs;
+            if (rest != 0) {
+                int pair = highest(rest);
+                return FULL_HOUSE | (trip * 12 + skip(pair, trip) + 1);
+            }
+        }
+        int top = straightTop(ranks);
+        if (top >= 0) {
+            return STRAIGHT | (top - 2);
+        }
+        if (trips != 0) {
+            int trip = highest(trips);
+            int kickers = keepHighest(ranks & ~(1 << trip), 2);
+            return THREE_OF_A_KIND | (trip * 66 + ORDINAL[remove(kickers, trip)] + 1);
+        }
+        if (Integer.bitCount(pairs) >= 2) {
+            int high = highest(pairs);
+            int low = highest(pairs & ~(1 << high));
+            int kicker = highest(ranks & ~(1 << high) & ~(1 << low));
+            return TWO_PAIR | (ORDINAL[(1 << high) | (1 << low)] * 11 + skip(skip(kicker, high), low) + 1);
+        }
+        if (pairs != 0) {
+            int pair = highest(pairs);
+            int kickers = keepHighest(ranks & ~(1 << pair), 3);
+            return PAIR | (pair * 220 + ORDINAL[remove(kickers, pair)] + 1);
+        }
+        return HIGH_CARD | FIVE_RANKS[keepHighest(ranks, 5)];
+    }
+
+    /**
+     * Return the rank index (0 = two .. 12 = ace) of the highest card of the best straight in the mask, or -1.
+     */
+    private static int straightTop(int ranks) {
+        // shift in the ace below the two for the wheel
+        int ext = (ranks << 1) | ((ranks >>> 12) & 1);
+        int run = ext & (ext >>> 1) & (ext >>> 2) & (ext >>> 3) & (ext >>> 4);
+        return run == 0 ? -1 : highest(run) + 3;
+    }
+
+    private static int highest(int mask) {
+        return 31 - Integer.numberOfLeadingZeros(mask);
+    }
+
+    private static int keepHighest(int mask, int count) {
+        while (Integer.bitCount(mask) > count) {
+            mask &= mask - 1;
+        }
+        return mask;
+    }
+
+    /**
+     * Rank index once {@code removed} is taken out of the rank order.
+     */
+    private static int skip(int rank, int removed) {
+        return rank > removed ? rank - 1 : rank;
+    }
+
+    /**
+     * Close the gap left by the rank {@code removed} in the mask.
+     */
+    private static int remove(int mask, int removed) {
+        return (mask & ((1 << removed) - 1)) | ((mask >>> (removed + 1)) << removed);
+    }
+}
@@ -24,11 +24,24 @@ import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 import java.util.zip.ZipInputStream;
 
 import com.google.common.io.Closeables;
@@ -41,6 +54,7 @@ import com.google.common.io.Closeables;
 public class ConfigurationLoader {
 
     private static final int HAND_RANK_SIZE = 32487834;
+    private static final long HAND_RANK_BYTES = HAND_RANK_SIZE * 4L;
     private static Logger log = Logger.getLogger(ConfigurationLoader.class.getName());
     static private ClassLoader classloader = Thread.currentThread().getContextClassLoader();
 
@@ -99,6 +113,174 @@ public class ConfigurationLoader {
         }
     }
 
+    /**
+     * Map hand rank lookup table for poker hands straight from a raw cache file.
+     * The first call extracts the zip resource once into {@code cacheFile} (raw little-endian ints) and records its
+     * CRC-32 and size in {@code cacheFile.crc}; every later call, including other server processes on the same host,
+     * only checks the size of the file against that record and maps it, so the table lives in the shared page cache
+     * instead of the Java heap. The table is moved into place whole, a record only exists for a complete table.
+     *
+     * @param name      file name of the precomputed hand rank zip resource
+     * @param cacheFile raw table file to create or reuse
+     * @return read-only integer view of the hand rank lookup table
+     * @throws Exception
+     */
+    public IntBuffer mapHandRankResource(String name, File cacheFile) throws Exception {
+        Path cache = cacheFile.toPath();
+        try {
+            if (!Files.exists(cache) || Files.size(cache) != HAND_RANK_BYTES || !recordMatches(cache)) {
+                extractZipFile(name, cache);
+            }
+            try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, HAND_RANK_BYTES);
+                return mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+        } catch (IOException e) {
+            throw new ExecutionException("cannot map resource " + name + " to " + cacheFile, e);
+        }
+    }
+
+    /**
+     * Map a raw binary resource read-only. The resource is copied once into {@code cacheFile}, and copied again
+     * only when the CRC-32 of the file differs from the one of the resource, then every call maps the file.
+     *
+     * @param name      resource name
+     * @param cacheFile file to create or reuse
+     * @return read-only little-endian view of the whole resource
+     * @throws Exception
+     */
+    public MappedByteBuffer mapResource(String name, File cacheFile) throws Exception {
+        Path cache = cacheFile.toPath();
+        try {
+            URL url = classloader.getResource(name);
+            if (url == null) {
+                throw new IOException("resource " + name + " not found");
+            }
+            long expected;
+            try (InputStream in = url.openStream()) {
+                expected = checksum(in);
+            }
+            if (!Files.exists(cache) || checksum(cache) != expected) {
+                copyResource(name, cache);
+            }
+            try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                return mapped;
+            }
+        } catch (IOException e) {
+            throw new ExecutionException("cannot map resource " + name + " to " + cacheFile, e);
+        }
+    }
+
+    private static Path checksumFile(Path cache) {
+        return cache.resolveSibling(cache.getFileName() + ".crc");
+    }
+
+    /**
+     * Return true if the cache has the size recorded with its CRC-32 when it was extracted, without reading the
+     * table nor the zip. The record is "crc size", the CRC-32 in hex.
+     */
+    private static boolean recordMatches(Path cache) throws IOException {
+        Path crcFile = checksumFile(cache);
+        if (!Files.exists(crcFile)) {
+            return false;
+        }
+        String[] record = new String(Files.readAllBytes(crcFile), StandardCharsets.US_ASCII).trim().split(" ");
+        try {
+            return record.length == 2 && Long.parseLong(record[0], 16) >= 0 && Long.parseLong(record[1]) == Files.size(cache);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static long checksum(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return checksum(in);
+        }
+    }
+
+    private static long checksum(InputStream in) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[65536];
+        int size;
+        while ((size = in.read(buffer, 0, buffer.length)) != -1) {
+            crc.update(buffer, 0, size);
+        }
+        return crc.getValue();
+    }
+
+    private void copyResource(String name, Path target) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try {
+            try (InputStream in = classloader.getResourceAsStream(name)) {
+                if (in == null) {
+                    throw new IOException("resource " + name + " not found");
+                }
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moveIntoPlace(tmp, target);
+            log.log(Level.INFO, "Copied " + name + " to " + target);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Stream the first entry of a zip resource into {@code target} without buffering it in memory.
+     * The data is written to a temporary file first and moved into place, so a concurrent reader
+     * never maps a partially written table, then its CRC-32 and size are recorded next to it.
+     */
+    private void extractZipFile(String zipname, Path target) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        Path crcTmp = null;
+        try {
+            CRC32 crc = new CRC32();
+            InputStream in = classloader.getResourceAsStream(zipname);
+            if (in == null) {
+                throw new IOException("resource " + zipname + " not found");
+            }
+            try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(in));
+                 OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                if (zis.getNextEntry() == null) {
+                    throw new IOException("resource " + zipname + " is empty");
+                }
+                byte[] buffer = new byte[65536];
+                int size;
+                while ((size = zis.read(buffer, 0, buffer.length)) != -1) {
+                    os.write(buffer, 0, size);
+                    crc.update(buffer, 0, size);
+                }
+            }
+            if (Files.size(tmp) != HAND_RANK_BYTES) {
+                throw new IOException("Read " + Files.size(tmp) + " bytes out of " + HAND_RANK_BYTES);
+            }
+            // the old checksum goes first, a table without its checksum is extracted again
+            Path crcFile = checksumFile(target);
+            Files.deleteIfExists(crcFile);
+            moveIntoPlace(tmp, target);
+            crcTmp = Files.createTempFile(dir, crcFile.getFileName().toString(), ".tmp");
+            Files.write(crcTmp, (Long.toHexString(crc.getValue()) + " " + HAND_RANK_BYTES).getBytes(StandardCharsets.US_ASCII));
+            moveIntoPlace(crcTmp, crcFile);
+            log.log(Level.INFO, "Extracted " + zipname + " to " + target);
+        } finally {
+            Files.deleteIfExists(tmp);
+            if (crcTmp != null) Files.deleteIfExists(crcTmp);
+        }
+    }
+
+    private static void moveIntoPlace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     private static final int littleEndianByteArrayToInt(byte[] b, int offset) {
         return (b[offset + 3] << 24) + ((b[offset + 2] & 0xFF) << 16)
                 + ((b[offset + 1] & 0xFF) << 8) + (b[offset] & 0xFF);
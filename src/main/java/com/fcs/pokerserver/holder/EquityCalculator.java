@@ -0,0 +1,396 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.holder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import com.fcs.pokerserver.Card;
+
+/**
+ * All-in equity of several hole-card hands against a partial board.
+ * When the boards left to deal are few (a flop or later, or up to {@link #DEFAULT_EXACT_LIMIT} boards) every
+ * board is enumerated and the result is exact. Otherwise boards are sampled on a fork-join pool; each worker
+ * has its own {@link SplittableRandom} and works on card masks only, so the sampling loop does not allocate.
+ * An iteration count and a time limit bound the run, which lets it be called inline on a game thread;
+ * an enumeration cut by the time limit returns the boards counted so far and is not marked exact.
+ *
+ * @category com > fcs > pokerserver > holder
+ */
+public class EquityCalculator {
+
+    public static final long DEFAULT_EXACT_LIMIT = 100000;
+    public static final long DEFAULT_ITERATIONS = 200000;
+
+    /**
+     * Number of samples between two checks of the time limit.
+     */
+    private static final int DEADLINE_CHECK = 1024;
+
+    private final HandEvaluator evaluator;
+    private final ForkJoinPool pool;
+    private long exactLimit = DEFAULT_EXACT_LIMIT;
+
+    /**
+     * Create new the EquityCalculator with the configured evaluator and the common fork-join pool.
+     */
+    public EquityCalculator() {
+        this(HandEvaluatorFactory.getInstance(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create new the EquityCalculator
+     *
+     * @param HandEvaluator evaluator, ForkJoinPool pool
+     */
+    public EquityCalculator(HandEvaluator evaluator, ForkJoinPool pool) {
+        this.evaluator = evaluator;
+        this.pool = pool;
+    }
+
+    /**
+     * Return the largest number of remaining boards that is enumerated instead of sampled.
+     *
+     * @return long exact limit
+     */
+    public long getExactLimit() {
+        return exactLimit;
+    }
+
+    /**
+     * The method to set the largest number of remaining boards that is enumerated instead of sampled.
+     *
+     * @param long exactLimit
+     */
+    public void setExactLimit(long exactLimit) {
+        this.exactLimit = exactLimit;
+    }
+
+    /**
+     * Compute the equity of the hands with the default iteration budget and no time limit.
+     *
+     * @param List<Hand> hands, Board board, List<Card> deadCards
+     * @return EquityResult indexed like {@code hands}
+     */
+    public EquityResult calculate(List<Hand> hands, Board board, List<Card> deadCards) {
+        return calculate(hands, board, deadCards, DEFAULT_ITERATIONS, 0);
+    }
+
+    /**
+     * Compute the equity of the hands.
+     *
+     * @param List<Hand> hands, Board board (may be null or partial), List<Card> deadCards (may be null),
+     *                   long maxIterations sampled boards, long maxMillis time limit (0 for none)
+     * @return EquityResult indexed like {@code hands}
+     */
+    public EquityResult calculate(List<Hand> hands, Board board, List<Card> deadCards, long maxIterations, long maxMillis) {
+        long[] masks = new long[hands.size()];
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = hands.get(i).getCardMask();
+        }
+        long dead = 0;
+        if (deadCards != null) {
+            for (Card card : deadCards) dead |= card.getMask();
+        }
+        return calculate(masks, board == null ? 0 : board.getCardMask(), dead, maxIterations, maxMillis);
+    }
+
+    /**
+     * Compute the equity of hands given as card masks (bit {@code Card.getEvaluation() - 1}).
+     *
+     * @param long[] hands two cards each, long board up to five cards, long dead cards,
+     *               long maxIterations sampled boards, long maxMillis time limit (0 for none)
+     * @return EquityResult indexed like {@code hands}
+     * @throws IllegalArgumentException if a hand is not two cards or cards are used twice
+     */
+    public EquityResult calculate(long[] hands, long board, long dead, long maxIterations, long maxMillis) {
+        if (hands.length == 0) throw new IllegalArgumentException("No hand to compute");
+        if (Long.bitCount(board) > 5) throw new IllegalArgumentException("Board has more than five cards");
+        long used = board | dead;
+        int usedCount = Long.bitCount(board) + Long.bitCount(dead);
+        for (long hand : hands) {
+            if (Long.bitCount(hand) != 2) throw new IllegalArgumentException("Hand must have two cards");
+            used |= hand;
+            usedCount += 2;
+        }
+        if (Long.bitCount(used) != usedCount) throw new IllegalArgumentException("A card is used twice");
+
+        int toDeal = 5 - Long.bitCount(board);
+        int[] remaining = new int[52 - usedCount];
+        for (int i = 0, n = 0; i < 52; i++) {
+            if ((used & 1L << i) == 0) remaining[n++] = i;
+        }
+        if (remaining.length < toDeal) throw new IllegalArgumentException("Not enough cards left to deal");
+
+        long deadline = maxMillis > 0 ? System.nanoTime() + maxMillis * 1000000 : 0;
+        if (combinations(remaining.length, toDeal) <= exactLimit) {
+            Tally tally = new Tally(evaluator, hands);
+            boolean complete = tally.enumerate(remaining, 0, toDeal, board, deadline);
+            return tally.result(complete);
+        }
+
+        int parallelism = (int) Math.max(1, Math.min(pool.getParallelism(), maxIterations / DEADLINE_CHECK));
+        SplittableRandom seed = new SplittableRandom();
+        List<Simulation> workers = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            long share = maxIterations / parallelism + (i < maxIterations % parallelism ? 1 : 0);
+            workers.add(new Simulation(new Tally(evaluator, hands), remaining, toDeal, board, share, deadline, seed.split()));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(workers)));
+        Tally total = new Tally(evaluator, hands);
+        for (Simulation worker : workers) total.add(worker.tally);
+        return total.result(false);
+    }
+
+    /**
+     * Compute the equity of one hand against 1 to {@code maxOpponents} opponents holding random cards.
+     * Every sample deals all opponents at once and scores the hand against the first {@code k} of them for
+     * each {@code k}, so one run fills every opponent count.
+     *
+     * @param long hand two cards, int maxOpponents, long board up to five cards, long dead cards,
+     *             long maxIterations sampled deals, long maxMillis time limit (0 for none)
+     * @return double[] equity against {@code k} opponents at index {@code k - 1}, all 0 if no deal was sampled
+     * @throws IllegalArgumentException if the cards are invalid or too few are left to deal
+     */
+    public double[] calculateAgainstRandom(long hand, int maxOpponents, long board, long dead, long maxIterations, long maxMillis) {
+        if (Long.bitCount(hand) != 2) throw new IllegalArgumentException("Hand must have two cards");
+        if (maxOpponents < 1) throw new IllegalArgumentException("At least one opponent is needed");
+        if (Long.bitCount(board) > 5) throw new IllegalArgumentException("Board has more than five cards");
+        long used = hand | board | dead;
+        if (Long.bitCount(used) != Long.bitCount(hand) + Long.bitCount(board) + Long.bitCount(dead)) {
+            throw new IllegalArgumentException("A card is used twice");
+        }
+        int toDeal = 5 - Long.bitCount(board);
+        int[] remaining = new int[52 - Long.bitCount(used)];
+        for (int i = 0, n = 0; i < 52; i++) {
+            if ((used & 1L << i) == 0) remaining[n++] = i;
+        }
+        if (remaining.length < toDeal + 2 * maxOpponents) throw new IllegalArgumentException("Not enough cards left to deal");
+
+        long deadline = maxMillis > 0 ? System.nanoTime() + maxMillis * 1000000 : 0;
+        int parallelism = (int) Math.max(1, Math.min(pool.getParallelism(), maxIterations / DEADLINE_CHECK));
+        SplittableRandom seed = new SplittableRandom();
+        List<RandomOpponents> workers = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            long share = maxIterations / parallelism + (i < maxIterations % parallelism ? 1 : 0);
+            workers.add(new RandomOpponents(evaluator, hand, maxOpponents, remaining, toDeal, board, share, deadline, seed.split()));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(workers)));
+        double[] equity = new double[maxOpponents];
+        long samples = 0;
+        for (RandomOpponents worker : workers) {
+            for (int k = 0; k < maxOpponents; k++) equity[k] += worker.equity[k];
+            samples += worker.samples;
+        }
+        if (samples == 0) return equity;
+        for (int k = 0; k < maxOpponents; k++) equity[k] /= samples;
+        return equity;
+    }
+
+    static long combinations(int n, int k) {
+        long c = 1;
+        for (int i = 0; i < k; i++) {
+            c = c * (n - i) / (i + 1);
+        }
+        return c;
+    }
+
+    /**
+     * Win, tie and equity counters of one worker.
+     */
+    private static class Tally {
+        private final HandEvaluator evaluator;
+        private final long[] hands;
+        private final int[] ranks;
+        private final long[] wins;
+        private final long[] ties;
+        private final double[] equity;
+        private long samples;
+
+        Tally(HandEvaluator evaluator, long[] hands) {
+            this.evaluator = evaluator;
+            this.hands = hands;
+            this.ranks = new int[hands.length];
+            this.wins = new long[hands.length];
+            this.ties = new long[hands.length];
+            this.equity = new double[hands.length];
+        }
+
+        void score(long board) {
+            int best = -1;
+            int winners = 0;
+            for (int i = 0; i < hands.length; i++) {
+                int rank = evaluator.evaluate(board | hands[i]);
+                ranks[i] = rank;
+                if (rank > best) {
+                    best = rank;
+                    winners = 1;
+                } else if (rank == best) {
+                    winners++;
+                }
+            }
+            double share = 1.0 / winners;
+            for (int i = 0; i < hands.length; i++) {
+                if (ranks[i] != best) continue;
+                if (winners == 1) wins[i]++;
+                else ties[i]++;
+                equity[i] += share;
+            }
+            samples++;
+        }
+
+        /**
+         * Score every board completed from {@code deck}, or stop once the deadline (0 for none) has passed.
+         *
+         * @return boolean false if the deadline cut the enumeration
+         */
+        boolean enumerate(int[] deck, int start, int left, long board, long deadline) {
+            if (left == 0) {
+                if (deadline != 0 && samples > 0 && samples % DEADLINE_CHECK == 0 && System.nanoTime() - deadline >= 0) return false;
+                score(board);
+                return true;
+            }
+            for (int i = start; i <= deck.length - left; i++) {
+                if (!enumerate(deck, i + 1, left - 1, board | 1L << deck[i], deadline)) return false;
+            }
+            return true;
+        }
+
+        void add(Tally other) {
+            for (int i = 0; i < hands.length; i++) {
+                wins[i] += other.wins[i];
+                ties[i] += other.ties[i];
+                equity[i] += other.equity[i];
+            }
+            samples += other.samples;
+        }
+
+        EquityResult result(boolean exact) {
+            return new EquityResult(samples, exact, wins, ties, equity);
+        }
+    }
+
+    /**
+     * One Monte Carlo worker drawing random boards with a partial Fisher-Yates shuffle of its own deck copy.
+     */
+    private static class Simulation extends RecursiveAction {
+        private static final long serialVersionUID = 5600833974229308740L;
+
+        private final Tally tally;
+        private final int[] deck;
+        private final int toDeal;
+        private final long board;
+        private final long iterations;
+        private final long deadline;
+        private final SplittableRandom random;
+
+        Simulation(Tally tally, int[] deck, int toDeal, long board, long iterations, long deadline, SplittableRandom random) {
+            this.tally = tally;
+            this.deck = deck.clone();
+            this.toDeal = toDeal;
+            this.board = board;
+            this.iterations = iterations;
+            this.deadline = deadline;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            int n = deck.length;
+            for (long i = 0; i < iterations; i++) {
+                if (deadline != 0 && i > 0 && i % DEADLINE_CHECK == 0 && System.nanoTime() - deadline >= 0) break;
+                long sample = board;
+                for (int j = 0; j < toDeal; j++) {
+                    int r = j + random.nextInt(n - j);
+                    int card = deck[r];
+                    deck[r] = deck[j];
+                    deck[j] = card;
+                    sample |= 1L << card;
+                }
+                tally.score(sample);
+            }
+        }
+    }
+
+    /**
+     * One Monte Carlo worker dealing the board and the cards of every opponent.
+     */
+    private static class RandomOpponents extends RecursiveAction {
+        private static final long serialVersionUID = -3011440223882461359L;
+
+        private final HandEvaluator evaluator;
+        private final long hand;
+        private final int opponents;
+        private final int[] deck;
+        private final int toDeal;
+        private final long board;
+        private final long iterations;
+        private final long deadline;
+        private final SplittableRandom random;
+        private final double[] equity;
+        private long samples;
+
+        RandomOpponents(HandEvaluator evaluator, long hand, int opponents, int[] deck, int toDeal, long board,
+                        long iterations, long deadline, SplittableRandom random) {
+            this.evaluator = evaluator;
+            this.hand = hand;
+            this.opponents = opponents;
+            this.deck = deck.clone();
+            this.toDeal = toDeal;
+            this.board = board;
+            this.iterations = iterations;
+            this.deadline = deadline;
+            this.random = random;
+            this.equity = new double[opponents];
+        }
+
+        @Override
+        protected void compute() {
+            int n = deck.length;
+            int draw = toDeal + 2 * opponents;
+            for (long i = 0; i < iterations; i++) {
+                if (deadline != 0 && i > 0 && i % DEADLINE_CHECK == 0 && System.nanoTime() - deadline >= 0) break;
+                for (int j = 0; j < draw; j++) {
+                    int r = j + random.nextInt(n - j);
+                    int card = deck[r];
+                    deck[r] = deck[j];
+                    deck[j] = card;
+                }
+                long sample = board;
+                for (int j = 0; j < toDeal; j++) sample |= 1L << deck[j];
+                int rank = evaluator.evaluate(sample | hand);
+                int tied = 0;
+                for (int k = 0, j = toDeal; k < opponents; k++, j += 2) {
+                    int other = evaluator.evaluate(sample | 1L << deck[j] | 1L << deck[j + 1]);
+                    // beaten by one of the first k opponents, so by every larger table too
+                    if (other > rank) break;
+                    if (other == rank) tied++;
+                    equity[k] += 1.0 / (tied + 1);
+                }
+                samples++;
+            }
+        }
+    }
+}
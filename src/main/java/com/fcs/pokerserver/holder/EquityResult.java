@@ -0,0 +1,113 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.holder;
+
+import java.util.Locale;
+
+/**
+ * Outcome of an {@link EquityCalculator} run, indexed like the hands it was given.
+ * Equity counts a win as 1 and a tie between {@code m} hands as {@code 1/m}.
+ *
+ * @category com > fcs > pokerserver > holder
+ */
+public class EquityResult {
+
+    private final long samples;
+    private final boolean exact;
+    private final long[] wins;
+    private final long[] ties;
+    private final double[] equity;
+
+    EquityResult(long samples, boolean exact, long[] wins, long[] ties, double[] equity) {
+        this.samples = samples;
+        this.exact = exact;
+        this.wins = wins;
+        this.ties = ties;
+        this.equity = equity;
+    }
+
+    /**
+     * Return the number of hands.
+     *
+     * @return int size
+     */
+    public int size() {
+        return equity.length;
+    }
+
+    /**
+     * Return the number of boards evaluated.
+     *
+     * @return long samples
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * Return true if every remaining board was enumerated, false for a Monte Carlo estimate.
+     *
+     * @return boolean exact
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Return the share of the pot a hand wins on average, between 0 and 1.
+     *
+     * @param int index
+     * @return double equity
+     */
+    public double getEquity(int index) {
+        return samples == 0 ? 0 : equity[index] / samples;
+    }
+
+    /**
+     * Return the probability that a hand wins alone.
+     *
+     * @param int index
+     * @return double win probability
+     */
+    public double getWinProbability(int index) {
+        return samples == 0 ? 0 : (double) wins[index] / samples;
+    }
+
+    /**
+     * Return the probability that a hand splits the pot.
+     *
+     * @param int index
+     * @return double tie probability
+     */
+    public double getTieProbability(int index) {
+        return samples == 0 ? 0 : (double) ties[index] / samples;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{\"samples\":" + samples + ",\"exact\":" + exact + ",\"equity\":[");
+        for (int i = 0; i < equity.length; i++) {
+            if (i > 0) builder.append(",");
+            builder.append(String.format(Locale.ROOT, "%.4f", getEquity(i)));
+        }
+        return builder.append("]}").toString();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.holder;
+
+/**
+ * Common interface of the poker hand evaluation engines.
+ * Every engine returns rank values on the two plus two scale: the {@link HandType} ordinal in bits 12 and up,
+ * the strength inside the type in the low 12 bits. Engines are interchangeable and rank hands identically.
+ *
+ * Cards are passed either as {@link com.fcs.pokerserver.Card} holders, as 2+2 card codes
+ * ({@link com.fcs.pokerserver.Card#getEvaluation()}, 1..52) or as a 52-bit mask
+ * ({@link com.fcs.pokerserver.Card#getMask()}).
+ * <p>
+ * Hands that grow card by card, like a player's hand over the streets, can be evaluated incrementally:
+ * start from {@link #initialState()}, {@link #advance(long, int)} with each new card and read
+ * {@link #rankOfState(long)}. States are opaque and only meaningful to the engine that made them.
+ *
+ * @category com > fcs > pokerserver > holder
+ */
+public interface HandEvaluator {
+
+    /**
+     * The method to evaluate the card on Player's hand
+     *
+     * @param Board board, Hand hand
+     * @return HandRank
+     */
+    public HandRank evaluate(Board board, Hand hand);
+
+    /**
+     * Evaluate the board and the hand without allocating anything.
+     *
+     * @param Board board, Hand hand
+     * @return int raw rank value
+     */
+    public int rank(Board board, Hand hand);
+
+    /**
+     * Evaluate seven cards given by their 2+2 card codes.
+     *
+     * @return int raw rank value
+     */
+    public int evaluate(int c1, int c2, int c3, int c4, int c5, int c6, int c7);
+
+    /**
+     * Evaluate five to seven cards given by their 2+2 card codes.
+     *
+     * @param cards  array holding the card codes
+     * @param offset index of the first card
+     * @param length number of cards, between 5 and 7
+     * @return int raw rank value
+     */
+    public int evaluate(int[] cards, int offset, int length);
+
+    /**
+     * Evaluate five to seven cards given as a 52-bit mask.
+     *
+     * @param long cardMask
+     * @return int raw rank value
+     */
+    public int evaluate(long cardMask);
+
+    /**
+     * Return the incremental state of an empty hand.
+     *
+     * @return long state
+     */
+    public long initialState();
+
+    /**
+     * Add one card, given by its 2+2 card code, to an incremental state.
+     *
+     * @param long state, int card
+     * @return long the new state
+     */
+    public long advance(long state, int card);
+
+    /**
+     * Return the rank of an incremental state holding five to seven cards, 0 with fewer cards.
+     *
+     * @param long state
+     * @return int raw rank value
+     */
+    public int rankOfState(long state);
+}
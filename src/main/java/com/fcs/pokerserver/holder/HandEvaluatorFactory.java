@@ -0,0 +1,154 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.holder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Select the {@link HandEvaluator} engine of the deployment.
+ * The engine is chosen with the {@code pokerserver.evaluator} system property:
+ * {@code twoplustwo} (default, fastest, ~130 MB table) or {@code compact} (a few KB of tables).
+ * <p>
+ * The server calls {@link #warmUp()} at startup so the engine loads on a background thread; {@link #isReady()}
+ * tells whether games can be started without stalling their table. A failed load is retried by {@link #getInstance()},
+ * and by {@link #isReady()} once {@code pokerserver.evaluator.retry} milliseconds (5000 by default) have passed.
+ *
+ * @category com > fcs > pokerserver > holder
+ */
+public class HandEvaluatorFactory {
+
+    public static final String EVALUATOR_PROPERTY = "pokerserver.evaluator";
+    public static final String RETRY_PROPERTY = "pokerserver.evaluator.retry";
+
+    private static Logger log = Logger.getLogger(HandEvaluatorFactory.class.getName());
+
+    private static volatile HandEvaluator instance;
+    private static volatile long loadMillis = -1;
+    private static CompletableFuture<HandEvaluator> loading;
+    private static boolean failed;
+    private static long failedAt;
+
+    private HandEvaluatorFactory() {
+    }
+
+    /**
+     * Return the configured evaluator engine, waiting for a load in progress if needed.
+     *
+     * @return HandEvaluator instance
+     */
+    public static HandEvaluator getInstance() {
+        HandEvaluator evaluator = instance;
+        if (evaluator != null) return evaluator;
+        try {
+            return warmUp().join();
+        } catch (CompletionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Start loading the configured engine on a background thread. Calling it again returns the same load.
+     *
+     * @return CompletableFuture completed with the engine once it is loaded
+     */
+    public static synchronized CompletableFuture<HandEvaluator> warmUp() {
+        if (loading == null) {
+            CompletableFuture<HandEvaluator> future = new CompletableFuture<>();
+            loading = future;
+            failed = false;
+            Thread loader = new Thread(() -> load(future), "hand-evaluator-loader");
+            loader.setDaemon(true);
+            loader.start();
+        }
+        return loading;
+    }
+
+    private static void load(CompletableFuture<HandEvaluator> future) {
+        long start = System.nanoTime();
+        try {
+            HandEvaluator evaluator = create(System.getProperty(EVALUATOR_PROPERTY, "twoplustwo"));
+            loadMillis = (System.nanoTime() - start) / 1000000;
+            instance = evaluator;
+            log.log(Level.INFO, "Hand evaluator " + evaluator.getClass().getSimpleName() + " loaded in " + loadMillis + " ms");
+            future.complete(evaluator);
+        } catch (Throwable e) {
+            log.log(Level.SEVERE, "Cannot load hand evaluator", e);
+            synchronized (HandEvaluatorFactory.class) {
+                // let the next caller retry
+                loading = null;
+                failed = true;
+                failedAt = System.nanoTime();
+            }
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Return true once the engine is loaded and published. While it is not, a failed load is started again
+     * after the retry delay.
+     *
+     * @return boolean ready
+     */
+    public static boolean isReady() {
+        if (instance != null) return true;
+        retryFailedLoad();
+        return false;
+    }
+
+    private static synchronized void retryFailedLoad() {
+        long delay = TimeUnit.MILLISECONDS.toNanos(Long.getLong(RETRY_PROPERTY, 5000));
+        if (failed && loading == null && System.nanoTime() - failedAt >= delay) {
+            log.log(Level.INFO, "Retrying to load the hand evaluator");
+            warmUp();
+        }
+    }
+
+    /**
+     * Return how long the engine took to load, or -1 while it is not loaded.
+     *
+     * @return long milliseconds
+     */
+    public static long getLoadMillis() {
+        return loadMillis;
+    }
+
+    /**
+     * Create the evaluator engine with the given name.
+     *
+     * @param String name
+     * @return HandEvaluator
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static HandEvaluator create(String name) {
+        switch (name.toLowerCase()) {
+            case "twoplustwo":
+                return TwoPlusTwoHandEvaluator.getInstance();
+            case "compact":
+                return new CompactHandEvaluator();
+            default:
+                throw new IllegalArgumentException("Unknown hand evaluator " + name);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.holder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Build the {@link PreflopEquityTable} resource with the parallel {@link EquityCalculator}.
+ * Run it with {@code gradle generatePreflopEquity}; the arguments are the output file and the number of
+ * sampled deals per starting hand.
+ *
+ * @category com > fcs > pokerserver > holder
+ */
+public class PreflopEquityGenerator {
+
+    private static Logger log = Logger.getLogger(PreflopEquityGenerator.class.getName());
+
+    private PreflopEquityGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        File output = new File(args.length > 0 ? args[0] : "src/main/resources/" + PreflopEquityTable.RESOURCE);
+        int samples = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        long start = System.currentTimeMillis();
+        Files.write(output.toPath(), generate(samples).array());
+        log.log(Level.INFO, "Wrote " + output + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Compute the whole table.
+     *
+     * @param int samples sampled deals per starting hand
+     * @return ByteBuffer table content in the {@link PreflopEquityTable} format
+     */
+    public static ByteBuffer generate(int samples) {
+        // the compact engine needs no table and the results are the same with both engines
+        EquityCalculator calculator = new EquityCalculator(new CompactHandEvaluator(), ForkJoinPool.commonPool());
+        int max = PreflopEquityTable.MAX_OPPONENTS;
+        ByteBuffer buffer = ByteBuffer.allocate(PreflopEquityTable.HEADER_BYTES + PreflopEquityTable.STARTING_HANDS * max * 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(PreflopEquityTable.MAGIC).putInt(PreflopEquityTable.VERSION)
+                .putInt(PreflopEquityTable.STARTING_HANDS).putInt(max).putInt(samples);
+        for (int hand = 0; hand < PreflopEquityTable.STARTING_HANDS; hand++) {
+            double[] equity = calculator.calculateAgainstRandom(PreflopEquityTable.representative(hand), max, 0, 0, samples, 0);
+            for (int k = 0; k < max; k++) {
+                buffer.putFloat((float) equity[k]);
+            }
+            log.log(Level.FINE, PreflopEquityTable.handName(hand) + " " + equity[0]);
+        }
+        return buffer;
+    }
+}
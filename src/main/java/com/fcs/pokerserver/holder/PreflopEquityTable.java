@@ -0,0 +1,168 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.holder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import com.fcs.pokerserver.Card;
+
+/**
+ * Precomputed preflop all-in equity of the 169 starting hands against 1 to 9 opponents holding random cards.
+ * The table is generated by {@link PreflopEquityGenerator} into the {@code PreflopEquity.dat} resource and
+ * memory-mapped, so a lookup is a single read.
+ * <p>
+ * Starting hands are indexed on a 13 x 13 grid of ranks (two = 0 ... ace = 12): pairs on the diagonal,
+ * suited hands at {@code high * 13 + low} and offsuit hands at {@code low * 13 + high}.
+ *
+ * @category com > fcs > pokerserver > holder
+ */
+public class PreflopEquityTable {
+
+    public static final String RESOURCE = "PreflopEquity.dat";
+    public static final String CACHE_FILE_PROPERTY = "pokerserver.preflopequity.cache";
+
+    public static final int MAGIC = 0x50464551;
+    public static final int VERSION = 1;
+    public static final int STARTING_HANDS = 169;
+    public static final int MAX_OPPONENTS = 9;
+
+    /**
+     * Header: magic, version, starting hands, max opponents, samples per hand; then the equities as floats.
+     */
+    static final int HEADER_BYTES = 5 * 4;
+
+    private static final String RANKS = "23456789TJQKA";
+
+    private static volatile PreflopEquityTable instance;
+
+    private final ByteBuffer table;
+    private final int samples;
+
+    PreflopEquityTable(ByteBuffer table) {
+        if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION || table.getInt(8) != STARTING_HANDS
+                || table.getInt(12) != MAX_OPPONENTS || table.capacity() != HEADER_BYTES + STARTING_HANDS * MAX_OPPONENTS * 4) {
+            throw new IllegalStateException("Invalid preflop equity table");
+        }
+        this.table = table;
+        this.samples = table.getInt(16);
+    }
+
+    /**
+     * Return the table mapped from the {@code PreflopEquity.dat} resource.
+     *
+     * @return PreflopEquityTable instance
+     */
+    public static PreflopEquityTable getInstance() {
+        PreflopEquityTable result = instance;
+        if (result == null) {
+            synchronized (PreflopEquityTable.class) {
+                result = instance;
+                if (result == null) {
+                    File cache = new File(System.getProperty(CACHE_FILE_PROPERTY,
+                            System.getProperty("java.io.tmpdir") + File.separator + "pokerserver-" + RESOURCE));
+                    try {
+                        result = new PreflopEquityTable(new ConfigurationLoader().mapResource(RESOURCE, cache));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return the number of sampled deals behind each starting hand.
+     *
+     * @return int samples
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * Return the preflop equity of a starting hand against random opponents.
+     *
+     * @param int handIndex 0..168, int opponents 1..9
+     * @return float equity between 0 and 1
+     */
+    public float getEquity(int handIndex, int opponents) {
+        if (opponents < 1 || opponents > MAX_OPPONENTS) throw new IllegalArgumentException("Opponents must be 1 to " + MAX_OPPONENTS);
+        return table.getFloat(HEADER_BYTES + (handIndex * MAX_OPPONENTS + opponents - 1) * 4);
+    }
+
+    /**
+     * Return the preflop equity of the two hole cards against random opponents.
+     *
+     * @param Hand hand, int opponents 1..9
+     * @return float equity between 0 and 1
+     */
+    public float getEquity(Hand hand, int opponents) {
+        return getEquity(handIndex(hand.getCard(0), hand.getCard(1)), opponents);
+    }
+
+    /**
+     * Return the starting hand index of two hole cards.
+     *
+     * @param Card first, Card second
+     * @return int index 0..168
+     */
+    public static int handIndex(Card first, Card second) {
+        int r1 = (first.getEvaluation() - 1) >> 2;
+        int r2 = (second.getEvaluation() - 1) >> 2;
+        int high = Math.max(r1, r2);
+        int low = Math.min(r1, r2);
+        boolean suited = first.getSuit() == second.getSuit();
+        return suited ? high * 13 + low : low * 13 + high;
+    }
+
+    /**
+     * Return the usual name of a starting hand, such as {@code AA}, {@code AKs} or {@code T9o}.
+     *
+     * @param int handIndex 0..168
+     * @return String name
+     */
+    public static String handName(int handIndex) {
+        int row = handIndex / 13;
+        int column = handIndex % 13;
+        if (row == column) return "" + RANKS.charAt(row) + RANKS.charAt(row);
+        if (row > column) return "" + RANKS.charAt(row) + RANKS.charAt(column) + "s";
+        return "" + RANKS.charAt(column) + RANKS.charAt(row) + "o";
+    }
+
+    /**
+     * Return two cards representing a starting hand, clubs first and diamonds for the second offsuit card.
+     *
+     * @param int handIndex 0..168
+     * @return long card mask
+     */
+    static long representative(int handIndex) {
+        int row = handIndex / 13;
+        int column = handIndex % 13;
+        int high = Math.max(row, column);
+        int low = Math.min(row, column);
+        // card bit == rank * 4 + suit, clubs = 0, diamonds = 1
+        if (row > column) return 1L << (high * 4) | 1L << (low * 4);
+        return 1L << (high * 4) | 1L << (low * 4 + 1);
+    }
+}
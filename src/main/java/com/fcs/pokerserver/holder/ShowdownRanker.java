@@ -0,0 +1,74 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.holder;
+
+import java.util.List;
+
+/**
+ * Ranks every live hand of a showdown against the board.
+ * Each hand is evaluated exactly once; winners, tie groups and positions are derived from the raw ranks.
+ *
+ * @category com > fcs > pokerserver > holder
+ */
+public class ShowdownRanker {
+
+    private final HandEvaluator evaluator;
+
+    /**
+     * Create new the ShowdownRanker with the configured evaluator.
+     */
+    public ShowdownRanker() {
+        this(HandEvaluatorFactory.getInstance());
+    }
+
+    /**
+     * Create new the ShowdownRanker
+     *
+     * @param HandEvaluator evaluator
+     */
+    public ShowdownRanker(HandEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Evaluate all hands against the board once and rank them.
+     *
+     * @param Board board, List<Hand> hands
+     * @return ShowdownResult indexed like {@code hands}
+     */
+    public ShowdownResult rank(Board board, List<Hand> hands) {
+        int[] ranks = new int[hands.size()];
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = evaluator.rank(board, hands.get(i));
+        }
+        return new ShowdownResult(ranks);
+    }
+
+    /**
+     * Rank hands whose raw rank values are already known.
+     *
+     * @param int[] ranks
+     * @return ShowdownResult indexed like {@code ranks}
+     */
+    public static ShowdownResult rank(int[] ranks) {
+        return new ShowdownResult(ranks.clone());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.holder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Outcome of a showdown computed by {@link ShowdownRanker}. All indexes refer to the order of the hands
+ * given to the ranker.
+ *
+ * @category com > fcs > pokerserver > holder
+ */
+public class ShowdownResult {
+
+    private final int[] ranks;
+    private final int bestRank;
+    private final int[] winners;
+    private int[] positions;
+    private List<int[]> tieGroups;
+
+    ShowdownResult(int[] ranks) {
+        this.ranks = ranks;
+        int best = Integer.MIN_VALUE;
+        int count = 0;
+        for (int rank : ranks) {
+            if (rank > best) {
+                best = rank;
+                count = 1;
+            } else if (rank == best) {
+                count++;
+            }
+        }
+        this.bestRank = best;
+        this.winners = new int[count];
+        for (int i = 0, w = 0; w < count; i++) {
+            if (ranks[i] == best) winners[w++] = i;
+        }
+    }
+
+    /**
+     * Return the number of ranked hands.
+     *
+     * @return int size
+     */
+    public int size() {
+        return ranks.length;
+    }
+
+    /**
+     * Return the raw rank value of a hand.
+     *
+     * @param int index
+     * @return int rank value
+     */
+    public int getRank(int index) {
+        return ranks[index];
+    }
+
+    /**
+     * Return the rank of a hand as {@link HandRank}.
+     *
+     * @param int index
+     * @return HandRank
+     */
+    public HandRank getHandRank(int index) {
+        return new HandRank(ranks[index]);
+    }
+
+    /**
+     * Return the raw rank value of the winning hands.
+     *
+     * @return int best rank value
+     */
+    public int getBestRank() {
+        return bestRank;
+    }
+
+    /**
+     * Return the indexes of all hands sharing the best rank, in input order.
+     *
+     * @return int[] winner indexes
+     */
+    public int[] getWinners() {
+        return winners.clone();
+    }
+
+    /**
+     * Return true if the hand at {@code index} is one of the winners.
+     *
+     * @param int index
+     * @return boolean
+     */
+    public boolean isWinner(int index) {
+        return ranks[index] == bestRank;
+    }
+
+    /**
+     * Return the finishing position of a hand: 1 for the winners, 2 for the next best rank, and so on.
+     * Tied hands share a position.
+     *
+     * @param int index
+     * @return int position
+     */
+    public int getPosition(int index) {
+        if (positions == null) buildGroups();
+        return positions[index];
+    }
+
+    /**
+     * Return the hands grouped by equal rank, best group first. Indexes inside a group keep input order.
+     *
+     * @return List<int[]> tie groups
+     */
+    public List<int[]> getTieGroups() {
+        if (tieGroups == null) buildGroups();
+        return tieGroups;
+    }
+
+    private void buildGroups() {
+        int n = ranks.length;
+        long[] keyed = new long[n];
+        for (int i = 0; i < n; i++) {
+            // sort by rank descending, then by index ascending
+            keyed[i] = ((long) (Integer.MAX_VALUE - ranks[i]) << 32) | i;
+        }
+        Arrays.sort(keyed);
+        int[] pos = new int[n];
+        List<int[]> groups = new ArrayList<>();
+        int start = 0;
+        while (start < n) {
+            int rank = ranks[(int) keyed[start]];
+            int end = start + 1;
+            while (end < n && ranks[(int) keyed[end]] == rank) end++;
+            int[] group = new int[end - start];
+            for (int i = start; i < end; i++) {
+                group[i - start] = (int) keyed[i];
+                pos[(int) keyed[i]] = groups.size() + 1;
+            }
+            groups.add(group);
+            start = end;
+        }
+        this.positions = pos;
+        this.tieGroups = groups;
+    }
+}
@@ -20,7 +20,9 @@ THE SOFTWARE.
 
 package com.fcs.pokerserver.holder;
 
-import java.util.Iterator;
+import java.io.File;
+import java.nio.IntBuffer;
+import java.util.List;
 
 import com.fcs.pokerserver.Card;
 
@@ -30,14 +32,23 @@ import com.fcs.pokerserver.Card;
  *
  * @category com > fcs > pokerserver > holder
  */
-public class TwoPlusTwoHandEvaluator {
+public class TwoPlusTwoHandEvaluator implements HandEvaluator {
 
 
     private static final String HAND_RANKS = "HandRanks.zip";
 
-    private int[] handRanks;
+    /**
+     * Loader mode: {@code mapped} (default) maps a raw cache file, {@code heap} decompresses into an int array.
+     */
+    public static final String LOADER_MODE_PROPERTY = "pokerserver.handranks.mode";
+    /**
+     * Location of the raw little-endian cache file used by the {@code mapped} loader mode.
+     */
+    public static final String CACHE_FILE_PROPERTY = "pokerserver.handranks.cache";
 
-    private static TwoPlusTwoHandEvaluator instance;
+    private IntBuffer handRanks;
+
+    private static volatile TwoPlusTwoHandEvaluator instance;
 
     /**
      * Create new the TwoPlusTwoHandEvaluator
@@ -45,8 +56,13 @@ public class TwoPlusTwoHandEvaluator {
     public TwoPlusTwoHandEvaluator() throws Exception {
         ConfigurationLoader reader = new ConfigurationLoader();
 
-        handRanks = reader.loadHandRankResource(HAND_RANKS);
-
+        if ("heap".equalsIgnoreCase(System.getProperty(LOADER_MODE_PROPERTY))) {
+            handRanks = IntBuffer.wrap(reader.loadHandRankResource(HAND_RANKS));
+        } else {
+            File cache = new File(System.getProperty(CACHE_FILE_PROPERTY,
+                    System.getProperty("java.io.tmpdir") + File.separator + "pokerserver-HandRanks.dat"));
+            handRanks = reader.mapHandRankResource(HAND_RANKS, cache);
+        }
     }
 
     /**
@@ -57,15 +73,21 @@ public class TwoPlusTwoHandEvaluator {
      * @throws Exception
      */
     public static TwoPlusTwoHandEvaluator getInstance() {
-        if (instance == null) {
-            try {
-                instance = new TwoPlusTwoHandEvaluator();
-            } catch (Exception e) {
-                // TODO Auto-generated catch block
-                throw new RuntimeException(e);
+        TwoPlusTwoHandEvaluator evaluator = instance;
+        if (evaluator == null) {
+            synchronized (TwoPlusTwoHandEvaluator.class) {
+                evaluator = instance;
+                if (evaluator == null) {
+                    try {
+                        evaluator = new TwoPlusTwoHandEvaluator();
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                    instance = evaluator;
+                }
             }
         }
-        return instance;
+        return evaluator;
     }
 
     /**
@@ -74,18 +96,125 @@ public class TwoPlusTwoHandEvaluator {
      * @param Board board, Hand hand
      * @return HandRand
      */
+    @Override
     public HandRank evaluate(Board board, Hand hand) {
-        Iterator<Card> cardIterator = new CardIterator(board, hand);
+        return new HandRank(rank(board, hand));
+    }
+
+    /**
+     * Evaluate the board and the hand without allocating anything.
+     * The state reached after the board cards is memoized on the {@link Board}, so at a showdown
+     * the board is walked once per game and every hand only costs its hole-card lookups.
+     *
+     * @param Board board, Hand hand
+     * @return int raw 2+2 rank value
+     * @throws IllegalArgumentException if the board and the hand do not hold 5 to 7 cards
+     */
+    @Override
+    public int rank(Board board, Hand hand) {
+        List<Card> handCards = hand.cards;
+        int p = boardState(board);
+        for (int i = 0, n = handCards.size(); i < n; i++) {
+            p = handRanks.get(p + handCards.get(i).getEvaluation());
+        }
+        return finish(p, board.cards.size() + handCards.size());
+    }
+
+    /**
+     * Return the state machine position after walking the board cards, computing it on first use.
+     *
+     * @param Board board
+     * @return int 2+2 state after the board cards
+     */
+    public int boardState(Board board) {
+        List<Card> boardCards = board.cards;
+        int n = boardCards.size();
+        int p = board.getEvaluationState(n);
+        if (p < 0) {
+            p = 53;
+            for (int i = 0; i < n; i++) {
+                p = handRanks.get(p + boardCards.get(i).getEvaluation());
+            }
+            board.setEvaluationState(n, p);
+        }
+        return p;
+    }
+
+    /**
+     * Evaluate seven cards given by their 2+2 card codes ({@link Card#getEvaluation()}, 1..52).
+     *
+     * @return int raw 2+2 rank value
+     */
+    @Override
+    public int evaluate(int c1, int c2, int c3, int c4, int c5, int c6, int c7) {
+        IntBuffer hr = handRanks;
+        return hr.get(hr.get(hr.get(hr.get(hr.get(hr.get(hr.get(53 + c1) + c2) + c3) + c4) + c5) + c6) + c7);
+    }
+
+    /**
+     * Evaluate five to seven cards given by their 2+2 card codes.
+     *
+     * @param cards  array holding the card codes
+     * @param offset index of the first card
+     * @param length number of cards, between 5 and 7
+     * @return int raw 2+2 rank value
+     * @throws IllegalArgumentException if length is not between 5 and 7
+     */
+    @Override
+    public int evaluate(int[] cards, int offset, int length) {
+        int p = 53;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            p = handRanks.get(p + cards[i]);
+        }
+        return finish(p, length);
+    }
+
+    /**
+     * Evaluate five to seven cards given as a bit mask, bit {@code code - 1} set for every card
+     * (see {@link Card#getMask()}).
+     *
+     * @param long cardMask
+     * @return int raw 2+2 rank value
+     * @throws IllegalArgumentException if the mask does not hold 5 to 7 cards
+     */
+    @Override
+    public int evaluate(long cardMask) {
         int p = 53;
-        while (cardIterator.hasNext()) {
-            Card card = cardIterator.next();
-            p = handRanks[p + card.getEvaluation()];
+        int count = 0;
+        for (long m = cardMask; m != 0; m &= m - 1) {
+            p = handRanks.get(p + Long.numberOfTrailingZeros(m) + 1);
+            count++;
         }
-//        System.out.println("Board flop: " + board.getFlopCards() + " ,turn: " + board.getTurnCard() + " ,river: " + board.getRiverCard());
-//        System.out.println("Hand: " + hand.toString());
-        HandRank hr = new HandRank(p);
-//        System.out.println("handrank: " + hr.getValue());
-        return hr;
+        return finish(p, count);
+    }
+
+    /**
+     * The state packs the number of cards in the high word and the state machine position in the low word.
+     */
+    @Override
+    public long initialState() {
+        return 53;
+    }
+
+    @Override
+    public long advance(long state, int card) {
+        long count = (state >>> 32) + 1;
+        return count << 32 | handRanks.get((int) state + card);
+    }
+
+    @Override
+    public int rankOfState(long state) {
+        int count = (int) (state >>> 32);
+        return count < 5 ? 0 : finish((int) state, count);
+    }
+
+    /**
+     * After five or six cards the state machine still needs one more hop to yield the rank,
+     * after seven cards the state already is the rank. Fewer cards only reach a state, never a rank.
+     */
+    private int finish(int p, int count) {
+        if (count < 5 || count > 7) throw new IllegalArgumentException("Cannot rank " + count + " cards, 5 to 7 are needed");
+        return count < 7 ? handRanks.get(p) : p;
     }
 
     /**
@@ -96,8 +225,6 @@ public class TwoPlusTwoHandEvaluator {
      */
     public static int compare(Hand h1, Hand h2, Board b) {
         TwoPlusTwoHandEvaluator evaluator = TwoPlusTwoHandEvaluator.getInstance();
-        HandRank rank1 = evaluator.evaluate(b, h1);
-        HandRank rank2 = evaluator.evaluate(b, h2);
-        return rank1.compareTo(rank2);
+        return Integer.compare(evaluator.rank(b, h1), evaluator.rank(b, h2));
     }
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.jmx;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.events.AbstractGameEvent;
+import com.fcs.pokerserver.events.AbstractRoomEvent;
+import com.fcs.pokerserver.events.GameActRoomEvent;
+import com.fcs.pokerserver.events.GameAction;
+import com.fcs.pokerserver.events.RoomListener;
+
+/**
+ * The current Game of every Room, shown in one table and changed by id. The registry listens to the rooms the server
+ * adds to it: a game leaves the registry when its room moves to the next one.
+ *
+ * @category com > fcs > pokerserver > jmx
+ */
+public class GameRegistry extends Registry<Long, Game> implements GameRegistryMBean, RoomListener {
+    public static final String TYPE = "Games";
+
+    private static volatile GameRegistry instance;
+
+    // rooms created in the same millisecond share their id, so the games are kept by room and not by room id
+    private final Map<Room, Game> current = new ConcurrentHashMap<>();
+
+    private GameRegistry() {
+        super("Game", new String[]{"id", "room", "status", "pot", "currentRoundBet", "players"},
+                new OpenType<?>[]{SimpleType.LONG, SimpleType.LONG, SimpleType.STRING, SimpleType.LONG,
+                        SimpleType.LONG, SimpleType.INTEGER});
+    }
+
+    /**
+     * Singleton pattern to get the GameRegistry, registered to the MBean server on first use.
+     *
+     * @return GameRegistry instance
+     */
+    public static GameRegistry getInstance() {
+        GameRegistry registry = instance;
+        if (registry == null) {
+            synchronized (GameRegistry.class) {
+                registry = instance;
+                if (registry == null) {
+                    registry = new GameRegistry();
+                    register(registry, TYPE);
+                    instance = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * The method to add a Game, under its id which is unique in the process. The previous game of its room leaves
+     * the registry.
+     *
+     * @param Game game
+     */
+    public void add(Game game) {
+        assert get(game.getId()) == null || get(game.getId()) == game : "Two games with the id " + game.getId();
+        add(game.getId(), game);
+        if (game.getRoom() == null) return;
+        Game previous = current.put(game.getRoom(), game);
+        if (previous != null && previous != game) remove(previous.getId(), previous);
+    }
+
+    /**
+     * The method to remove a Game.
+     *
+     * @param Game game
+     */
+    public void remove(Game game) {
+        remove(game.getId(), game);
+        if (game.getRoom() != null) current.remove(game.getRoom(), game);
+    }
+
+    /**
+     * The method to remove the current Game of a Room which is closed.
+     *
+     * @param Room room
+     */
+    public void remove(Room room) {
+        Game game = current.remove(room);
+        if (game != null) remove(game.getId(), game);
+    }
+
+    /**
+     * Add the new game of a room as soon as the room creates it.
+     *
+     * @param AbstractRoomEvent event
+     */
+    @Override
+    public void actionPerformed(AbstractRoomEvent event) {
+        if (!(event instanceof GameActRoomEvent)) return;
+        AbstractGameEvent ge = ((GameActRoomEvent) event).getE();
+        if (ge.getType() == GameAction.CREATED) add(ge.getSrc());
+    }
+
+    @Override
+    protected Object[] row(Game game) {
+        return new Object[]{game.getId(), game.getRoom() == null ? -1L : game.getRoom().getRoomID(),
+                String.valueOf(game.getStatus()), game.getPotBalance(), game.getCurrentRoundBet(), game.getSeats().count()};
+    }
+
+    @Override
+    public TabularData getGames() {
+        return table();
+    }
+
+    @Override
+    public long getPotBalance(long gameId) {
+        return require(gameId).jmx_getPotBalance();
+    }
+
+    @Override
+    public void setPotBalance(long gameId, long bal) {
+        require(gameId).jmx_setPotBalance(bal);
+    }
+
+    @Override
+    public long getCurrentRoundBet(long gameId) {
+        return require(gameId).jmx_getCurrentRoundBet();
+    }
+
+    @Override
+    public void setCurrentRoundBet(long gameId, long bal) {
+        require(gameId).jmx_setCurrentRoundBet(bal);
+    }
+
+    @Override
+    public String getListPlayer(long gameId) {
+        return require(gameId).jmx_getListPlayer();
+    }
+
+    @Override
+    public void kickPlayer(long gameId, String playerId) {
+        require(gameId).jmx_kickPlayer(playerId);
+    }
+
+    @Override
+    public String getBoard(long gameId) {
+        return require(gameId).jmx_getBoard();
+    }
+
+    @Override
+    public String getDealer(long gameId) {
+        return require(gameId).jmx_getDealer();
+    }
+
+    @Override
+    public String getSmallBlind(long gameId) {
+        return require(gameId).jmx_getSmallBlind();
+    }
+
+    @Override
+    public String getBigBlind(long gameId) {
+        return require(gameId).jmx_getBigBlind();
+    }
+
+    @Override
+    public String setDealer(long gameId, String playerId) {
+        return require(gameId).jmx_setDealer(playerId);
+    }
+}
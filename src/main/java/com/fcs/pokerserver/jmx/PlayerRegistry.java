@@ -0,0 +1,143 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.jmx;
+
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+
+import com.fcs.pokerserver.Player;
+
+/**
+ * The Players logged in the server, shown in one table and changed by id.
+ *
+ * @category com > fcs > pokerserver > jmx
+ */
+public class PlayerRegistry extends Registry<String, Player> implements PlayerRegistryMBean {
+    public static final String TYPE = "Players";
+
+    private static volatile PlayerRegistry instance;
+
+    private PlayerRegistry() {
+        super("Player", new String[]{"id", "name", "balance", "globalBalance", "seat", "sittingOut", "room"},
+                new OpenType<?>[]{SimpleType.STRING, SimpleType.STRING, SimpleType.LONG, SimpleType.LONG,
+                        SimpleType.INTEGER, SimpleType.BOOLEAN, SimpleType.LONG});
+    }
+
+    /**
+     * Singleton pattern to get the PlayerRegistry, registered to the MBean server on first use.
+     *
+     * @return PlayerRegistry instance
+     */
+    public static PlayerRegistry getInstance() {
+        PlayerRegistry registry = instance;
+        if (registry == null) {
+            synchronized (PlayerRegistry.class) {
+                registry = instance;
+                if (registry == null) {
+                    registry = new PlayerRegistry();
+                    register(registry, TYPE);
+                    instance = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * The method to add a Player.
+     *
+     * @param Player p
+     */
+    public void add(Player p) {
+        add(p.getId(), p);
+    }
+
+    /**
+     * The method to remove a Player.
+     *
+     * @param Player p
+     */
+    public void remove(Player p) {
+        remove(p.getId(), p);
+    }
+
+    @Override
+    protected Object[] row(Player p) {
+        return new Object[]{p.getId(), String.valueOf(p.getName()), p.getBalance(), p.getGlobalBalance(), p.getSeat(),
+                p.isSittingOut(), p.getCurrentRoom() == null ? -1L : p.getCurrentRoom().getRoomID()};
+    }
+
+    @Override
+    public TabularData getPlayers() {
+        return table();
+    }
+
+    @Override
+    public String info(String id) {
+        return require(id).jmx_info();
+    }
+
+    @Override
+    public long getBalance(String id) {
+        return require(id).jmx_getBalance();
+    }
+
+    @Override
+    public void setBalance(String id, long bal) {
+        require(id).jmx_setBalance(bal);
+    }
+
+    @Override
+    public long getGlobalBalance(String id) {
+        return require(id).jmx_getGlobalBalance();
+    }
+
+    @Override
+    public void setGlobalBalance(String id, long bal) {
+        require(id).jmx_setGlobalBalance(bal);
+    }
+
+    @Override
+    public void setSittingOut(String id, boolean bool) {
+        require(id).jmx_setSittingOut(bool);
+    }
+
+    @Override
+    public void setRoundBet(String id, long amount) {
+        require(id).jmx_setRoundBet(amount);
+    }
+
+    @Override
+    public void setGameBet(String id, long amount) {
+        require(id).jmx_setGameBet(amount);
+    }
+
+    @Override
+    public int evaluateHand(String id) {
+        return require(id).jmx_evaluateHand();
+    }
+
+    @Override
+    public String getBoard(String id) {
+        return require(id).jmx_getBoard();
+    }
+}
@@ -0,0 +1,49 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.jmx;
+
+import javax.management.openmbean.TabularData;
+
+public interface PlayerRegistryMBean {
+    public int getCount();
+
+    public TabularData getPlayers();
+
+    public String info(String id);
+
+    public long getBalance(String id);
+
+    public void setBalance(String id, long bal);
+
+    public long getGlobalBalance(String id);
+
+    public void setGlobalBalance(String id, long bal);
+
+    public void setSittingOut(String id, boolean bool);
+
+    public void setRoundBet(String id, long amount);
+
+    public void setGameBet(String id, long amount);
+
+    public int evaluateHand(String id);
+
+    public String getBoard(String id);
+}
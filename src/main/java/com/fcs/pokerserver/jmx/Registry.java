@@ -0,0 +1,154 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.jmx;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+/**
+ * The live objects of one type, looked up by id. Each registry is the one MBean of its type: the objects do not
+ * register themselves, so a finished game costs nothing to the MBean server and is dropped with its room.
+ *
+ * @category com > fcs > pokerserver > jmx
+ */
+public abstract class Registry<K, T> {
+
+    public static final String DOMAIN = "com.fcs.pokerserver";
+
+    private static Logger logger = Logger.getLogger(Registry.class.getName());
+
+    private final Map<K, T> items = new ConcurrentHashMap<>();
+    private final String[] names;
+    private final CompositeType rowType;
+    private final TabularType tableType;
+
+    /**
+     * Create new the Registry with the columns of its table, the first one is the id.
+     *
+     * @param String type, String[] names, OpenType<?>[] types
+     */
+    protected Registry(String type, String[] names, OpenType<?>[] types) {
+        this.names = names;
+        try {
+            this.rowType = new CompositeType(type, type, names, names, types);
+            this.tableType = new TabularType(type + "Table", type + "Table", rowType, new String[]{names[0]});
+        } catch (OpenDataException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Register a registry to the platform MBean server as com.fcs.pokerserver:type=&lt;type&gt;.
+     *
+     * @param Object mbean, String type
+     */
+    protected static void register(Object mbean, String type) {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            mbs.registerMBean(mbean, new ObjectName(DOMAIN + ":type=" + type));
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Cannot register the " + type + " MBean", e);
+        }
+    }
+
+    /**
+     * The method to add an object.
+     *
+     * @param K id, T item
+     */
+    public void add(K id, T item) {
+        items.put(id, item);
+    }
+
+    /**
+     * The method to remove an object, only if it is still the one of the id.
+     *
+     * @param K id, T item
+     */
+    public void remove(K id, T item) {
+        items.remove(id, item);
+    }
+
+    /**
+     * Return the object of an id, or null.
+     *
+     * @param K id
+     * @return T item
+     */
+    public T get(K id) {
+        return items.get(id);
+    }
+
+    public int getCount() {
+        return items.size();
+    }
+
+    /**
+     * Return the object of an id.
+     *
+     * @param K id
+     * @return T item
+     * @throws IllegalArgumentException if there is no object with this id
+     */
+    protected T require(K id) {
+        T item = items.get(id);
+        if (item == null) throw new IllegalArgumentException("No " + rowType.getTypeName() + " with id " + id);
+        return item;
+    }
+
+    /**
+     * Return one row per object, the values in the order of the columns.
+     *
+     * @return TabularData table
+     */
+    protected TabularData table() {
+        TabularDataSupport table = new TabularDataSupport(tableType);
+        for (T item : items.values()) {
+            try {
+                table.put(new CompositeDataSupport(rowType, names, row(item)));
+            } catch (OpenDataException e) {
+                logger.log(Level.WARNING, "Cannot show " + item, e);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Return the values of an object, in the order of the columns.
+     *
+     * @param T item
+     * @return Object[] values
+     */
+    protected abstract Object[] row(T item);
+}
@@ -0,0 +1,114 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fcs.pokerserver.jmx;
+
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+
+import com.fcs.pokerserver.Room;
+
+/**
+ * The open Rooms, shown in one table and changed by id.
+ *
+ * @category com > fcs > pokerserver > jmx
+ */
+public class RoomRegistry extends Registry<Long, Room> implements RoomRegistryMBean {
+    public static final String TYPE = "Rooms";
+
+    private static volatile RoomRegistry instance;
+
+    private RoomRegistry() {
+        super("Room", new String[]{"id", "master", "blindLevel", "tableSize", "players", "game"},
+                new OpenType<?>[]{SimpleType.LONG, SimpleType.STRING, SimpleType.STRING, SimpleType.INTEGER,
+                        SimpleType.INTEGER, SimpleType.LONG});
+    }
+
+    /**
+     * Singleton pattern to get the RoomRegistry, registered to the MBean server on first use.
+     *
+     * @return RoomRegistry instance
+     */
+    public static RoomRegistry getInstance() {
+        RoomRegistry registry = instance;
+        if (registry == null) {
+            synchronized (RoomRegistry.class) {
+                registry = instance;
+                if (registry == null) {
+                    registry = new RoomRegistry();
+                    register(registry, TYPE);
+                    instance = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * The method to add a Room.
+     *
+     * @param Room room
+     */
+    public void add(Room room) {
+        add(room.getRoomID(), room);
+    }
+
+    /**
+     * The method to remove a Room.
+     *
+     * @param Room room
+     */
+    public void remove(Room room) {
+        remove(room.getRoomID(), room);
+    }
+
+    @Override
+    protected Object[] row(Room room) {
+        return new Object[]{room.getRoomID(), room.getMaster().getId(), String.valueOf(room.getBlindLevel()),
+                room.getTableSize(), room.getListPlayer().size(),
+                room.getCurrentGame() == null ? -1L : room.getCurrentGame().getId()};
+    }
+
+    @Override
+    public TabularData getRooms() {
+        return table();
+    }
+
+    @Override
+    public String getRoomPlayerID(long roomId) {
+        return require(roomId).jmx_getRoomPlayerID();
+    }
+
+    @Override
+    public void kickPlayer(long roomId, String playerId) {
+        require(roomId).jmx_kickPlayer(playerId);
+    }
+
+    @Override
+    public String getMasterID(long roomId) {
+        return require(roomId).jmx_getMasterID();
+    }
+
+    @Override
+    public void setMaster(long roomId, String playerId) {
+        require(roomId).jmx_setMaster(playerId);
+    }
+}
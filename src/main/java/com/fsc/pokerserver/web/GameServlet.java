@@ -66,7 +66,6 @@ public class GameServlet extends HttpServlet {
     public void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
         doOptions(request, response);
         String method = request.getParameter("method");
-        Player p = null;
         switch (method) {
             case "put":
                 doPut(request, response);
@@ -75,7 +74,71 @@ public class GameServlet extends HttpServlet {
                 doPost(request, response);
                 break;
             case "start":
-                p = (Player) request.getAttribute("player");
+                if (rejectUntilEvaluatorReady(server, response)) return;
+                command(method, request, response);
+                break;
+            case "preflop":
+            case "bet":
+            case "check":
+            case "fold":
+            case "flop":
+            case "turn":
+            case "river":
+            case "end":
+            case "roundcheck":
+                command(method, request, response);
+                break;
+            case "gamestatus":
+                getGameStatus(request, response);
+                break;
+            case "tablestate":
+                getTableState(request, response);
+                break;
+            default:
+                String data = Joiner.on(",").join(this.server.getListRoom());
+                logger.log(Level.INFO, data);
+                return;
+        }
+    }
+
+    /**
+     * The method to answer 503 while the hand evaluator is not loaded, no game can start before.
+     *
+     * @param MqttServletGameServer server, HttpServletResponse response
+     * @return boolean true if the request is answered and must stop there
+     */
+    static boolean rejectUntilEvaluatorReady(MqttServletGameServer server, HttpServletResponse response) throws IOException {
+        if (server.isEvaluatorReady()) return false;
+        response.setStatus(503);
+        response.setHeader("Retry-After", "1");
+        response.getWriter().println("{\"msg\":\"Hand evaluator is loading, try again later\"}");
+        return true;
+    }
+
+    /**
+     * The method to queue a game command of the requesting Player on the loop of the Player's room.
+     *
+     * @param String method, HttpServletRequest request, HttpServletResponse response
+     */
+    private void command(String method, HttpServletRequest request, HttpServletResponse response) {
+        Player p = (Player) request.getAttribute("player");
+        Room room = p.getCurrentRoom();
+        checkNotNull(room, "Room not found");
+        // the game of a room only changes on the loop of the room
+        room.call(() -> {
+            command(method, p, request, response);
+            return null;
+        });
+    }
+
+    /**
+     * The method to run a game command of the Player, on the loop of the Player's room.
+     *
+     * @param String method, Player p, HttpServletRequest request, HttpServletResponse response
+     */
+    private void command(String method, Player p, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        switch (method) {
+            case "start":
                 p.getCurrentGame().setDealer(p);
                 int sizeOfListPlayer = p.getCurrentGame().getListPlayer().size();
                 for (int i = 0; i < sizeOfListPlayer; i++) {
@@ -85,28 +148,23 @@ public class GameServlet extends HttpServlet {
                 logger.log(Level.INFO, "Start Game\n\tDealer: " + p.getCurrentGame().getDealer().getName() + "\n\tSmall Blind: " + p.getCurrentGame().getSmallBlind().getName() + "\n\tBig Blind: " + p.getCurrentGame().getBigBlind().getName());
                 break;
             case "preflop":
-                p = (Player) request.getAttribute("player");
                 p.getCurrentGame().preflop();
                 logger.log(Level.INFO, "The Preflop of the game\n\tNumber of the cards: " + p.getCurrentGame().getBoard().getCardNumber() + "\n\tSmallBlind's balance: " + p.getCurrentGame().getSmallBlind().getBalance() + "\n\tBigBlind's balance: " + p.getCurrentGame().getBigBlind().getBalance() + "\n\tCurrent Player: " + p.getCurrentGame().getCurrentPlayer().getName());
                 break;
             case "bet":
-                p = (Player) request.getAttribute("player");
                 long betValue = Long.parseLong(request.getParameter("value"));
                 p.bet(betValue);
                 logger.log(Level.INFO, "The Player's name : " + p.getName() + "\n\tBet value: " + betValue + "\n\tBalance of Current Player: " + p.getBalance());
                 break;
             case "check":
-                p = (Player) request.getAttribute("player");
                 p.check();
                 logger.log(Level.INFO, "The Player checked: " + p.getName());
                 break;
             case "fold":
-                p = (Player) request.getAttribute("player");
                 p.fold();
                 logger.log(Level.INFO, "The Player folded: " + p.getName());
                 break;
             case "flop":
-                p = (Player) request.getAttribute("player");
                 p.getCurrentGame().flop();
                 String strFlop = "The Flop of the game \n\tNumber of cards: " + p.getCurrentGame().getBoard().getCardNumber() + "\n\tThe Cards in the flop: " + p.getCurrentGame().getBoard().getFlopCards().toString();
                 for (int i = 0; i < p.getCurrentGame().getListPlayer().size(); i++) {
@@ -116,7 +174,6 @@ public class GameServlet extends HttpServlet {
                 logger.log(Level.INFO, strFlop);
                 break;
             case "turn":
-                p = (Player) request.getAttribute("player");
                 p.getCurrentGame().turn();
                 String strTurn = "The Turn of the game\n\tNumber of cards: " + p.getCurrentGame().getBoard().getCardNumber() + "\n\tThe Cards in the flop: " + p.getCurrentGame().getBoard().getFlopCards().toString() + "\n\tThe Cards in the Turn: " + p.getCurrentGame().getBoard().getTurnCard().toString();
                 for (int i = 0; i < p.getCurrentGame().getListPlayer().size(); i++) {
@@ -126,7 +183,6 @@ public class GameServlet extends HttpServlet {
                 logger.log(Level.INFO, strTurn);
                 break;
             case "river":
-                p = (Player) request.getAttribute("player");
                 p.getCurrentGame().river();
                 String strRiver = "The River of the game\n\tNumber of cards: " + p.getCurrentGame().getBoard().getCardNumber() + "\n\tThe Cards in the flop: " + p.getCurrentGame().getBoard().getFlopCards().toString() + "\n\tThe Cards in the Turn: " + p.getCurrentGame().getBoard().getTurnCard().toString() + "\n\tThe Cards in the River: " + p.getCurrentGame().getBoard().getRiverCard().toString();
                 for (int i = 0; i < p.getCurrentGame().getListPlayer().size(); i++) {
@@ -136,7 +192,6 @@ public class GameServlet extends HttpServlet {
                 logger.log(Level.INFO, strRiver);
                 break;
             case "end":
-                p = (Player) request.getAttribute("player");
                 p.getCurrentGame().endGame();
                 String strEnd = "The End of the game\n\tNumber of cards: " + p.getCurrentGame().getBoard().getCardNumber() + "\n\tThe Cards in the flop: " + p.getCurrentGame().getBoard().getFlopCards().toString() + "\n\tThe Cards in the Turn: " + p.getCurrentGame().getBoard().getTurnCard().toString() + "\n\tThe Cards in the River: " + p.getCurrentGame().getBoard().getRiverCard().toString();
                 for (int i = 0; i < p.getCurrentGame().getListPlayer().size(); i++) {
@@ -147,17 +202,10 @@ public class GameServlet extends HttpServlet {
                 logger.log(Level.INFO, strEnd);
                 break;
             case "roundcheck":
-                p = (Player) request.getAttribute("player");
                 response.setContentType("application/json");
-                response.getWriter().println("{\"result\":" + p.getCurrentGame().isNextRoundReady() + "}");
+                response.getWriter().println("{\"result\":" + p.getCurrentGame().isNextRoundReady()
+                        + ",\"playersToAct\":" + p.getCurrentGame().getPlayersToAct() + "}");
                 break;
-            case "gamestatus":
-                getGameStatus(request, response);
-                break;
-            default:
-                String data = Joiner.on(",").join(this.server.getListRoom());
-                logger.log(Level.INFO, data);
-                return;
         }
     }
 
@@ -165,12 +213,28 @@ public class GameServlet extends HttpServlet {
         String id = request.getParameter("id");
         Room room = server.getRoomByID(Long.parseLong(id));
         checkNotNull(room, "Room " + id + " not found");
-        Game game = room.getCurrentGame();
-        checkNotNull(game, "Game has not created yet.");
-        response.getWriter().println(game.toString());
+        String status = room.call(() -> {
+            Game game = room.getCurrentGame();
+            checkNotNull(game, "Game has not created yet.");
+            return game.toString();
+        });
+        response.getWriter().println(status);
 
     }
 
+    /**
+     * The method to get the keyframe of the current version of a table, for the clients which missed a delta.
+     * It is read without waiting for the loop of the room.
+     *
+     * @param HttpServletRequest request, HttpServletResponse response
+     */
+    private void getTableState(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String id = request.getParameter("id");
+        Room room = server.getRoomByID(Long.parseLong(id));
+        checkNotNull(room, "Room " + id + " not found");
+        response.getWriter().println(room.getState().getKeyframe());
+    }
+
     @Override
     public void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
         Player p = (Player) request.getAttribute("player");
@@ -181,7 +245,7 @@ public class GameServlet extends HttpServlet {
 
         checkNotNull(room, "Room " + id + " not found");
 
-        room.addPlayer(p);
+        room.run(() -> room.addPlayer(p));
 
         String data = Joiner.on(",").join(this.server.getListPlayer());
 
@@ -197,8 +261,8 @@ public class GameServlet extends HttpServlet {
 
         checkNotNull(room, "Room not found");
 
-        room.createNewGame();
+        long gameId = room.call(() -> room.createNewGame().getId());
 
-        response.getWriter().println(room.getCurrentGame().getId());
+        response.getWriter().println(gameId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+/*
+The MIT License (MIT)
+Copyright (c) 2018 by Ngocbd
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+*/
+
+package com.fsc.pokerserver.web;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.history.HandArchive;
+import com.fcs.pokerserver.history.HistoryRecord;
+import com.google.common.base.Joiner;
+
+/**
+ * The class to look up finished games in the hand archive, by game id with game=<id> or the last games of a player
+ * with player=<id>&amp;limit=<count>. A player only gets the games he played in and his own last games, and the hole
+ * cards of the other players only when they were shown at the showdown.
+ *
+ * @category com > fcs > pokerserver > web
+ */
+@WebServlet(
+        name = "HistoryServlet",
+        urlPatterns = {"/api/history"}
+)
+public class HistoryServlet extends HttpServlet {
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+
+    @Override
+    protected void doOptions(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        resp.setHeader("Access-Control-Allow-Origin", "*");
+        resp.setHeader("Access-Control-Allow-Methods", "GET");
+        resp.setHeader("Access-Control-Allow-Headers", "Content-Type, authorization");
+        resp.setHeader("Access-Control-Max-Age", "86400");
+        resp.setHeader("Allow", "GET, HEAD, OPTIONS");
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        doOptions(request, response);
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        HandArchive archive = HandArchive.getInstance();
+        Player me = (Player) request.getAttribute("player");
+        String game = request.getParameter("game");
+        String player = request.getParameter("player");
+        try {
+            if (game != null) {
+                List<HistoryRecord> records = archive.getGame(Long.parseLong(game));
+                // a game the player did not play in is not found, whether it exists or not
+                if (!records.isEmpty()) records = HandArchive.viewOf(records, me.getId());
+                if (records == null || records.isEmpty()) {
+                    response.setStatus(404);
+                    response.getWriter().println("{\"msg\":\"Game not found\"}");
+                    return;
+                }
+                response.getWriter().println(toJson(records));
+            } else if (player != null) {
+                if (!player.equals(me.getId())) {
+                    response.setStatus(403);
+                    response.getWriter().println("{\"msg\":\"Only your own history can be read\"}");
+                    return;
+                }
+                String limit = request.getParameter("limit");
+                int count = limit == null ? DEFAULT_LIMIT : Math.min(Math.max(Integer.parseInt(limit), 1), MAX_LIMIT);
+                StringBuilder json = new StringBuilder("[");
+                for (List<HistoryRecord> records : archive.getGames(player, count)) {
+                    if (json.length() > 1) json.append(',');
+                    json.append(toJson(HandArchive.viewOf(records, player)));
+                }
+                response.getWriter().println(json.append(']'));
+            } else {
+                response.setStatus(400);
+                response.getWriter().println("{\"msg\":\"game or player is required\"}");
+            }
+        } catch (NumberFormatException e) {
+            response.setStatus(400);
+            response.getWriter().println("{\"msg\":\"URL is not well-form\"}");
+        }
+    }
+
+    private static String toJson(List<HistoryRecord> records) {
+        return "{\"gameId\":" + records.get(0).getGameId() + ",\"records\":[" + Joiner.on(",").join(records) + "]}";
+    }
+}
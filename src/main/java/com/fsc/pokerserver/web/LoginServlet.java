@@ -32,6 +32,7 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.fcs.pokerserver.Player;
 import com.fcs.pokerserver.gameserver.MqttServletGameServer;
+import com.fcs.pokerserver.gameserver.WireEncoder;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -125,12 +126,26 @@ public class LoginServlet extends HttpServlet {
         }
 
 
-        Player p = new Player(username);
+        /**
+         * Player who was at a table when the server stopped gets back his seat and his chips
+         * */
+        Player p = server.adoptRestoredPlayer(username);
         /**
          * Set Balance + set Avatar
          * */
-        p.setGlobalBalance(user.getBalance());
+        if (p == null) {
+            p = new Player(username);
+            p.setGlobalBalance(user.getBalance());
+        }
         p.setAvatar_url(user.getAvatar_url());
+        /**
+         * The client reads the table state deltas unless it asks format=bin[&version=n] for the binary format, the
+         * header tells the version it gets, or format=text for the legacy text messages
+         * */
+        String format = request.getParameter("format");
+        p.setWireVersion(WireEncoder.negotiate(format, request.getParameter("version")));
+        p.setLegacyText("text".equals(format));
+        response.setHeader("X-Wire-Format", p.getWireVersion() > 0 ? "bin/" + p.getWireVersion() : p.isLegacyText() ? "text" : "delta");
         server.addPlayer(p);
         String token = JWT.create()
                 .withIssuer("pokerserver")
@@ -93,7 +93,7 @@ public class RoomServlet extends HttpServlet {
         String id = request.getParameter("id");
         Room room = server.getRoomByID(Long.parseLong(id));
         checkNotNull(room, "Room " + id + " not found");
-        room.removePlayer(p);
+        server.leaveRoom(room, p);
     }
 
     private void getRoomStatus(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -119,10 +119,13 @@ public class RoomServlet extends HttpServlet {
         String id = request.getParameter("id");
         Room room = server.getRoomByID(Long.parseLong(id));
         checkNotNull(room, "Room " + id + " not found");
-        room.nextGame();
-        room.getCurrentGame().startGame();
-        //TODO return more data ex Blind level ,  player balance  , game status ...
-        String data = Joiner.on(",").join(room.getListPlayer());
+        if (GameServlet.rejectUntilEvaluatorReady(server, response)) return;
+        String data = room.call(() -> {
+            room.nextGame();
+            room.getCurrentGame().startGame();
+            //TODO return more data ex Blind level ,  player balance  , game status ...
+            return Joiner.on(",").join(room.getListPlayer());
+        });
         response.getWriter().println(data);
     }
 
@@ -132,21 +135,23 @@ public class RoomServlet extends HttpServlet {
         String id = request.getParameter("id");
         Room room = server.getRoomByID(Long.parseLong(id));
         checkNotNull(room, "Room " + id + " not found");
-        room.addPlayer(p);
-
         //TODO return more data ex Blind level ,  player balance  , game status ...
-        String data = Joiner.on(",").join(room.getListPlayer());
+        String data = room.call(() -> {
+            room.addPlayer(p);
+            return Joiner.on(",").join(room.getListPlayer());
+        });
         response.getWriter().println(data);
     }
 
     /**
-     * Room is created adhere.
+     * Room is created adhere. The optional seats parameter sets the table size.
      **/
     @Override
     public void doPut(HttpServletRequest request, HttpServletResponse response) throws IOException {
         Player p = (Player) request.getAttribute("player");
         checkNotNull(p, "Player not found");
-        Room room = new Room(p, BlindLevel.BLIND_10_20);
+        String seats = request.getParameter("seats");
+        Room room = seats == null ? new Room(p, BlindLevel.BLIND_10_20) : new Room(p, BlindLevel.BLIND_10_20, Integer.parseInt(seats));
         server.addRoom(room);
         response.getWriter().println(room.getRoomID());
 
@@ -0,0 +1,75 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.BlindLevel;
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.gameserver.BalanceWriter;
+
+/**
+ * JUnit tests for the {@link BalanceWriter} of the server.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class BalanceWriterTest {
+
+    /**
+     * The bets made through the loop of the room reach the store in order on the writer thread,
+     * and the loop goes on while the store is still busy.
+     */
+    @Test
+    public void testBetThroughLoop() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> debits = Collections.synchronizedList(new ArrayList<>());
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        BalanceWriter writer = new BalanceWriter((name, amount) -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            debits.add(name + ":" + amount);
+            threads.add(Thread.currentThread().getName());
+        });
+
+        Player master = new Player("balance-master");
+        Player player = new Player("balance-player");
+        master.setGlobalBalance(5000);
+        player.setGlobalBalance(5000);
+        Room room = new Room(master, BlindLevel.BLIND_10_20);
+        room.addRoomListener(writer);
+        room.run(() -> {
+            room.addPlayer(player);
+            Game game = room.getCurrentGame();
+            game.setDealer(player);
+            game.startGame();
+            game.preflop();
+        });
+        Game game = room.getCurrentGame();
+        Player current = game.getCurrentPlayer();
+        long amount = game.getCurrentRoundBet() - current.getRoundBet();
+        room.run(() -> current.bet(amount));
+
+        // the loop is done with the bet while the first update still waits
+        assertTrue(debits.isEmpty());
+        release.countDown();
+        assertTrue(writer.flush(5000));
+
+        assertEquals(3, debits.size());
+        assertEquals(current.getName() + ":" + amount, debits.get(2));
+        for (String thread : threads) {
+            assertEquals("balance-writer", thread);
+        }
+    }
+}
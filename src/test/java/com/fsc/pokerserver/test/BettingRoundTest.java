@@ -0,0 +1,106 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fcs.pokerserver.BlindLevel;
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.GameStatus;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+
+/**
+ * JUnit tests for the players left to act in a betting round.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class BettingRoundTest {
+    private Player master;
+    private Player player2;
+    private Player player3;
+    private Player player4;
+    private Game game;
+
+    @Before
+    public void setUp() {
+        master = new Player("round-master-" + System.nanoTime());
+        master.setGlobalBalance(5000);
+        Room room = new Room(master, BlindLevel.BLIND_10_20);
+        player2 = new Player("round-p2-" + System.nanoTime());
+        player2.setGlobalBalance(5000);
+        room.addPlayer(player2);
+        player3 = new Player("round-p3-" + System.nanoTime());
+        player3.setGlobalBalance(5000);
+        room.addPlayer(player3);
+        player4 = new Player("round-p4-" + System.nanoTime());
+        player4.setGlobalBalance(5000);
+        room.addPlayer(player4);
+        game = room.getCurrentGame();
+        game.setDealer(master);
+        game.startGame();
+        game.preflop();
+    }
+
+    /**
+     * After the blinds everybody but the big blind has to act, each call takes one player off.
+     */
+    @Test
+    public void testCallsCloseTheRound() {
+        assertSame(player4, game.getCurrentPlayer());
+        assertEquals(3, game.getPlayersToAct());
+        player4.bet(20);
+        assertEquals(2, game.getPlayersToAct());
+        master.bet(20);
+        assertEquals(1, game.getPlayersToAct());
+        assertFalse(game.isNextRoundReady());
+        player2.bet(10);
+        // the last call ends the round and the flop opens a new one
+        assertEquals(GameStatus.FLOP, game.getStatus());
+        assertEquals(4, game.getPlayersToAct());
+    }
+
+    /**
+     * A raise puts back every other player still in the hand, a fold takes the player off.
+     */
+    @Test
+    public void testRaiseReopensAndFoldCloses() {
+        player4.bet(20);
+        master.bet(60);
+        assertEquals(3, game.getPlayersToAct());
+        assertTrue((game.getPendingActs() & (1 << master.getSeat())) == 0);
+        player2.fold();
+        assertEquals(2, game.getPlayersToAct());
+        player3.bet(40);
+        player4.bet(40);
+        assertEquals(GameStatus.FLOP, game.getStatus());
+    }
+
+    /**
+     * An all-in short of the round bet takes the player off and puts nobody back, a raise above it reopens the others.
+     */
+    @Test
+    public void testShortAllInDoesNotReopen() {
+        player4.bet(20);
+        master.bet(100);
+        assertEquals(3, game.getPlayersToAct());
+        player2.setBalance(30);
+        player2.bet(30);
+        assertEquals(100, game.getCurrentRoundBet());
+        assertEquals(1 << player3.getSeat() | 1 << player4.getSeat(), game.getPendingActs());
+        player3.bet(80);
+        assertEquals(1 << player4.getSeat(), game.getPendingActs());
+        player4.setBalance(150);
+        player4.bet(150);
+        // the all-in raise puts back every player who has not matched it, never the player who made it
+        assertEquals(170, game.getCurrentRoundBet());
+        assertEquals(1 << master.getSeat() | 1 << player3.getSeat(), game.getPendingActs());
+        master.bet(70);
+        player3.bet(70);
+        assertEquals(GameStatus.FLOP, game.getStatus());
+    }
+}
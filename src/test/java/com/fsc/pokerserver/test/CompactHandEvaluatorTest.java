@@ -0,0 +1,116 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.Card;
+import com.fcs.pokerserver.holder.Board;
+import com.fcs.pokerserver.holder.CompactHandEvaluator;
+import com.fcs.pokerserver.holder.Hand;
+import com.fcs.pokerserver.holder.HandRank;
+import com.fcs.pokerserver.holder.HandType;
+
+/**
+ * JUnit tests for the low-memory {@link CompactHandEvaluator}.
+ * The rank values must follow the two plus two scale so both engines rank hands identically.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class CompactHandEvaluatorTest {
+
+    private final CompactHandEvaluator evaluator = new CompactHandEvaluator();
+
+    /**
+     * Every five card hand falls into the 7462 distinct 2+2 rank values, 1..N inside each hand type.
+     */
+    @Test
+    public void testAllFiveCardClasses() {
+        int[] expected = {0, 1277, 2860, 858, 858, 10, 1277, 156, 156, 10};
+        boolean[] seen = new boolean[10 << 12];
+        for (int a = 0; a < 52; a++)
+            for (int b = a + 1; b < 52; b++)
+                for (int c = b + 1; c < 52; c++)
+                    for (int d = c + 1; d < 52; d++)
+                        for (int e = d + 1; e < 52; e++) {
+                            seen[evaluator.evaluate(1L << a | 1L << b | 1L << c | 1L << d | 1L << e)] = true;
+                        }
+        for (int type = 1; type < expected.length; type++) {
+            for (int i = 1; i < 4096; i++) {
+                assertEquals("type " + type + " value " + i, i <= expected[type], seen[(type << 12) | i]);
+            }
+        }
+    }
+
+    /**
+     * Seven cards rank as the best five card hand among them.
+     */
+    @Test
+    public void testSevenCardsAreBestOfFive() {
+        Random random = new Random(42);
+        int[] cards = new int[7];
+        for (int n = 0; n < 20000; n++) {
+            long mask = 0;
+            for (int i = 0; i < 7; ) {
+                int card = random.nextInt(52);
+                if ((mask & 1L << card) != 0) continue;
+                mask |= 1L << card;
+                cards[i++] = card;
+            }
+            int best = 0;
+            for (int x = 0; x < 7; x++)
+                for (int y = x + 1; y < 7; y++) {
+                    best = Math.max(best, evaluator.evaluate(mask & ~(1L << cards[x]) & ~(1L << cards[y])));
+                }
+            assertEquals(best, evaluator.evaluate(mask));
+        }
+    }
+
+    /**
+     * Known values of the two plus two scale.
+     */
+    @Test
+    public void testKnownRanks() {
+        Board royal = new Board(Card.ACE_OF_SPADES, Card.KING_OF_SPADES, Card.QUEEN_OF_SPADES, Card.JACK_OF_SPADES, Card.TEN_OF_SPADES);
+        assertEquals(36874, evaluator.rank(royal, new Hand(Card.TWO_OF_CLUBS, Card.THREE_OF_DIAMONDS)));
+
+        Board low = new Board(Card.SEVEN_OF_CLUBS, Card.FIVE_OF_DIAMONDS, Card.FOUR_OF_HEARTS, Card.THREE_OF_SPADES, Card.TWO_OF_CLUBS);
+        assertEquals(4097, evaluator.rank(low, new Hand()));
+
+        HandRank wheel = evaluator.evaluate(low, new Hand(Card.ACE_OF_HEARTS, Card.KING_OF_CLUBS));
+        assertEquals(HandType.STRAIGHT, wheel.getHandType());
+        assertEquals((5 << 12) | 1, wheel.getValue());
+
+        Board pairs = new Board(Card.NINE_OF_CLUBS, Card.NINE_OF_DIAMONDS, Card.FOUR_OF_HEARTS, Card.FOUR_OF_SPADES, Card.KING_OF_CLUBS);
+        HandRank twoPair = evaluator.evaluate(pairs, new Hand(Card.TWO_OF_HEARTS, Card.TWO_OF_CLUBS));
+        HandRank fullHouse = evaluator.evaluate(pairs, new Hand(Card.NINE_OF_HEARTS, Card.TWO_OF_CLUBS));
+        assertEquals(HandType.TWO_PAIR, twoPair.getHandType());
+        assertEquals(HandType.FULL_HOUSE, fullHouse.getHandType());
+        assertTrue(fullHouse.compareTo(twoPair) > 0);
+    }
+
+    /**
+     * Advancing the incremental state card by card gives the rank of each street.
+     */
+    @Test
+    public void testIncrementalState() {
+        Card[] cards = {Card.NINE_OF_HEARTS, Card.TWO_OF_CLUBS, Card.NINE_OF_CLUBS, Card.FOUR_OF_HEARTS,
+                Card.KING_OF_CLUBS, Card.FOUR_OF_SPADES, Card.NINE_OF_DIAMONDS};
+        HandType[] streets = {HandType.PAIR, HandType.TWO_PAIR, HandType.FULL_HOUSE};
+        long state = evaluator.initialState();
+        long mask = 0;
+        for (int i = 0; i < cards.length; i++) {
+            state = evaluator.advance(state, cards[i].getEvaluation());
+            mask |= cards[i].getMask();
+            if (i < 4) {
+                assertEquals(0, evaluator.rankOfState(state));
+            } else {
+                assertEquals(evaluator.evaluate(mask), evaluator.rankOfState(state));
+                assertEquals(streets[i - 4], new HandRank(evaluator.rankOfState(state)).getHandType());
+            }
+        }
+    }
+}
@@ -22,11 +22,28 @@ package com.fsc.pokerserver.test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import com.fcs.pokerserver.BlindLevel;
+import com.fcs.pokerserver.Card;
 import com.fcs.pokerserver.Deck;
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.SecureShuffleSource;
+import com.fcs.pokerserver.ShuffleAuditLog;
 
 /**
  * The class to test the connect to the game.
@@ -60,4 +77,120 @@ public class DeckTest {
         assertNotEquals(shuffledDeck.exportDeck(), deck.exportDeck());
     }
 
+    /**
+     * The method to deal the whole Deck and reset it in place
+     */
+    @Test
+    public void dealWholeDeck() {
+        Deck deck = new Deck();
+        for (int hand = 0; hand < 2; hand++) {
+            long mask = 0;
+            for (int i = 0; i < 52; i++) {
+                Card card = deck.dealCard();
+                assertTrue((mask & card.getMask()) == 0);
+                mask |= card.getMask();
+            }
+            assertEquals(deck.getDealtMask(), mask);
+            assertEquals(deck.remaining(), 0);
+            deck.initDeck();
+            deck.shuffleDeck();
+            assertEquals(deck.getDealtMask(), 0);
+        }
+    }
+
+    /**
+     * The method to deal a Deck in a given order
+     */
+    @Test
+    public void dealGivenOrder() {
+        Deck deck = new Deck(Arrays.asList(Card.ACE_OF_SPADES, Card.TWO_OF_CLUBS));
+        assertEquals(deck.dealCard(), Card.ACE_OF_SPADES);
+        assertEquals(deck.exportDeck(), Arrays.asList(Card.TWO_OF_CLUBS));
+        assertEquals(deck.dealCard(), Card.TWO_OF_CLUBS);
+    }
+
+    /**
+     * The method to replay a Deck from the dealt cards, as recorded in the shuffle audit log
+     */
+    @Test
+    public void replayDealtCards() {
+        Deck deck = new Deck(SecureShuffleSource.getInstance(), true);
+        for (int i = 0; i < 9; i++) deck.dealCard();
+        Deck replay = new Deck(deck.getDealtCards());
+        assertEquals(replay.exportDeck(), deck.getDealtCards());
+
+        // a source always drawing the first card left deals in order
+        Deck ordered = new Deck(bound -> 0, true);
+        assertEquals(ordered.dealCard(), Card.TWO_OF_CLUBS);
+        assertEquals(ordered.dealCard(), Card.THREE_OF_CLUBS);
+    }
+
+    /**
+     * The method to reuse the Deck of the Room in the next Game, full again
+     */
+    @Test
+    public void reuseRoomDeck() {
+        Player master = new Player("reuse-master");
+        master.setGlobalBalance(5000);
+        Room room = new Room(master, BlindLevel.BLIND_10_20);
+        Game game = room.getCurrentGame();
+        room.run(() -> game.getDeck().dealCard());
+        Game next = room.call(() -> new Game(room));
+        assertSame(next.getDeck(), room.getDeck());
+        assertSame(next.getDeck(), game.getDeck());
+        assertEquals(next.getDeck().remaining(), 52);
+        assertEquals(next.getDeck().getDealtMask(), 0);
+    }
+
+    /**
+     * The method to audit the seed of the Deck as soon as a hand is dealt, the seed replays the whole hand
+     */
+    @Test
+    public void auditDealtHand() throws InterruptedException {
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                lines.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ShuffleAuditLog log = ShuffleAuditLog.getInstance();
+        Logger audit = Logger.getLogger(ShuffleAuditLog.class.getName());
+        audit.addHandler(handler);
+        try {
+            Player master = new Player("audit-master");
+            Player player = new Player("audit-player");
+            master.setGlobalBalance(5000);
+            player.setGlobalBalance(5000);
+            Room room = new Room(master, BlindLevel.BLIND_10_20);
+            room.run(() -> {
+                room.addPlayer(player);
+                Game game = room.getCurrentGame();
+                game.setDealer(player);
+                game.startGame();
+                game.preflop();
+            });
+            Game game = room.getCurrentGame();
+            assertTrue(log.flush(5000));
+            assertEquals(lines.size(), 1);
+            String line = lines.get(0);
+            assertTrue(line.startsWith("game=" + game.getId() + " "));
+            Deck replay = ShuffleAuditLog.replay(line.substring(line.indexOf("seed=") + 5));
+            // the hole cards, then the board, are dealt in the replayed order
+            for (Card card : room.call(() -> game.getDeck().getDealtCards())) {
+                assertEquals(replay.dealCard(), card);
+            }
+            assertEquals(room.call(() -> game.getDeck().dealCard()), replay.dealCard());
+        } finally {
+            audit.removeHandler(handler);
+        }
+    }
 }
@@ -21,12 +21,15 @@ THE SOFTWARE.
 package com.fsc.pokerserver.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.fcs.pokerserver.*;
+import com.fcs.pokerserver.events.EndGameEvent;
 import com.fcs.pokerserver.holder.Board;
 import com.fcs.pokerserver.holder.Hand;
+import com.fcs.pokerserver.holder.HandEvaluatorFactory;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -450,8 +453,8 @@ public class EndGameTest {
 
 
         /**
-         * Dealer will be set on player 2*/
-        assertSame(game.getDealer(), player2);
+         * Players keep their seats, dealer will be set on the seat after player 5: master*/
+        assertSame(game.getDealer(), master);
     }
 
     @Test
@@ -569,8 +572,8 @@ public class EndGameTest {
 
 
         /**
-         * Dealer will be set on P5*/
-        assertSame(game.getDealer(), player5);
+         * Dealer will be set on the next taken seat after P3: P4*/
+        assertSame(game.getDealer(), player4);
     }
 
     /**
@@ -700,4 +703,64 @@ public class EndGameTest {
         System.out.println("winners: " + game.getWinners());
         assertEquals(1010, master.getBalance());
     }
+
+    /**
+     * A short all-in leaves the round bet where it is, wins only the main pot, and the side pot goes to the best hand
+     * of the players who covered the whole bet.
+     */
+    @Test
+    public void testShortAllInSidePot() throws Exception {
+        // any loaded evaluator does, the compact one needs no table
+        String evaluator = System.getProperty(HandEvaluatorFactory.EVALUATOR_PROPERTY);
+        if (!HandEvaluatorFactory.isReady()) System.setProperty(HandEvaluatorFactory.EVALUATOR_PROPERTY, "compact");
+        try {
+            Game game = room.createNewGame();
+            Player player2 = new Player("Short all-in");
+            player2.setGlobalBalance(5000);
+            room.addPlayer(player2);
+            Player player3 = new Player("Big blind");
+            player3.setGlobalBalance(5000);
+            room.addPlayer(player3);
+            player2.setBalance(60);
+            EndGameEvent[] ended = new EndGameEvent[1];
+            game.addGameListener(e -> {
+                if (e instanceof EndGameEvent) ended[0] = (EndGameEvent) e;
+            });
+            game.setDealer(master);
+            game.startGame();
+            game.preflop();
+
+            master.bet(100);
+            player2.bet(50);
+            assertEquals(0, player2.getBalance());
+            assertEquals(100, game.getCurrentRoundBet());
+            // a call to the short all-in is not enough
+            assertSame(player3, game.getCurrentPlayer());
+            player3.bet(80);
+            assertEquals(GameStatus.FLOP, game.getStatus());
+
+            player3.check();
+            master.check();
+            player3.check();
+            master.check();
+            assertEquals(GameStatus.RIVER, game.getStatus());
+            game.setBoard(new Board(Card.ACE_OF_CLUBS, Card.ACE_OF_DIAMONDS, Card.FIVE_OF_HEARTS, Card.NINE_OF_SPADES, Card.JACK_OF_CLUBS));
+            player2.setPlayerHand(new Hand(Card.ACE_OF_SPADES, Card.ACE_OF_HEARTS));
+            master.setPlayerHand(new Hand(Card.KING_OF_SPADES, Card.KING_OF_HEARTS));
+            player3.setPlayerHand(new Hand(Card.TWO_OF_CLUBS, Card.SEVEN_OF_DIAMONDS));
+            player3.check();
+            master.check();
+
+            assertNotNull(ended[0]);
+            assertEquals(GameStatus.END_HAND, game.getStatus());
+            assertSame(player2, ended[0].getPlayerwins().get(0));
+            // the main pot is 3 x 60, the side pot of 2 x 40 goes to the kings
+            assertEquals(180, player2.getBalance());
+            assertEquals(900 + 80, master.getBalance());
+            assertEquals(900, player3.getBalance());
+        } finally {
+            if (evaluator == null) System.clearProperty(HandEvaluatorFactory.EVALUATOR_PROPERTY);
+            else System.setProperty(HandEvaluatorFactory.EVALUATOR_PROPERTY, evaluator);
+        }
+    }
 }
@@ -0,0 +1,116 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.Card;
+import com.fcs.pokerserver.holder.Board;
+import com.fcs.pokerserver.holder.CompactHandEvaluator;
+import com.fcs.pokerserver.holder.EquityCalculator;
+import com.fcs.pokerserver.holder.EquityResult;
+import com.fcs.pokerserver.holder.Hand;
+
+/**
+ * JUnit tests for the {@link EquityCalculator}.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class EquityCalculatorTest {
+
+    private final EquityCalculator calculator = new EquityCalculator(new CompactHandEvaluator(), ForkJoinPool.commonPool());
+
+    /**
+     * On the flop every turn and river pair is enumerated.
+     */
+    @Test
+    public void testFlopIsExact() {
+        Hand aces = new Hand(Card.ACE_OF_SPADES, Card.ACE_OF_HEARTS);
+        Hand kings = new Hand(Card.KING_OF_CLUBS, Card.KING_OF_DIAMONDS);
+        Board board = new Board();
+        board.addCard(Card.TWO_OF_CLUBS, Card.SEVEN_OF_DIAMONDS, Card.NINE_OF_HEARTS);
+        EquityResult result = calculator.calculate(Arrays.asList(aces, kings), board, null);
+        assertTrue(result.isExact());
+        assertEquals(990, result.getSamples());
+        assertEquals(1.0, result.getEquity(0) + result.getEquity(1), 1e-9);
+        // kings need a king without an ace: 41 other cards for each of the two kings, plus both kings
+        assertEquals(83.0 / 990, result.getWinProbability(1), 1e-9);
+    }
+
+    /**
+     * A complete board has a single outcome, split pots share the equity.
+     */
+    @Test
+    public void testCompleteBoardSplit() {
+        Board board = new Board(Card.ACE_OF_SPADES, Card.KING_OF_SPADES, Card.QUEEN_OF_SPADES, Card.JACK_OF_SPADES, Card.TEN_OF_SPADES);
+        Hand a = new Hand(Card.TWO_OF_CLUBS, Card.THREE_OF_DIAMONDS);
+        Hand b = new Hand(Card.FOUR_OF_CLUBS, Card.FIVE_OF_DIAMONDS);
+        EquityResult result = calculator.calculate(Arrays.asList(a, b), board, null);
+        assertEquals(1, result.getSamples());
+        assertEquals(0.5, result.getEquity(0), 1e-9);
+        assertEquals(1.0, result.getTieProbability(1), 1e-9);
+    }
+
+    /**
+     * Preflop boards are sampled; aces against kings is close to 82%.
+     */
+    @Test
+    public void testPreflopMonteCarlo() {
+        Hand aces = new Hand(Card.ACE_OF_SPADES, Card.ACE_OF_HEARTS);
+        Hand kings = new Hand(Card.KING_OF_CLUBS, Card.KING_OF_DIAMONDS);
+        EquityResult result = calculator.calculate(Arrays.asList(aces, kings), null, Collections.<Card>emptyList(), 200000, 0);
+        assertFalse(result.isExact());
+        assertEquals(200000, result.getSamples());
+        assertEquals(0.82, result.getEquity(0), 0.01);
+    }
+
+    /**
+     * The time limit stops sampling early.
+     */
+    @Test
+    public void testDeadline() {
+        Hand aces = new Hand(Card.ACE_OF_SPADES, Card.ACE_OF_HEARTS);
+        Hand kings = new Hand(Card.KING_OF_CLUBS, Card.KING_OF_DIAMONDS);
+        EquityResult result = calculator.calculate(Arrays.asList(aces, kings), null, null, Long.MAX_VALUE, 50);
+        assertTrue(result.getSamples() > 0);
+        assertTrue(result.getSamples() < Long.MAX_VALUE);
+    }
+
+    /**
+     * The time limit also cuts an enumeration, which is then not exact.
+     */
+    @Test
+    public void testExactDeadline() {
+        EquityCalculator exhaustive = new EquityCalculator(new CompactHandEvaluator(), ForkJoinPool.commonPool());
+        exhaustive.setExactLimit(Long.MAX_VALUE);
+        Hand aces = new Hand(Card.ACE_OF_SPADES, Card.ACE_OF_HEARTS);
+        Hand kings = new Hand(Card.KING_OF_CLUBS, Card.KING_OF_DIAMONDS);
+        EquityResult result = exhaustive.calculate(Arrays.asList(aces, kings), null, null, EquityCalculator.DEFAULT_ITERATIONS, 1);
+        assertFalse(result.isExact());
+        assertTrue(result.getSamples() > 0);
+        assertTrue(result.getSamples() < 1712304);
+    }
+
+    /**
+     * Without any sampled deal the equity is 0, not NaN.
+     */
+    @Test
+    public void testNoSample() {
+        double[] equity = calculator.calculateAgainstRandom(new Hand(Card.ACE_OF_SPADES, Card.ACE_OF_HEARTS).getCardMask(), 3, 0, 0, 0, 0);
+        assertEquals(0.0, equity[0], 0);
+        assertEquals(0.0, equity[2], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCardUsedTwice() {
+        Hand a = new Hand(Card.ACE_OF_SPADES, Card.ACE_OF_HEARTS);
+        Hand b = new Hand(Card.ACE_OF_SPADES, Card.KING_OF_DIAMONDS);
+        calculator.calculate(Arrays.asList(a, b), null, null);
+    }
+}
@@ -0,0 +1,190 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fcs.pokerserver.BlindLevel;
+import com.fcs.pokerserver.Card;
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.events.GameAction;
+import com.fcs.pokerserver.events.PlayerAction;
+import com.fcs.pokerserver.history.HandArchive;
+import com.fcs.pokerserver.history.HistoryRecord;
+
+/**
+ * JUnit tests for the indexed archive of finished games.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class HandArchiveTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("archive").toFile();
+    }
+
+    /**
+     * A game with two bets and its end, player-N plays with player-(N+1) % 10.
+     */
+    private static List<HistoryRecord> game(long gameId) {
+        String first = "player-" + gameId % 10;
+        String second = "player-" + (gameId + 1) % 10;
+        List<HistoryRecord> records = new ArrayList<>();
+        for (String id : new String[]{first, second}) {
+            List<HistoryRecord.Entry> entries = new ArrayList<>();
+            entries.add(new HistoryRecord.Entry(id, 900, null));
+            records.add(new HistoryRecord(HistoryRecord.ACTION, (byte) 0, gameId, 1, gameId, 100, null, entries, null));
+        }
+        List<HistoryRecord.Entry> entries = new ArrayList<>();
+        entries.add(new HistoryRecord.Entry(first, 200, null));
+        entries.add(new HistoryRecord.Entry(second, 0, null));
+        records.add(new HistoryRecord(HistoryRecord.END, (byte) 0, gameId, 1, gameId, 200, null, entries, "Pair"));
+        return records;
+    }
+
+    /**
+     * Games are found in the sealed parts and in the open one, the games of a player come newest first.
+     */
+    @Test
+    public void testLookup() throws Exception {
+        HandArchive archive = new HandArchive(directory, 100);
+        for (long id = 1; id <= 250; id++) {
+            archive.archive(game(id));
+        }
+        assertEquals(250, archive.getGameCount());
+
+        // sealed part, then the open part
+        for (long id : new long[]{1, 57, 100, 201, 250}) {
+            List<HistoryRecord> records = archive.getGame(id);
+            assertEquals(3, records.size());
+            assertEquals(id, records.get(2).getGameId());
+            assertEquals("Pair", records.get(2).getText());
+        }
+        assertTrue(archive.getGame(251).isEmpty());
+
+        List<List<HistoryRecord>> games = archive.getGames("player-3", 30);
+        assertEquals(30, games.size());
+        // player-3 plays games ending in 2 and 3, newest first across the parts
+        assertEquals(243, games.get(0).get(0).getGameId());
+        assertEquals(242, games.get(1).get(0).getGameId());
+        assertEquals(103, games.get(28).get(0).getGameId());
+        assertEquals(102, games.get(29).get(0).getGameId());
+        assertTrue(archive.getGames("nobody", 10).isEmpty());
+    }
+
+    /**
+     * The part left open by a stop is indexed again by the next archive on the directory.
+     */
+    @Test
+    public void testReopen() throws Exception {
+        HandArchive first = new HandArchive(directory, 100);
+        for (long id = 1; id <= 150; id++) {
+            first.archive(game(id));
+        }
+        HandArchive second = new HandArchive(directory, 100);
+        assertEquals(150, second.getGameCount());
+        assertEquals(3, second.getGame(149).size());
+        second.archive(game(151));
+        assertEquals(151, second.getGames("player-1", 1).get(0).get(0).getGameId());
+    }
+
+    /**
+     * A player sees his own cards and the cards shown at the showdown, never the cards of a player who folded.
+     */
+    @Test
+    public void testView() {
+        byte[] hand = {(byte) Card.ACE_OF_SPADES.ordinal(), (byte) Card.ACE_OF_HEARTS.ordinal()};
+        List<HistoryRecord> records = new ArrayList<>();
+        List<HistoryRecord.Entry> dealt = new ArrayList<>();
+        for (String id : new String[]{"a", "b", "c"}) {
+            dealt.add(new HistoryRecord.Entry(id, 1000, hand));
+        }
+        records.add(new HistoryRecord(HistoryRecord.ROUND, (byte) GameAction.PREFLOP.ordinal(), 7, 1, 7, 30, null, dealt, null));
+        List<HistoryRecord.Entry> fold = new ArrayList<>();
+        fold.add(new HistoryRecord.Entry("c", 1000, null));
+        records.add(new HistoryRecord(HistoryRecord.ACTION, (byte) PlayerAction.FOLD.ordinal(), 7, 1, 7, 0, null, fold, null));
+        records.add(new HistoryRecord(HistoryRecord.END, (byte) 0, 7, 1, 7, 30, null, dealt, "Pair"));
+
+        List<HistoryRecord> view = HandArchive.viewOf(records, "a");
+        for (int i : new int[]{0, 2}) {
+            List<HistoryRecord.Entry> entries = view.get(i).getEntries();
+            assertEquals(2, entries.get(0).getCards().size());
+            assertEquals(2, entries.get(1).getCards().size());
+            assertTrue(entries.get(2).getCards().isEmpty());
+        }
+        // the folded player sees his own cards only, the others showed theirs
+        assertEquals(2, HandArchive.viewOf(records, "c").get(0).getEntries().get(2).getCards().size());
+        assertNull(HandArchive.viewOf(records, "d"));
+
+        // without a showdown the winner keeps his cards hidden
+        records.set(1, new HistoryRecord(HistoryRecord.ACTION, (byte) PlayerAction.FOLD.ordinal(), 7, 1, 7, 0, null, dealt.subList(1, 3), null));
+        view = HandArchive.viewOf(records, "b");
+        assertTrue(view.get(2).getEntries().get(0).getCards().isEmpty());
+        assertEquals(2, view.get(2).getEntries().get(1).getCards().size());
+    }
+
+    /**
+     * A game which never ended is not kept in memory once its room plays the next one, or once the room is closed.
+     */
+    @Test
+    public void testUnfinishedGameDropped() throws Exception {
+        HandArchive archive = new HandArchive(directory, 100);
+        Player master = new Player("archive-master");
+        master.setGlobalBalance(5000);
+        Player player = new Player("archive-player");
+        player.setGlobalBalance(5000);
+        Room room = new Room(master, BlindLevel.BLIND_10_20);
+        room.addPlayer(player);
+        room.addGameListener(archive);
+        Game game = room.getCurrentGame();
+        game.setDealer(master);
+        game.startGame();
+        game.preflop();
+        assertEquals(1, archive.getPlayingCount());
+
+        // the hand is cut without its end, the room goes on with another game
+        Game next = new Game(room);
+        next.addGameListener(archive);
+        next.seatPlayer(master, 0);
+        next.seatPlayer(player, 1);
+        next.setDealer(player);
+        next.startGame();
+        next.preflop();
+        next.getCurrentPlayer().fold();
+        assertEquals(0, archive.getPlayingCount());
+
+        // the last player leaves the room in the middle of a hand
+        game = room.nextGame();
+        game.setDealer(master);
+        game.startGame();
+        assertEquals(1, archive.getPlayingCount());
+        archive.abandon(room);
+        assertEquals(0, archive.getPlayingCount());
+    }
+
+    /**
+     * Games created in the same millisecond, by two rooms or by a hand and the next one, never share an id.
+     */
+    @Test
+    public void testUniqueGameIds() {
+        long last = 0;
+        for (int i = 0; i < 1000; i++) {
+            long id = new Game(null).getId();
+            assertTrue(id > last);
+            last = id;
+        }
+    }
+}
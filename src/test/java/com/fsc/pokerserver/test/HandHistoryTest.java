@@ -0,0 +1,77 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fcs.pokerserver.Card;
+import com.fcs.pokerserver.history.HandHistoryReader;
+import com.fcs.pokerserver.history.HandHistoryWriter;
+import com.fcs.pokerserver.history.HistoryRecord;
+
+/**
+ * JUnit tests for the binary hand history segments.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class HandHistoryTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("history").toFile();
+    }
+
+    /**
+     * Records written across several segments come back per game in the order they were written.
+     */
+    @Test
+    public void testReplayGame() {
+        // small segments so the records roll over many files
+        HandHistoryWriter writer = new HandHistoryWriter(directory, 4096, 50);
+        for (int i = 0; i < 2000; i++) {
+            List<HistoryRecord.Entry> entries = new ArrayList<>();
+            entries.add(new HistoryRecord.Entry("player-" + i % 3, 1000 - i, new byte[]{(byte) Card.ACE_OF_SPADES.ordinal()}));
+            writer.append(new HistoryRecord(HistoryRecord.ACTION, (byte) 0, i % 5, 7, i, i, null, entries, null));
+        }
+        assertTrue(writer.flush(10000));
+        assertEquals(2000, writer.getWrittenCount());
+        assertTrue(HandHistoryReader.segments(directory).size() > 1);
+
+        List<HistoryRecord> records = new HandHistoryReader(directory).read(3);
+        assertEquals(400, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            HistoryRecord record = records.get(i);
+            assertEquals(3, record.getGameId());
+            assertEquals(3 + 5 * i, record.getAmount());
+            assertEquals("player-" + (3 + 5 * i) % 3, record.getEntries().get(0).getId());
+            assertEquals(Card.ACE_OF_SPADES, record.getEntries().get(0).getCards().get(0));
+        }
+    }
+
+    /**
+     * A new writer on the same directory keeps the old segments and starts a new one.
+     */
+    @Test
+    public void testRestartAppends() {
+        HandHistoryWriter first = new HandHistoryWriter(directory, 1 << 16, 50);
+        first.append(new HistoryRecord(HistoryRecord.END, (byte) 0, 42, 1, 0, 100, null, null, "Flush"));
+        assertTrue(first.flush(10000));
+        HandHistoryWriter second = new HandHistoryWriter(directory, 1 << 16, 50);
+        second.append(new HistoryRecord(HistoryRecord.END, (byte) 0, 42, 1, 0, 200, null, null, "Straight"));
+        assertTrue(second.flush(10000));
+
+        List<HistoryRecord> records = new HandHistoryReader(directory).read(42);
+        assertEquals(2, records.size());
+        assertEquals("Flush", records.get(0).getText());
+        assertEquals(200, records.get(1).getAmount());
+    }
+}
@@ -0,0 +1,78 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.PotLedger;
+
+/**
+ * JUnit tests for the main and side pots of the {@link PotLedger}.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class PotLedgerTest {
+
+    private static final int NONE = Integer.MIN_VALUE;
+
+    /**
+     * Two all-ins at different levels leave a main pot and two side pots with the right seats.
+     */
+    @Test
+    public void testSidePots() {
+        PotLedger ledger = new PotLedger(4);
+        ledger.contribute(0, 50, true);
+        ledger.contribute(1, 100, true);
+        ledger.contribute(2, 100, false);
+        ledger.contribute(3, 200, false);
+        ledger.contribute(2, 100, false);
+
+        List<PotLedger.Pot> pots = ledger.getPots();
+        assertEquals(3, pots.size());
+        assertEquals(200, pots.get(0).getAmount());
+        assertEquals(0b1111, pots.get(0).getEligible());
+        assertEquals(150, pots.get(1).getAmount());
+        assertEquals(0b1110, pots.get(1).getEligible());
+        assertEquals(200, pots.get(2).getAmount());
+        assertEquals(0b1100, pots.get(2).getEligible());
+        assertEquals(550, ledger.getTotal());
+
+        // the short stack has the best hand, seat 1 the second best
+        long[] payouts = ledger.distribute(new int[]{40, 30, 10, 20}, 3);
+        assertArrayEquals(new long[]{200, 150, 0, 200}, payouts);
+    }
+
+    /**
+     * A folded seat leaves its chips in the pot but cannot win them.
+     */
+    @Test
+    public void testFoldedSeatCannotWin() {
+        PotLedger ledger = new PotLedger(3);
+        ledger.contribute(0, 40, false);
+        ledger.contribute(1, 40, false);
+        ledger.contribute(2, 40, false);
+        ledger.fold(0);
+        assertEquals(0b110, ledger.getPots().get(0).getEligible());
+        long[] payouts = ledger.distribute(new int[]{99, 10, 20}, 0);
+        assertArrayEquals(new long[]{0, 0, 120}, payouts);
+    }
+
+    /**
+     * The odd chip of a split pot goes to the first winner left of the dealer.
+     */
+    @Test
+    public void testOddChip() {
+        PotLedger ledger = new PotLedger(3);
+        ledger.contribute(0, 11, false);
+        ledger.contribute(1, 10, false);
+        ledger.contribute(2, 10, false);
+        ledger.fold(1);
+        long[] payouts = ledger.distribute(new int[]{5, NONE, 5}, 0);
+        assertArrayEquals(new long[]{15, 0, 16}, payouts);
+        payouts = ledger.distribute(new int[]{5, NONE, 5}, 2);
+        assertArrayEquals(new long[]{16, 0, 15}, payouts);
+    }
+}
@@ -0,0 +1,69 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.Card;
+import com.fcs.pokerserver.holder.ConfigurationLoader;
+import com.fcs.pokerserver.holder.Hand;
+import com.fcs.pokerserver.holder.PreflopEquityTable;
+
+/**
+ * JUnit tests for the memory-mapped {@link PreflopEquityTable}.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class PreflopEquityTableTest {
+
+    private final PreflopEquityTable table = PreflopEquityTable.getInstance();
+
+    /**
+     * The 169 indexes cover every starting hand once, suits only matter for suited or not.
+     */
+    @Test
+    public void testHandIndex() {
+        assertEquals("AA", PreflopEquityTable.handName(PreflopEquityTable.handIndex(Card.ACE_OF_CLUBS, Card.ACE_OF_SPADES)));
+        assertEquals("AKs", PreflopEquityTable.handName(PreflopEquityTable.handIndex(Card.KING_OF_HEARTS, Card.ACE_OF_HEARTS)));
+        assertEquals("72o", PreflopEquityTable.handName(PreflopEquityTable.handIndex(Card.TWO_OF_CLUBS, Card.SEVEN_OF_DIAMONDS)));
+        assertEquals(PreflopEquityTable.handIndex(Card.TEN_OF_SPADES, Card.NINE_OF_HEARTS),
+                PreflopEquityTable.handIndex(Card.NINE_OF_CLUBS, Card.TEN_OF_DIAMONDS));
+    }
+
+    /**
+     * Well known heads-up equities, and equity falls as opponents are added.
+     */
+    @Test
+    public void testKnownEquities() {
+        assertEquals(0.852, table.getEquity(new Hand(Card.ACE_OF_SPADES, Card.ACE_OF_HEARTS), 1), 0.005);
+        assertEquals(0.346, table.getEquity(new Hand(Card.SEVEN_OF_CLUBS, Card.TWO_OF_DIAMONDS), 1), 0.005);
+        assertEquals(0.670, table.getEquity(new Hand(Card.ACE_OF_SPADES, Card.KING_OF_SPADES), 1), 0.005);
+        for (int hand = 0; hand < PreflopEquityTable.STARTING_HANDS; hand++) {
+            for (int opponents = 2; opponents <= PreflopEquityTable.MAX_OPPONENTS; opponents++) {
+                assertTrue(PreflopEquityTable.handName(hand), table.getEquity(hand, opponents) < table.getEquity(hand, opponents - 1));
+            }
+        }
+    }
+
+    /**
+     * A cache file of the right size and newer than the resource but with other content is copied again.
+     */
+    @Test
+    public void testStaleCache() throws Exception {
+        File cache = File.createTempFile("preflop-equity", ".dat");
+        cache.deleteOnExit();
+        long size = new ConfigurationLoader().mapResource(PreflopEquityTable.RESOURCE, cache).capacity();
+        Files.write(cache.toPath(), new byte[(int) size]);
+        Files.setLastModifiedTime(cache.toPath(), FileTime.fromMillis(System.currentTimeMillis() + 3600000));
+
+        MappedByteBuffer mapped = new ConfigurationLoader().mapResource(PreflopEquityTable.RESOURCE, cache);
+        assertEquals(size, mapped.capacity());
+        assertEquals(PreflopEquityTable.MAGIC, mapped.getInt(0));
+    }
+}
@@ -0,0 +1,118 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.BlindLevel;
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.GameStatus;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.jmx.GameRegistry;
+import com.fcs.pokerserver.jmx.PlayerRegistry;
+import com.fcs.pokerserver.jmx.RoomRegistry;
+
+/**
+ * JUnit tests for the registry MBeans of the players, rooms and games.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class RegistryTest {
+
+    /**
+     * Register a room and its games as the server does when it adds the room.
+     */
+    private static void register(Room room) {
+        RoomRegistry.getInstance().add(room);
+        room.addRoomListener(GameRegistry.getInstance());
+        GameRegistry.getInstance().add(room.getCurrentGame());
+    }
+
+    /**
+     * A room is in the registry with its current game, the finished game leaves it with the next game.
+     */
+    @Test
+    public void testRoomAndGames() throws Exception {
+        Player master = new Player("registry-master");
+        master.setGlobalBalance(5000);
+        Player player = new Player("registry-player");
+        player.setGlobalBalance(5000);
+        Room room = new Room(master, BlindLevel.BLIND_10_20);
+        room.addPlayer(player);
+        Game game = room.getCurrentGame();
+        // a room does not register itself
+        assertNull(GameRegistry.getInstance().get(game.getId()));
+        register(room);
+        assertSame(room, RoomRegistry.getInstance().get(room.getRoomID()));
+        assertSame(game, GameRegistry.getInstance().get(game.getId()));
+
+        game.setDealer(master);
+        game.startGame();
+        game.preflop();
+        game.getCurrentPlayer().fold();
+        assertEquals(GameStatus.END_HAND, game.getStatus());
+        Game next = room.nextGame();
+        assertNotSame(game, next);
+        assertNull(GameRegistry.getInstance().get(game.getId()));
+        assertSame(next, GameRegistry.getInstance().get(next.getId()));
+
+        CompositeData row = RoomRegistry.getInstance().getRooms().get(new Object[]{room.getRoomID()});
+        assertEquals("registry-master", row.get("master"));
+        assertEquals(2, row.get("players"));
+        assertEquals(next.getId(), row.get("game"));
+
+        RoomRegistry.getInstance().remove(room);
+        GameRegistry.getInstance().remove(room);
+        assertNull(RoomRegistry.getInstance().get(room.getRoomID()));
+        assertNull(GameRegistry.getInstance().get(next.getId()));
+    }
+
+    /**
+     * The games of rooms created in the same millisecond are all in the registry.
+     */
+    @Test
+    public void testGamesOfManyRooms() {
+        Room[] rooms = new Room[20];
+        for (int i = 0; i < rooms.length; i++) {
+            Player master = new Player("registry-room-" + i);
+            master.setGlobalBalance(5000);
+            rooms[i] = new Room(master, BlindLevel.BLIND_10_20);
+            register(rooms[i]);
+        }
+        for (Room room : rooms) {
+            assertSame(room.getCurrentGame(), GameRegistry.getInstance().get(room.getCurrentGame().getId()));
+        }
+    }
+
+    /**
+     * Players are changed by id through the registry, which is one MBean for all of them.
+     */
+    @Test
+    public void testPlayers() throws Exception {
+        PlayerRegistry registry = PlayerRegistry.getInstance();
+        Player p = new Player("registry-single");
+        registry.add(p);
+        registry.setBalance(p.getId(), 1234);
+        assertEquals(1234, p.getBalance());
+
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.fcs.pokerserver:type=" + PlayerRegistry.TYPE);
+        TabularData players = (TabularData) mbs.getAttribute(name, "Players");
+        assertEquals(1234L, players.get(new Object[]{p.getId()}).get("balance"));
+        assertEquals(0, mbs.queryNames(new ObjectName("com.fcs.pokerserver:type=Player,*"), null).size());
+
+        registry.remove(p);
+        assertNull(registry.get(p.getId()));
+    }
+}
@@ -0,0 +1,122 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.BlindLevel;
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.Seats;
+
+/**
+ * JUnit tests for the {@link Seats} of a table.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class SeatsTest {
+
+    /**
+     * The next seat in a mask goes round the table and skips the seats out of the mask.
+     */
+    @Test
+    public void testNext() {
+        int mask = 0b10110;
+        assertEquals(2, Seats.next(1, mask));
+        assertEquals(4, Seats.next(2, mask));
+        assertEquals(1, Seats.next(4, mask));
+        assertEquals(1, Seats.next(0, mask));
+        assertEquals(3, Seats.next(3, 1 << 3));
+        assertEquals(-1, Seats.next(3, 0));
+        assertEquals(0, Seats.next(31, 1));
+    }
+
+    /**
+     * Players take the lowest free seat, leaving frees the seat and the list view follows the seats.
+     */
+    @Test
+    public void testSitAndLeave() {
+        Seats seats = new Seats(3);
+        Player a = new Player("seats-a");
+        Player b = new Player("seats-b");
+        Player c = new Player("seats-c");
+        Player d = new Player("seats-d");
+        assertEquals(0, seats.sit(a));
+        assertEquals(1, seats.sit(b));
+        assertEquals(2, seats.sit(c));
+        assertTrue(seats.isFull());
+        assertEquals(-1, seats.sit(d));
+
+        List<Player> list = seats.asList();
+        assertEquals(3, list.size());
+        assertSame(b, list.remove(1));
+        assertFalse(list.contains(b));
+        assertEquals(0b101, seats.getOccupied());
+        assertSame(c, list.get(1));
+
+        assertTrue(list.add(d));
+        assertEquals(1, seats.seatOf(d));
+        assertSame(d, list.get(1));
+    }
+
+    /**
+     * Folded and all-in seats are out of the seats which can act.
+     */
+    @Test
+    public void testMasks() {
+        Seats seats = new Seats(4);
+        for (int i = 0; i < 4; i++) {
+            seats.sit(new Player("seats-mask-" + i));
+        }
+        seats.setFolded(1, true);
+        seats.setAllIn(2, true);
+        assertEquals(0b1101, seats.getActive());
+        assertEquals(0b1001, seats.getCanAct());
+        assertEquals(3, Seats.next(0, seats.getCanAct()));
+        seats.setFolded(1, false);
+        assertEquals(0b1011, seats.getCanAct());
+    }
+
+    /**
+     * A player is seated on the lowest free seat, the list refuses an index.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddAtIndex() {
+        Seats seats = new Seats(3);
+        seats.asList().add(0, new Player("seats-index"));
+    }
+
+    /**
+     * The folded player is back in the next hand, the seats of the finished hand keep the fold.
+     */
+    @Test
+    public void testNextGameSeats() {
+        Player master = new Player("seats-next-master");
+        Player player = new Player("seats-next-player");
+        master.setGlobalBalance(5000);
+        player.setGlobalBalance(5000);
+        Room room = new Room(master, BlindLevel.BLIND_10_20);
+        room.run(() -> {
+            room.addPlayer(player);
+            Game game = room.getCurrentGame();
+            game.setDealer(master);
+            game.startGame();
+            game.preflop();
+            game.getCurrentPlayer().fold();
+        });
+        Game game = room.getCurrentGame();
+        int folded = game.getSeats().getOccupied() & ~game.getSeats().getActive();
+        assertEquals(1, Integer.bitCount(folded));
+
+        Game next = room.call(room::nextGame);
+        assertEquals(folded, game.getSeats().getOccupied() & ~game.getSeats().getActive());
+        assertEquals(next.getSeats().getOccupied(), next.getSeats().getActive());
+        assertEquals(2, next.getSeats().count());
+    }
+}
@@ -0,0 +1,241 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.Test;
+
+import com.fcs.pokerserver.events.GameActRoomEvent;
+import com.fcs.pokerserver.events.GetTurnPlayerEvent;
+import com.fcs.pokerserver.events.PlayerActionGameEvent;
+import com.fcs.pokerserver.events.PlayerFoldEvent;
+import com.fcs.pokerserver.events.VisitRoomEvent;
+import com.fcs.pokerserver.gameserver.BufferPool;
+import com.fcs.pokerserver.gameserver.PublishPolicy;
+import com.fcs.pokerserver.gameserver.PublisherPool;
+import com.fcs.pokerserver.gameserver.Sender;
+import com.fcs.pokerserver.gameserver.WireEncoder;
+
+/**
+ * JUnit tests for the batching MQTT Sender.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class SenderTest {
+
+    /**
+     * A client which keeps what is published instead of sending it.
+     */
+    private static class RecordingClient extends MqttClient {
+        private final BlockingQueue<String> published = new LinkedBlockingQueue<>();
+        private final BlockingQueue<String> deliveries = new LinkedBlockingQueue<>();
+        private final BlockingQueue<byte[]> payloads = new LinkedBlockingQueue<>();
+
+        RecordingClient() throws MqttException {
+            super("tcp://localhost:1883", "sender-test", new MemoryPersistence());
+        }
+
+        @Override
+        public void publish(String topic, byte[] payload, int qos, boolean retained) {
+            deliveries.add(qos + (retained ? " retained" : ""));
+            payloads.add(payload);
+            published.add(topic + "|" + new String(payload, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * The messages of one window are published once per topic, in the order they were added.
+     */
+    @Test
+    public void testCoalesce() throws Exception {
+        RecordingClient client = new RecordingClient();
+        Sender sender = new Sender(client, 16, 200);
+        sender.add("/room/1", "a1");
+        sender.add("/room/2", "b1");
+        sender.add("/room/1", "a2");
+        sender.add("/room/1", "a3");
+
+        assertEquals("/room/1|a1\na2\na3", client.published.poll(5, TimeUnit.SECONDS));
+        assertEquals("/room/2|b1", client.published.poll(5, TimeUnit.SECONDS));
+        assertNull(client.published.poll(300, TimeUnit.MILLISECONDS));
+        assertEquals(4, sender.getMessageCount());
+        assertEquals(1, sender.getBatchCount());
+        assertEquals(2, sender.getPublishCount());
+        assertEquals(4, sender.getMaxBatchSize());
+        assertEquals(0, sender.getQueueDepth());
+    }
+
+    /**
+     * A line break inside a message is escaped, so every line of a payload is one message.
+     */
+    @Test
+    public void testLineBreak() throws Exception {
+        RecordingClient client = new RecordingClient();
+        Sender sender = new Sender(client, 16, 200);
+        sender.add("/room/1", "{\"name\":\"a\nb\r\"}");
+        sender.add("/room/1", "c");
+
+        String message = client.published.poll(5, TimeUnit.SECONDS);
+        assertEquals("/room/1|{\"name\":\"a\\nb\\r\"}\nc", message);
+        assertEquals(2, message.split("\n").length);
+    }
+
+    /**
+     * An idle sender sleeps on its queue instead of spinning.
+     */
+    @Test
+    public void testIdle() throws Exception {
+        RecordingClient client = new RecordingClient();
+        Sender sender = new Sender(client, 16, 0);
+        sender.add("/room/1", "a1");
+        assertEquals("/room/1|a1", client.published.poll(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(Thread.State.WAITING, sender.getState());
+    }
+
+    /**
+     * A room always goes through the same connection and keeps its order, the rooms are spread over the connections.
+     */
+    @Test
+    public void testPool() throws Exception {
+        RecordingClient[] clients = new RecordingClient[4];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new RecordingClient();
+        }
+        PublisherPool pool = new PublisherPool(clients);
+        long firstRoom = System.currentTimeMillis();
+        for (int n = 0; n < 50; n++) {
+            for (long room = firstRoom; room < firstRoom + 40; room++) {
+                pool.add(room, "/room/" + room, String.valueOf(n));
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        long sent = 0;
+        while (sent < 2000 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            sent = 0;
+            for (int i = 0; i < pool.size(); i++) {
+                sent += pool.getSender(i).getMessageCount();
+            }
+        }
+        assertEquals(2000, sent);
+
+        Map<String, List<String>> rooms = new HashMap<>();
+        int used = 0;
+        for (int i = 0; i < clients.length; i++) {
+            if (!clients[i].published.isEmpty()) used++;
+            for (String message : clients[i].published) {
+                String topic = message.substring(0, message.indexOf('|'));
+                assertEquals(i, pool.shard(Long.parseLong(topic.substring("/room/".length()))));
+                for (String content : message.substring(message.indexOf('|') + 1).split("\n")) {
+                    rooms.computeIfAbsent(topic, k -> new ArrayList<>()).add(content);
+                }
+            }
+        }
+        assertTrue(used > 1);
+        assertEquals(40, rooms.size());
+        for (List<String> contents : rooms.values()) {
+            assertEquals(50, contents.size());
+            for (int n = 1; n < contents.size(); n++) {
+                assertEquals(Integer.parseInt(contents.get(n - 1)) + 1, Integer.parseInt(contents.get(n)));
+            }
+        }
+    }
+
+    /**
+     * A topic keeps its order when the QoS changes, and only the last of following retained messages is published.
+     */
+    @Test
+    public void testDelivery() throws Exception {
+        RecordingClient client = new RecordingClient();
+        Sender sender = new Sender(client, 16, 200);
+        sender.add("/room/1", "a1", 1, false);
+        sender.add("/room/1/state", "s1", 1, true);
+        sender.add("/room/1", "turn", 0, false);
+        sender.add("/room/1", "a2", 1, false);
+        sender.add("/room/1", "a3", 1, false);
+        sender.add("/room/1/state", "s2", 1, true);
+
+        assertEquals("/room/1|a1", client.published.poll(5, TimeUnit.SECONDS));
+        assertEquals("/room/1/state|s2", client.published.poll(5, TimeUnit.SECONDS));
+        assertEquals("/room/1|turn", client.published.poll(5, TimeUnit.SECONDS));
+        assertEquals("/room/1|a2\na3", client.published.poll(5, TimeUnit.SECONDS));
+        assertEquals("1", client.deliveries.poll());
+        assertEquals("1 retained", client.deliveries.poll());
+        assertEquals("0", client.deliveries.poll());
+        assertEquals("1", client.deliveries.poll());
+    }
+
+    /**
+     * The binary frames of a topic go in one payload, each after its length, and their buffers go back to the pool.
+     */
+    @Test
+    public void testBinary() throws Exception {
+        RecordingClient client = new RecordingClient();
+        Sender sender = new Sender(client, 16, 200);
+        BufferPool pool = BufferPool.getInstance();
+        ByteBuffer[] frames = new ByteBuffer[3];
+        for (int n = 0; n < 3; n++) {
+            frames[n] = pool.acquire();
+            WireEncoder.putVarint(frames[n], 200L * (n + 1));
+            frames[n].flip();
+        }
+        int pooled = pool.getPooled();
+        for (ByteBuffer frame : frames) {
+            sender.add("/room/1/bin", frame, 1, false);
+        }
+
+        assertTrue(client.published.poll(5, TimeUnit.SECONDS).startsWith("/room/1/bin|"));
+        ByteBuffer payload = ByteBuffer.wrap(client.payloads.poll());
+        for (int n = 1; n <= 3; n++) {
+            assertEquals(2, WireEncoder.getVarint(payload));
+            assertEquals(200L * n, WireEncoder.getVarint(payload));
+        }
+        assertEquals(0, payload.remaining());
+        assertEquals(pooled + 3, pool.getPooled());
+    }
+
+    /**
+     * The policy maps the turn notifications apart from the other player actions, and is overridden by name.
+     */
+    @Test
+    public void testPolicy() {
+        PublishPolicy defaults = new PublishPolicy(null);
+        GameActRoomEvent turn = new GameActRoomEvent(null);
+        turn.setE(new PlayerActionGameEvent(null, new GetTurnPlayerEvent(null)));
+        GameActRoomEvent fold = new GameActRoomEvent(null);
+        fold.setE(new PlayerActionGameEvent(null, new PlayerFoldEvent(null)));
+        assertEquals(0, defaults.of(turn).getQos());
+        assertEquals(1, defaults.of(fold).getQos());
+        assertEquals(1, defaults.of(new VisitRoomEvent(null)).getQos());
+        assertEquals(2, defaults.get("EndGameEvent").getQos());
+        assertTrue(defaults.get(PublishPolicy.TABLE_STATE).isRetained());
+
+        PublishPolicy policy = new PublishPolicy("PlayerActionGameEvent:2, VisitRoomEvent:0:retain");
+        assertEquals(2, policy.of(fold).getQos());
+        assertEquals(0, policy.of(turn).getQos());
+        assertTrue(policy.of(new VisitRoomEvent(null)).isRetained());
+        try {
+            new PublishPolicy("EndGameEvent:3");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // QoS out of range
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.holder.HandType;
+import com.fcs.pokerserver.holder.ShowdownRanker;
+import com.fcs.pokerserver.holder.ShowdownResult;
+
+/**
+ * The class to test the showdown ranking of already evaluated hands.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class ShowdownRankerTest {
+
+    /**
+     * A single best hand wins alone.
+     */
+    @Test
+    public void testSingleWinner() {
+        ShowdownResult result = ShowdownRanker.rank(new int[]{4200, 8500, 12300, 5000});
+        assertArrayEquals(new int[]{2}, result.getWinners());
+        assertEquals(12300, result.getBestRank());
+        assertEquals(HandType.TWO_PAIR, result.getHandRank(2).getHandType());
+        assertTrue(result.isWinner(2));
+        assertFalse(result.isWinner(1));
+    }
+
+    /**
+     * Equal best ranks split, and tie groups are ordered best first.
+     */
+    @Test
+    public void testTieGroupsAndPositions() {
+        ShowdownResult result = ShowdownRanker.rank(new int[]{9000, 20000, 9000, 20000, 4100});
+        assertArrayEquals(new int[]{1, 3}, result.getWinners());
+        List<int[]> groups = result.getTieGroups();
+        assertEquals(3, groups.size());
+        assertArrayEquals(new int[]{1, 3}, groups.get(0));
+        assertArrayEquals(new int[]{0, 2}, groups.get(1));
+        assertArrayEquals(new int[]{4}, groups.get(2));
+        assertEquals(1, result.getPosition(3));
+        assertEquals(2, result.getPosition(0));
+        assertEquals(3, result.getPosition(4));
+    }
+}
@@ -0,0 +1,61 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.automation.TableExecutor;
+
+/**
+ * JUnit tests for the {@link TableExecutor} loops.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class TableExecutorTest {
+
+    private final TableExecutor executor = TableExecutor.getInstance();
+
+    /**
+     * Tasks of one table run one after the other, in order, on the same thread.
+     */
+    @Test
+    public void testTasksOfTableRunInOrder() throws InterruptedException {
+        long table = 1234L;
+        int[] counter = new int[1];
+        Thread[] thread = new Thread[1];
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            final int expected = i;
+            executor.execute(table, () -> {
+                if (counter[0] == expected) counter[0]++;
+                if (thread[0] == null) thread[0] = Thread.currentThread();
+                if (thread[0] == Thread.currentThread()) done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1000, (int) executor.call(table, () -> counter[0]));
+    }
+
+    /**
+     * A call made on the loop of the table runs at once instead of waiting for itself.
+     */
+    @Test
+    public void testCallOnLoopRunsInline() {
+        long table = 42L;
+        assertFalse(executor.inLoop(table));
+        boolean nested = executor.call(table, () -> executor.call(table, () -> executor.inLoop(table)));
+        assertTrue(nested);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testExceptionIsRethrown() {
+        executor.call(7L, () -> {
+            throw new IllegalStateException("bad command");
+        });
+    }
+}
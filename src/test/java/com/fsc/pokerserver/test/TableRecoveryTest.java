@@ -0,0 +1,178 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fcs.pokerserver.BlindLevel;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.events.GameAction;
+import com.fcs.pokerserver.events.PlayerAction;
+import com.fcs.pokerserver.history.HandHistoryReader;
+import com.fcs.pokerserver.history.HandHistoryWriter;
+import com.fcs.pokerserver.history.HistoryRecord;
+import com.fcs.pokerserver.history.SnapshotStore;
+import com.fcs.pokerserver.history.TableRecovery;
+import com.fcs.pokerserver.history.TableSnapshot;
+
+/**
+ * JUnit tests for bringing back the tables from their snapshot and the hand history.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class TableRecoveryTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("recovery").toFile();
+    }
+
+    private static List<HistoryRecord.Entry> entries(Object... idAndValue) {
+        List<HistoryRecord.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < idAndValue.length; i += 2) {
+            entries.add(new HistoryRecord.Entry((String) idAndValue[i], ((Number) idAndValue[i + 1]).longValue(), null));
+        }
+        return entries;
+    }
+
+    private static HistoryRecord waiting(long gameId, long roomId, Object... idAndValue) {
+        return new HistoryRecord(HistoryRecord.ROUND, (byte) GameAction.WAITTING.ordinal(), gameId, roomId, 0, 0, null, entries(idAndValue), null);
+    }
+
+    private static HistoryRecord bet(long gameId, long roomId, String id, long amount, long balance) {
+        return new HistoryRecord(HistoryRecord.ACTION, (byte) PlayerAction.BET.ordinal(), gameId, roomId, 0, amount, null, entries(id, balance), null);
+    }
+
+    /**
+     * A hand which ended in the log pays as it did, the hand cut by the crash gives every stack back.
+     */
+    @Test
+    public void testRecoverFromLog() throws Exception {
+        HandHistoryWriter writer = new HandHistoryWriter(directory, 1 << 16, 50);
+        SnapshotStore store = new SnapshotStore(new File(directory, SnapshotStore.SNAPSHOT_FILE), writer, 0);
+        Player master = new Player("recovery-master");
+        Player player = new Player("recovery-player");
+        master.setGlobalBalance(5000);
+        player.setGlobalBalance(5000);
+        Room room = new Room(master, BlindLevel.BLIND_10_20);
+        room.run(() -> {
+            room.addPlayer(player);
+            store.capture(room);
+        });
+        store.write();
+
+        long roomId = room.getRoomID();
+        long game = room.getCurrentGame().getId();
+        writer.append(waiting(game, roomId, master.getId(), 1000, player.getId(), 1000));
+        writer.append(bet(game, roomId, master.getId(), 100, 900));
+        writer.append(bet(game, roomId, player.getId(), 100, 900));
+        writer.append(new HistoryRecord(HistoryRecord.END, (byte) 0, game, roomId, 0, 200, null,
+                entries(master.getId(), 200, player.getId(), 0), "Pair"));
+        writer.append(waiting(game + 1, roomId, master.getId(), 1100, player.getId(), 900));
+        writer.append(bet(game + 1, roomId, player.getId(), 300, 600));
+        // records of another room are not replayed
+        writer.append(bet(game + 1, roomId + 1, player.getId(), 300, 0));
+        assertTrue(writer.flush(10000));
+
+        List<TableSnapshot> tables = new TableRecovery(directory).recover();
+        assertEquals(1, tables.size());
+        TableSnapshot table = tables.get(0);
+        assertEquals(roomId, table.getRoomId());
+        assertEquals(1100, table.getStack(master.getId()).getBalance());
+        assertEquals(900, table.getStack(player.getId()).getBalance());
+        assertEquals(4000, table.getStack(player.getId()).getGlobalBalance());
+    }
+
+    /**
+     * The recovered players are back on their seat with their chips.
+     */
+    @Test
+    public void testRestoreRooms() {
+        long roomId = System.nanoTime();
+        TableSnapshot table = new TableSnapshot(roomId, "restore-master", BlindLevel.BLIND_20_40, 6, 1, true, 0, Arrays.asList(
+                new TableSnapshot.Stack("restore-master", 3, 700, 100),
+                new TableSnapshot.Stack("restore-player", 0, 1300, 200)));
+        List<Room> rooms = TableRecovery.restore(Arrays.asList(table));
+
+        assertEquals(1, rooms.size());
+        Room room = rooms.get(0);
+        assertEquals(roomId, room.getRoomID());
+        assertEquals(6, room.getTableSize());
+        assertEquals(BlindLevel.BLIND_20_40, room.getBlindLevel());
+        assertEquals(2, room.getListPlayer().size());
+        Player master = room.getMaster();
+        assertSame(master, room.getCurrentGame().getSeats().get(3));
+        assertEquals(700, master.getBalance());
+        assertEquals(100, master.getGlobalBalance());
+        Player player = room.getCurrentGame().getSeats().get(0);
+        assertEquals("restore-player", player.getId());
+        assertEquals(1300, player.getBalance());
+        assertSame(room, player.getCurrentRoom());
+    }
+
+    /**
+     * A master who had left the room is not made up, the room goes to a player at the table, and an empty table is
+     * not brought back.
+     */
+    @Test
+    public void testRestoreWithoutMaster() {
+        long roomId = System.nanoTime();
+        TableSnapshot left = new TableSnapshot(roomId, "gone-master", BlindLevel.BLIND_20_40, 6, 1, true, 0, Arrays.asList(
+                new TableSnapshot.Stack("stayed-player", 2, 800, 300),
+                new TableSnapshot.Stack("stayed-other", 4, 1200, 400)));
+        TableSnapshot empty = new TableSnapshot(roomId + 1, "empty-master", BlindLevel.BLIND_20_40, 6, 1, true, 0,
+                Collections.<TableSnapshot.Stack>emptyList());
+        List<Room> rooms = TableRecovery.restore(Arrays.asList(left, empty));
+
+        assertEquals(1, rooms.size());
+        Room room = rooms.get(0);
+        assertEquals(roomId, room.getRoomID());
+        Player master = room.getMaster();
+        assertEquals("stayed-player", master.getId());
+        assertSame(master, room.getCurrentGame().getSeats().get(2));
+        assertEquals(800, master.getBalance());
+        assertEquals(2, room.getListPlayer().size());
+        for (Player p : room.getListPlayer()) {
+            assertFalse("gone-master".equals(p.getId()));
+        }
+    }
+
+    /**
+     * A torn record stops the reading of its segment, the records before it are kept.
+     */
+    @Test
+    public void testTornRecord() throws Exception {
+        HandHistoryWriter writer = new HandHistoryWriter(directory, 1 << 16, 50);
+        HistoryRecord first = bet(1, 1, "torn-player", 100, 900);
+        writer.append(first);
+        writer.append(bet(1, 1, "torn-player", 100, 800));
+        writer.append(bet(1, 1, "torn-player", 100, 700));
+        assertTrue(writer.flush(10000));
+
+        File segment = HandHistoryReader.segments(directory).get(0);
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            // the board card count of the second record
+            raf.seek(HandHistoryWriter.HEADER_BYTES + first.toBytes().length + 4 + 2 + 8 * 4);
+            raf.write(0x80);
+        }
+        List<HistoryRecord> records = new ArrayList<>();
+        HandHistoryReader.read(segment, null, records::add);
+        assertEquals(1, records.size());
+        assertEquals(900, records.get(0).getEntries().get(0).getValue());
+    }
+}
@@ -0,0 +1,88 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.BlindLevel;
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.TableState;
+
+/**
+ * JUnit tests for the versioned state of a table.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class TableStateTest {
+
+    /**
+     * A version only carries the fields which changed, a version without change is not made.
+     */
+    @Test
+    public void testDelta() throws Exception {
+        Player master = new Player("state-master");
+        master.setGlobalBalance(5000);
+        Player player = new Player("state-player");
+        player.setGlobalBalance(5000);
+        Room room = new Room(master, BlindLevel.BLIND_10_20);
+        room.addPlayer(player);
+        TableState state = new TableState(100);
+
+        String first = state.update(room);
+        assertTrue(first.startsWith("{\"v\":1,\"base\":0,\"set\":{\"room\":"));
+        assertTrue(first.contains("\"seat.1\":{\"id\":\"" + player.getId() + "\""));
+        assertTrue(state.isKeyframe());
+        assertNull(state.update(room));
+        assertEquals(1, state.getVersion());
+
+        Game game = room.getCurrentGame();
+        game.setDealer(master);
+        game.startGame();
+        game.preflop();
+        String delta = state.update(room);
+        assertTrue(delta.startsWith("{\"v\":2,\"base\":1,"));
+        assertFalse(delta.contains("\"room\""));
+        assertFalse(state.isKeyframe());
+
+        Player current = game.getCurrentPlayer();
+        current.fold();
+        delta = state.update(room);
+        assertTrue(delta.contains("\"folded\":true"));
+        assertFalse(delta.contains("\"id\":" + game.getId()));
+        assertTrue(delta.length() < state.getKeyframe().length());
+
+        room.removePlayer(player);
+        delta = state.update(room);
+        assertTrue(delta.endsWith("\"del\":[\"seat.1\"]}"));
+        assertFalse(state.getKeyframe().contains("seat.1"));
+    }
+
+    /**
+     * Every version of the interval is a keyframe with the whole state.
+     */
+    @Test
+    public void testKeyframes() throws Exception {
+        Player master = new Player("keyframe-master");
+        master.setGlobalBalance(5000);
+        Room room = new Room(master, BlindLevel.BLIND_10_20);
+        TableState state = new TableState(3);
+        int keyframes = 0;
+        for (int n = 0; n < 7; n++) {
+            Player p = new Player("keyframe-" + n);
+            p.setGlobalBalance(5000);
+            room.addPlayer(p);
+            assertTrue(state.update(room) != null);
+            if (state.isKeyframe()) {
+                keyframes++;
+                assertTrue(state.getKeyframe().startsWith("{\"v\":" + state.getVersion() + ",\"state\":{\"room\":"));
+            }
+        }
+        // versions 1, 4 and 7
+        assertEquals(3, keyframes);
+    }
+}
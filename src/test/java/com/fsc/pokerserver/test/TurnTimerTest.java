@@ -0,0 +1,103 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.BlindLevel;
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.automation.CountDownPlayer;
+import com.fcs.pokerserver.automation.TurnTimer;
+
+/**
+ * JUnit tests for the {@link TurnTimer} wheel.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class TurnTimerTest {
+
+    private final TurnTimer timer = TurnTimer.getInstance();
+
+    /**
+     * Deadlines expire in the order of their delay and never before it.
+     */
+    @Test
+    public void testExpiresInOrder() throws InterruptedException {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        long start = System.currentTimeMillis();
+        long[] late = new long[1];
+        timer.schedule(() -> { order.add(3); done.countDown(); }, 900);
+        timer.schedule(() -> { order.add(1); late[0] = System.currentTimeMillis() - start; done.countDown(); }, 300);
+        timer.schedule(() -> { order.add(2); done.countDown(); }, 600);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, (int) order.get(0));
+        assertEquals(2, (int) order.get(1));
+        assertEquals(3, (int) order.get(2));
+        assertTrue(late[0] >= 300);
+    }
+
+    /**
+     * A cancelled deadline never runs, and cannot be cancelled once it ran.
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        boolean[] ran = new boolean[1];
+        TurnTimer.Timeout cancelled = timer.schedule(() -> ran[0] = true, 200);
+        assertTrue(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+
+        CountDownLatch done = new CountDownLatch(1);
+        TurnTimer.Timeout expired = timer.schedule(done::countDown, 400);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertFalse(ran[0]);
+        assertFalse(expired.cancel());
+        assertTrue(expired.isExpired());
+    }
+
+    /**
+     * A turn timeout fired under a handle which is not the pending one of the player does not fold.
+     */
+    @Test
+    public void testStaleTurnTimeout() {
+        Player master = new Player("stale-master");
+        Player player = new Player("stale-player");
+        master.setGlobalBalance(5000);
+        player.setGlobalBalance(5000);
+        Room room = new Room(master, BlindLevel.BLIND_10_20);
+        room.run(() -> {
+            room.addPlayer(player);
+            Game game = room.getCurrentGame();
+            game.setDealer(player);
+            game.startGame();
+            game.preflop();
+        });
+        Game game = room.getCurrentGame();
+        Player current = game.getCurrentPlayer();
+
+        CountDownPlayer stale = CountDownPlayer.createInstance(current, game);
+        TurnTimer.Timeout old = timer.schedule(() -> { }, 60 * 1000);
+        old.cancel();
+        stale.setTimeout(old);
+        stale.run();
+        room.run(() -> { });
+        assertFalse(current.isSittingOut());
+        assertTrue(game.getCurrentPlayer() == current);
+
+        CountDownPlayer pending = CountDownPlayer.createInstance(current, game);
+        pending.setTimeout(current.getTurnTimeout());
+        pending.run();
+        room.run(() -> { });
+        assertTrue(current.isSittingOut());
+    }
+}
@@ -0,0 +1,125 @@
+package com.fsc.pokerserver.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.fcs.pokerserver.BlindLevel;
+import com.fcs.pokerserver.Card;
+import com.fcs.pokerserver.Game;
+import com.fcs.pokerserver.Player;
+import com.fcs.pokerserver.Room;
+import com.fcs.pokerserver.events.GameActRoomEvent;
+import com.fcs.pokerserver.events.GameAction;
+import com.fcs.pokerserver.events.PlayerActionGameEvent;
+import com.fcs.pokerserver.events.PlayerBetEvent;
+import com.fcs.pokerserver.events.RoomAction;
+import com.fcs.pokerserver.events.RoundGameEvent;
+import com.fcs.pokerserver.events.VisitRoomEvent;
+import com.fcs.pokerserver.gameserver.BufferPool;
+import com.fcs.pokerserver.gameserver.WireEncoder;
+
+/**
+ * JUnit tests for the binary wire format of the room events.
+ *
+ * @category com > fcs > pokerserver > test
+ */
+public class WireEncoderTest {
+
+    /**
+     * Varints and texts read back what was written, the clients get the version they can read.
+     */
+    @Test
+    public void testVarintAndNegotiate() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        WireEncoder.putVarint(buffer, 0);
+        WireEncoder.putVarint(buffer, 127);
+        WireEncoder.putVarint(buffer, 128);
+        WireEncoder.putVarint(buffer, System.currentTimeMillis());
+        WireEncoder.putVarint(buffer, Long.MAX_VALUE);
+        WireEncoder.putString(buffer, "ng\u01b0\u1eddi ch\u01a1i");
+        buffer.flip();
+        assertEquals(0, WireEncoder.getVarint(buffer));
+        assertEquals(127, WireEncoder.getVarint(buffer));
+        assertEquals(128, WireEncoder.getVarint(buffer));
+        assertTrue(WireEncoder.getVarint(buffer) > 0);
+        assertEquals(Long.MAX_VALUE, WireEncoder.getVarint(buffer));
+        assertEquals("ng\u01b0\u1eddi ch\u01a1i", WireEncoder.getString(buffer));
+
+        assertEquals(0, WireEncoder.negotiate(null, null));
+        assertEquals(0, WireEncoder.negotiate("text", "1"));
+        assertEquals(WireEncoder.VERSION, WireEncoder.negotiate("bin", null));
+        assertEquals(WireEncoder.VERSION, WireEncoder.negotiate("bin", "99"));
+        assertEquals(0, WireEncoder.negotiate("bin", "0"));
+    }
+
+    /**
+     * The frames name the players by seat and the cards by their one byte code.
+     */
+    @Test
+    public void testFrames() {
+        Player master = new Player("wire-master");
+        master.setGlobalBalance(5000);
+        Player player = new Player("wire-player");
+        player.setGlobalBalance(5000);
+        Room room = new Room(master, BlindLevel.BLIND_10_20);
+        room.addPlayer(player);
+        Game game = room.getCurrentGame();
+        WireEncoder encoder = new WireEncoder(new BufferPool(256, 4));
+
+        VisitRoomEvent joined = new VisitRoomEvent(room);
+        joined.setType(RoomAction.PLAYERJOINEDROOM);
+        joined.setP(player);
+        ByteBuffer frame = encoder.encode(joined);
+        assertEquals(WireEncoder.VERSION, frame.get());
+        assertEquals(WireEncoder.JOINED, frame.get());
+        assertEquals(room.getRoomID(), WireEncoder.getVarint(frame));
+        assertEquals(game.getId(), WireEncoder.getVarint(frame));
+        assertEquals(1, frame.get());
+        assertEquals(1000, WireEncoder.getVarint(frame));
+        assertEquals(player.getId(), WireEncoder.getString(frame));
+        assertEquals(0, frame.remaining());
+
+        game.setDealer(master);
+        game.startGame();
+        game.preflop();
+        GameActRoomEvent preflop = new GameActRoomEvent(room);
+        preflop.setE(new RoundGameEvent(game, GameAction.PREFLOP));
+        frame = encoder.encode(preflop);
+        frame.position(2);
+        WireEncoder.getVarint(frame);
+        WireEncoder.getVarint(frame);
+        assertEquals(GameAction.PREFLOP.ordinal(), frame.get());
+        assertEquals(2, frame.get());
+        for (int i = 0; i < 2; i++) {
+            Player p = game.getSeats().get(frame.get());
+            assertEquals(p.getPlayerHand().getCard(0), Card.fromEvaluation(frame.get()));
+            assertEquals(p.getPlayerHand().getCard(1), Card.fromEvaluation(frame.get()));
+        }
+        assertEquals(0, frame.remaining());
+        // the text payload of the same event carries two player jsons
+        assertTrue(frame.limit() < 64);
+
+        PlayerBetEvent bet = new PlayerBetEvent(master);
+        bet.setAmount(300);
+        GameActRoomEvent action = new GameActRoomEvent(room);
+        action.setE(new PlayerActionGameEvent(game, bet));
+        frame = encoder.encode(action);
+        frame.position(1);
+        assertEquals(WireEncoder.ACTION, frame.get());
+        WireEncoder.getVarint(frame);
+        WireEncoder.getVarint(frame);
+        assertEquals(WireEncoder.BET, frame.get());
+        assertEquals(0, frame.get());
+        assertEquals(300, WireEncoder.getVarint(frame));
+        assertEquals(game.getPendingActs(), WireEncoder.getVarint(frame));
+        int pots = frame.get();
+        assertEquals(game.getPot().getPots().size(), pots);
+
+        assertNull(encoder.encode(new VisitRoomEvent(room)));
+    }
+}